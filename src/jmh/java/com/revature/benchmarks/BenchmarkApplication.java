@@ -0,0 +1,38 @@
+package com.revature.benchmarks;
+
+import com.revature.SocialMediaApplication;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Starts the application on a random port against an in-memory H2 database. The web layer stays
+// on because AuthAspect needs the request scoped HttpServletRequest, benchmarks call services directly.
+// Every JMH fork is its own JVM, so every trial starts from an empty database.
+final class BenchmarkApplication {
+
+    static final String SCHEMA = "flutter";
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(SocialMediaApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                // Command line arguments, so they win over application.yml
+                .run("--url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;INIT=CREATE SCHEMA IF NOT EXISTS " + SCHEMA,
+                        "--server.port=0",
+                        "--username=sa",
+                        "--password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.sql.init.mode=never",
+                        "--spring.devtools.restart.enabled=false",
+                        "--logging.level.root=WARN");
+    }
+
+    // Requests run inside the open-in-view session, benchmark operations run inside one of these instead
+    static TransactionTemplate requestScope(ConfigurableApplicationContext context) {
+        return new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+}
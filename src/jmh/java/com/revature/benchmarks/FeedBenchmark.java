@@ -0,0 +1,73 @@
+package com.revature.benchmarks;
+
+import com.revature.models.Post;
+import com.revature.services.TimelineService;
+import com.revature.services.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// UserService.getFeedForUser for random users of a synthetic graph.
+// With cold timelines every call assembles the feed from the following list,
+// with warm ones it is read from the precomputed timeline.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedBenchmark {
+
+    @Param({"1000", "10000"})
+    private int users;
+    @Param({"50"})
+    private int followsPerUser;
+    @Param({"5"})
+    private int postsPerUser;
+    @Param({"0.0", "1.2"})
+    private double skew;
+    @Param({"true", "false"})
+    private boolean warmTimelines;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private TimelineService timelineService;
+    private TransactionTemplate requestScope;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start();
+        SocialGraph.generate(context, users, followsPerUser, postsPerUser, skew, 42);
+        userService = context.getBean(UserService.class);
+        timelineService = context.getBean(TimelineService.class);
+        requestScope = BenchmarkApplication.requestScope(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private final SplittableRandom random = new SplittableRandom(7);
+
+        int nextUserId(int users) {
+            return random.nextInt(users) + 1;
+        }
+    }
+
+    @Benchmark
+    public List<Post> getFeedForUser(Reader reader) {
+        int userId = reader.nextUserId(users);
+        if (!warmTimelines) {
+            timelineService.invalidate(userId);
+        }
+        return requestScope.execute(status -> userService.getFeedForUser(userService.findById(userId).get()));
+    }
+}
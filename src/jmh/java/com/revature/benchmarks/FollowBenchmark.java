@@ -0,0 +1,78 @@
+package com.revature.benchmarks;
+
+import com.revature.models.User;
+import com.revature.services.FollowGraphService;
+import com.revature.services.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// addFollower and removeFollower on a user who already has the given number of followers.
+// The follow state is reset before every invocation, so each call does real work.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FollowBenchmark {
+
+    private static final int FOLLOWED_ID = 1;
+
+    @Param({"10", "1000", "10000"})
+    private int followers;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private FollowGraphService followGraphService;
+    private TransactionTemplate requestScope;
+    private int followerId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start();
+        SocialGraph.star(context, followers);
+        userService = context.getBean(UserService.class);
+        followGraphService = context.getBean(FollowGraphService.class);
+        requestScope = BenchmarkApplication.requestScope(context);
+        followerId = followers + 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class NotFollowing {
+
+        @Setup(Level.Invocation)
+        public void unfollow(FollowBenchmark benchmark) {
+            benchmark.followGraphService.unfollow(benchmark.followerId, FOLLOWED_ID);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Following {
+
+        @Setup(Level.Invocation)
+        public void follow(FollowBenchmark benchmark) {
+            benchmark.followGraphService.follow(benchmark.followerId, FOLLOWED_ID);
+        }
+    }
+
+    @Benchmark
+    public List<User> addFollower(NotFollowing state) {
+        return requestScope.execute(status -> userService.addFollower(
+                userService.findById(FOLLOWED_ID).get(), userService.findById(followerId).get()));
+    }
+
+    @Benchmark
+    public List<User> removeFollower(Following state) {
+        return requestScope.execute(status -> userService.removeFollower(
+                userService.findById(FOLLOWED_ID).get(), userService.findById(followerId).get()));
+    }
+}
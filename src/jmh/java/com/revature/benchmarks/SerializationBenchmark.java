@@ -0,0 +1,88 @@
+package com.revature.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import com.revature.models.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of in-memory Post and User graphs, configured like the application's ObjectMapper.
+// No database is involved, so this isolates the cost of rendering a feed or a profile.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int AUTHORS = 20;
+
+    @Param({"20", "100"})
+    private int posts;
+    @Param({"0", "3"})
+    private int commentsPerPost;
+    @Param({"10", "1000"})
+    private int followersPerAuthor;
+
+    private ObjectMapper objectMapper;
+    private List<Post> feed;
+    private User profile;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<User> authors = new ArrayList<>();
+        for (int i = 1; i <= AUTHORS; i++) {
+            authors.add(user(i, followersPerAuthor));
+        }
+        profile = authors.get(0);
+
+        int postId = 1;
+        feed = new ArrayList<>();
+        for (int i = 0; i < posts; i++) {
+            Post post = post(postId++, authors.get(i % AUTHORS), PostType.Top);
+            // Two levels of replies, the same shape the comment tree loader produces
+            for (int c = 0; c < commentsPerPost; c++) {
+                Post comment = post(postId++, authors.get((i + c + 1) % AUTHORS), PostType.Comment);
+                for (int r = 0; r < commentsPerPost; r++) {
+                    comment.getComments().add(post(postId++, authors.get((i + r + 2) % AUTHORS), PostType.Reply));
+                }
+                post.getComments().add(comment);
+            }
+            feed.add(post);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeFeed() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(feed);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(profile);
+    }
+
+    private static User user(int id, int followers) {
+        List<User> followerList = new ArrayList<>(followers);
+        for (int i = 0; i < followers; i++) {
+            int followerId = 1000 + i;
+            followerList.add(new User(followerId, "user" + followerId + "@bench", "password", "First", "Last",
+                    "user" + followerId, null, null, "image.png"));
+        }
+        return new User(id, "user" + id + "@bench", "password", "First" + id, "Last" + id, "user" + id, followerList,
+                new ArrayList<>(), "image" + id + ".png");
+    }
+
+    private static Post post(int id, User author, PostType postType) {
+        return new Post(id, "post " + id, null, new ArrayList<>(), author, postType, 0);
+    }
+}
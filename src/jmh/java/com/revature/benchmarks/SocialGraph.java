@@ -0,0 +1,125 @@
+package com.revature.benchmarks;
+
+import com.revature.models.PostType;
+import com.revature.repositories.IdSequenceInitializer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Writes synthetic users, follows and posts straight into the tables with batched inserts.
+// User ids are 1..users and post ids 1..posts, the id sequences are moved past them afterwards.
+final class SocialGraph {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private SocialGraph() {
+    }
+
+    // Every user follows followsPerUser others, picked with a Zipf distribution over user ids.
+    // A skew of 0 is uniform, the higher it is the more follows go to the lowest ids
+    static void generate(ApplicationContext context, int users, int followsPerUser, int postsPerUser, double skew,
+                         long seed) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        insertUsers(jdbcTemplate, users);
+
+        Random random = new Random(seed);
+        double[] cumulative = zipfCumulative(users, skew);
+        int follows = Math.min(followsPerUser, users - 1);
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int followerId = 1; followerId <= users; followerId++) {
+            Set<Integer> followed = new HashSet<>();
+            while (followed.size() < follows) {
+                int userId = sample(cumulative, random);
+                if (userId != followerId) {
+                    followed.add(userId);
+                }
+            }
+            for (int userId : followed) {
+                rows.add(new Object[]{userId, followerId});
+                rows = flushIfFull(jdbcTemplate, followSql(), rows);
+            }
+        }
+        jdbcTemplate.batchUpdate(followSql(), rows);
+
+        insertPosts(jdbcTemplate, users, postsPerUser);
+        context.getBean(IdSequenceInitializer.class).initialize();
+    }
+
+    // User 1 followed by users 2..followers+1, plus one more user who follows nobody
+    static void star(ApplicationContext context, int followers) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        insertUsers(jdbcTemplate, followers + 2);
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int followerId = 2; followerId <= followers + 1; followerId++) {
+            rows.add(new Object[]{1, followerId});
+            rows = flushIfFull(jdbcTemplate, followSql(), rows);
+        }
+        jdbcTemplate.batchUpdate(followSql(), rows);
+        context.getBean(IdSequenceInitializer.class).initialize();
+    }
+
+    private static void insertUsers(JdbcTemplate jdbcTemplate, int users) {
+        String sql = "insert into " + BenchmarkApplication.SCHEMA
+                + ".users (id, email, password, first_name, last_name, username, image_url) values (?, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= users; i++) {
+            rows.add(new Object[]{i, "user" + i + "@bench", "password", "First" + i, "Last" + i, "user" + i, "image" + i + ".png"});
+            rows = flushIfFull(jdbcTemplate, sql, rows);
+        }
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+
+    private static void insertPosts(JdbcTemplate jdbcTemplate, int users, int postsPerUser) {
+        String sql = "insert into " + BenchmarkApplication.SCHEMA
+                + ".posts (id, text, image_url, likes, post_type, author_id) values (?, ?, ?, 0, ?, ?)";
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        int postId = 1;
+        // Round robin over the authors, so newer posts are spread over everyone like a real feed
+        for (int n = 0; n < postsPerUser; n++) {
+            for (int authorId = 1; authorId <= users; authorId++) {
+                rows.add(new Object[]{postId++, "post " + n + " by user " + authorId, null, PostType.Top.ordinal(), authorId});
+                rows = flushIfFull(jdbcTemplate, sql, rows);
+            }
+        }
+        jdbcTemplate.batchUpdate(sql, rows);
+    }
+
+    private static String followSql() {
+        return "insert into " + BenchmarkApplication.SCHEMA + ".follower_following (user_id, follower_id) values (?, ?)";
+    }
+
+    private static List<Object[]> flushIfFull(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        if (rows.size() < BATCH_SIZE) {
+            return rows;
+        }
+        jdbcTemplate.batchUpdate(sql, rows);
+        return new ArrayList<>(BATCH_SIZE);
+    }
+
+    private static double[] zipfCumulative(int users, double skew) {
+        double[] cumulative = new double[users];
+        double total = 0;
+        for (int rank = 1; rank <= users; rank++) {
+            total += 1.0 / Math.pow(rank, skew);
+            cumulative[rank - 1] = total;
+        }
+        for (int i = 0; i < users; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, cumulative.length - 1) + 1;
+    }
+}
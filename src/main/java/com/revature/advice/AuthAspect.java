@@ -3,9 +3,11 @@ package com.revature.advice;
 import com.revature.annotations.AuthRestriction;
 import com.revature.annotations.Authorized;
 import com.revature.exceptions.NotLoggedInException;
+import com.revature.services.TokenService;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletRequest;
@@ -19,9 +21,11 @@ public class AuthAspect {
     // It isn't a request object itself, but if there is an active request
     // the proxy will pass method calls to the real request
     private final HttpServletRequest req;
+    private final TokenService tokenService;
 
-    public AuthAspect(HttpServletRequest req) {
+    public AuthAspect(HttpServletRequest req, TokenService tokenService) {
         this.req = req;
+        this.tokenService = tokenService;
     }
 
     // This advice will execute around any method annotated with @Authorized
@@ -47,13 +51,26 @@ public class AuthAspect {
     @Around("@annotation(authorized)")
     public Object authenticate(ProceedingJoinPoint pjp, Authorized authorized) throws Throwable {
 
-        HttpSession session = req.getSession(); // Get the session (or create one)
-
         // If the user is not logged in
-        if(session.getAttribute("user") == null) {
+        if(!isLoggedIn()) {
             throw new NotLoggedInException("Must be logged in to perform this action");
         }
 
         return pjp.proceed(pjp.getArgs()); // Call the originally intended method
     }
+
+    // A signed token in the Authorization header is checked without touching the session.
+    // Otherwise fall back to a session login, if those are enabled
+    private boolean isLoggedIn() {
+        String authorization = req.getHeader(HttpHeaders.AUTHORIZATION);
+        if(authorization != null) {
+            return tokenService.verify(authorization) >= 0;
+        }
+        if(!tokenService.isSessionLoginEnabled()) {
+            return false;
+        }
+
+        HttpSession session = req.getSession(false); // Never create a session just to find it empty
+        return session != null && session.getAttribute("user") != null;
+    }
 }
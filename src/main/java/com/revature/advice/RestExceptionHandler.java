@@ -1,12 +1,15 @@
 package com.revature.advice;
 
+import com.revature.exceptions.HashingUnavailableException;
 import com.revature.exceptions.NotLoggedInException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class RestExceptionHandler {
@@ -18,4 +21,21 @@ public class RestExceptionHandler {
 
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorMessage);
     }
+
+    @ExceptionHandler(HashingUnavailableException.class)
+    public ResponseEntity<Object> handleHashingUnavailableException(HttpServletRequest request, HashingUnavailableException hashingUnavailableException) {
+
+        String errorMessage = "Too many logins in progress, try again shortly";
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(errorMessage);
+    }
+
+    // A bounded worker pool is full, like the feed pool
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Object> handleRejectedExecutionException(HttpServletRequest request, RejectedExecutionException rejectedExecutionException) {
+
+        String errorMessage = "Too many requests in progress, try again shortly";
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(errorMessage);
+    }
 }
@@ -4,16 +4,19 @@ import com.revature.dtos.LoginRequest;
 import com.revature.dtos.RegisterRequest;
 import com.revature.models.User;
 import com.revature.services.AuthService;
+import com.revature.services.TokenService;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/auth")
-@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:3000", "http://flutterdeployedbucket.s3-website-us-east-1.amazonaws.com"}, allowCredentials = "true")
+@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:3000", "http://flutterdeployedbucket.s3-website-us-east-1.amazonaws.com"}, allowCredentials = "true", exposedHeaders = TokenService.TOKEN_HEADER)
 public class AuthController {
 
     private final AuthService authService;
@@ -23,27 +26,41 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<User> login(@RequestBody LoginRequest loginRequest, HttpSession session) {
+    public ResponseEntity<User> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
         Optional<User> userOptional = authService.findByCredentials(loginRequest.getEmail(), loginRequest.getPassword());
 
         if(!userOptional.isPresent()) {
             return ResponseEntity.badRequest().build();
         }
 
-        session.setAttribute("user", userOptional.get());
+        // Only the id is kept in the session, the entity and its follower lists would be pinned there until it expires
+        if(authService.isSessionLoginEnabled()) {
+            request.getSession().setAttribute("user", userOptional.get().getId());
+        }
 
-        return ResponseEntity.ok(userOptional.get());
+        // Clients send the token back as "Authorization: Bearer <token>"
+        return ResponseEntity.ok()
+                .header(TokenService.TOKEN_HEADER, authService.issueToken(userOptional.get()))
+                .body(userOptional.get());
     }
 
+    // Tokens are stateless, they stay valid until they expire and the client is expected to drop them
     @PostMapping("/logout")
-    public ResponseEntity<Void> logout(HttpSession session) {
-        session.removeAttribute("user");
+    public ResponseEntity<Void> logout(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if(session != null) {
+            session.removeAttribute("user");
+        }
 
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/register")
     public ResponseEntity<User> register(@RequestBody RegisterRequest registerRequest) {
+        if(authService.isTaken(registerRequest.getEmail(), registerRequest.getUsername())) {
+            return ResponseEntity.badRequest().build();
+        }
+
         User created = new User(
                 registerRequest.getEmail(),
                 registerRequest.getPassword(),
@@ -51,6 +68,11 @@ public class AuthController {
                 registerRequest.getLastName(),
                 registerRequest.getUsername());
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(authService.register(created));
+        // The taken checks only see this node's index, the unique constraints catch a name taken on another node
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(authService.register(created));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 }
@@ -0,0 +1,43 @@
+package com.revature.controllers;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.OptionalLong;
+
+// ETag and Last-Modified headers from VersionStampService versions
+final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    // Sets the 304 status when the client's copy is current, the handler then returns null
+    static boolean notModified(WebRequest request, OptionalLong version) {
+        return version.isPresent()
+                && request.checkNotModified(etag(version.getAsLong()), lastModified(version.getAsLong()));
+    }
+
+    static <T> ResponseEntity<T> withVersion(ResponseEntity<T> response, OptionalLong version) {
+        if (!version.isPresent()) {
+            return response;
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .eTag(etag(version.getAsLong()))
+                .cacheControl(CacheControl.noCache());
+        long lastModified = lastModified(version.getAsLong());
+        if (lastModified >= 0) {
+            builder.lastModified(lastModified);
+        }
+        return builder.body(response.getBody());
+    }
+
+    private static String etag(long version) {
+        return "\"" + Long.toString(version, 36) + "\"";
+    }
+
+    private static long lastModified(long version) {
+        return version / 1000 < System.currentTimeMillis() / 1000 ? version : -1;
+    }
+}
@@ -0,0 +1,50 @@
+package com.revature.controllers;
+
+import com.revature.dtos.CacheStatistics;
+import com.revature.dtos.CoalescingStatistics;
+import com.revature.dtos.EndpointStatistics;
+import com.revature.metrics.RequestMetricsFilter;
+import com.revature.repositories.SecondLevelCache;
+import com.revature.services.EntityCacheService;
+import com.revature.services.RequestCoalescer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/metrics")
+@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:3000", "http://flutterdeployedbucket.s3-website-us-east-1.amazonaws.com"}, allowCredentials = "true")
+public class MetricsController {
+
+    private final EntityCacheService entityCacheService;
+    private final RequestCoalescer requestCoalescer;
+    private final RequestMetricsFilter requestMetricsFilter;
+    private final SecondLevelCache secondLevelCache;
+
+    public MetricsController(EntityCacheService entityCacheService, RequestCoalescer requestCoalescer,
+                             RequestMetricsFilter requestMetricsFilter, SecondLevelCache secondLevelCache) {
+        this.entityCacheService = entityCacheService;
+        this.requestCoalescer = requestCoalescer;
+        this.requestMetricsFilter = requestMetricsFilter;
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    @GetMapping("/endpoints")
+    public ResponseEntity<List<EndpointStatistics>> getEndpointStatistics() {
+        return ResponseEntity.ok(requestMetricsFilter.getStatistics());
+    }
+
+    @GetMapping("/caches")
+    public ResponseEntity<List<CacheStatistics>> getCacheStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>(entityCacheService.getStatistics());
+        statistics.addAll(secondLevelCache.getStatistics());
+        return ResponseEntity.ok(statistics);
+    }
+
+    @GetMapping("/coalescing")
+    public ResponseEntity<List<CoalescingStatistics>> getCoalescingStatistics() {
+        return ResponseEntity.ok(requestCoalescer.getStatistics());
+    }
+}
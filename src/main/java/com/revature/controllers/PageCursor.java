@@ -0,0 +1,111 @@
+package com.revature.controllers;
+
+import com.revature.dtos.PostSummary;
+import com.revature.models.Post;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+// Opaque keyset cursors for paged listings, sent back in the X-Next-Cursor header
+final class PageCursor {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_LIMIT = 20;
+    static final int MAX_LIMIT = 100;
+
+    private static final String PREFIX = "p:";
+    private static final String OFFSET_PREFIX = "o:";
+
+    private PageCursor() {
+    }
+
+    static boolean isPaged(String after, Integer limit) {
+        return after != null || limit != null;
+    }
+
+    static String encode(int postId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + postId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns the post id to page after, no cursor means start from the newest post
+    static Optional<Integer> decode(String cursor) {
+        return decode(cursor, Integer.MAX_VALUE);
+    }
+
+    // Returns the post id to page after, no cursor means start from the oldest post
+    static Optional<Integer> decodeAscending(String cursor) {
+        return decode(cursor, 0);
+    }
+
+    private static Optional<Integer> decode(String cursor, int start) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Optional.of(start);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                return Optional.empty();
+            }
+            return Optional.of(Integer.parseInt(decoded.substring(PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((OFFSET_PREFIX + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns the number of results to skip, no cursor means start from the best match
+    static Optional<Integer> decodeOffset(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Optional.of(0);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(OFFSET_PREFIX)) {
+                return Optional.empty();
+            }
+            int offset = Integer.parseInt(decoded.substring(OFFSET_PREFIX.length()));
+            return offset < 0 ? Optional.empty() : Optional.of(offset);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    static int limit(Integer limit) {
+        if (limit == null || limit < 1) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    static ResponseEntity<List<Post>> page(List<Post> posts, int limit) {
+        if (posts.size() < limit) {
+            return ResponseEntity.ok(posts);
+        }
+        int lastId = posts.get(posts.size() - 1).getId();
+        return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, encode(lastId)).body(posts);
+    }
+
+    // Summary pages are written by SummaryService, only the cursor is set here
+    static ResponseEntity.BodyBuilder summaryPage(List<PostSummary> summaries, int limit) {
+        if (summaries.size() < limit) {
+            return ResponseEntity.ok();
+        }
+        int lastId = summaries.get(summaries.size() - 1).getId();
+        return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, encode(lastId));
+    }
+
+    static ResponseEntity<List<Post>> rankedPage(List<Post> posts, int offset, int limit) {
+        if (posts.size() < limit) {
+            return ResponseEntity.ok(posts);
+        }
+        return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, encodeOffset(offset + limit)).body(posts);
+    }
+}
@@ -1,32 +1,84 @@
 package com.revature.controllers;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import com.revature.models.PostType;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.revature.annotations.Authorized;
+import com.revature.dtos.LikeCount;
+import com.revature.dtos.PostSummary;
+import com.revature.dtos.TrendingPost;
+import com.revature.dtos.TrendingTerm;
 import com.revature.models.Post;
+import com.revature.services.LikeCounterService;
+import com.revature.services.LiveFeedService;
 import com.revature.services.PostService;
+import com.revature.services.SummaryService;
+import com.revature.services.TrendingService;
+import com.revature.services.VersionStampService;
 
 @RestController
 @RequestMapping("/posts")
-@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:3000", "http://flutterdeployedbucket.s3-website-us-east-1.amazonaws.com"}, allowCredentials = "true")
+@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:3000", "http://flutterdeployedbucket.s3-website-us-east-1.amazonaws.com"}, allowCredentials = "true", exposedHeaders = PageCursor.NEXT_CURSOR_HEADER)
 public class PostController {
 
 	private final PostService postService;
+    private final LikeCounterService likeCounterService;
+    private final SummaryService summaryService;
+    private final TrendingService trendingService;
+    private final LiveFeedService liveFeedService;
+    private final VersionStampService versionStampService;
 
-    public PostController(PostService postService) {
+    public PostController(PostService postService, LikeCounterService likeCounterService, SummaryService summaryService,
+                          TrendingService trendingService, LiveFeedService liveFeedService,
+                          VersionStampService versionStampService) {
         this.postService = postService;
+        this.likeCounterService = likeCounterService;
+        this.summaryService = summaryService;
+        this.trendingService = trendingService;
+        this.liveFeedService = liveFeedService;
+        this.versionStampService = versionStampService;
     }
     
 
     @GetMapping
-    public ResponseEntity<List<Post>> getAllPosts() {
-    	return ResponseEntity.ok(this.postService.getAll());
+    public ResponseEntity<List<Post>> getAllPosts(@RequestParam(required = false) String after, @RequestParam(required = false) Integer limit) {
+        if (!PageCursor.isPaged(after, limit)) {
+            return ResponseEntity.ok(this.postService.getAll());
+        }
+        Optional<Integer> afterId = PageCursor.decode(after);
+        if (!afterId.isPresent()) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = PageCursor.limit(limit);
+        return PageCursor.page(this.postService.getPage(afterId.get(), pageSize), pageSize);
+    }
+    
+    // Streams every post as a summary without comments, written straight from a database cursor
+    @GetMapping("/summary")
+    public ResponseEntity<StreamingResponseBody> getAllPostSummaries() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(summaryService::writeAllPosts);
+    }
+
+    @GetMapping("/feed/summary")
+    public ResponseEntity<StreamingResponseBody> getAllTopPostSummaries() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(summaryService::writeTopPosts);
+    }
+
+    // Server-sent events for every new post, and for comments and likes on the listed posts and the pushed ones
+    @GetMapping(path = "/feed/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getLiveFeed(@RequestParam(required = false) List<Integer> posts) {
+        return liveFeedService.subscribeToAll(posts);
     }
     
     @Authorized
@@ -36,8 +88,38 @@ public class PostController {
     }
 
     @GetMapping("/feed")
-    public ResponseEntity<List<Post>> getAllTopPosts() {
-        return ResponseEntity.ok(this.postService.getAllTop());
+    public ResponseEntity<List<Post>> getAllTopPosts(@RequestParam(required = false) String after, @RequestParam(required = false) Integer limit) {
+        if (!PageCursor.isPaged(after, limit)) {
+            return ResponseEntity.ok(this.postService.getAllTop());
+        }
+        Optional<Integer> afterId = PageCursor.decode(after);
+        if (!afterId.isPresent()) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = PageCursor.limit(limit);
+        return PageCursor.page(this.postService.getTopPage(afterId.get(), pageSize), pageSize);
+    }
+
+    // Full-text search over post text, best matches first. Pages through the X-Next-Cursor header like the other listings
+    @GetMapping("/search")
+    public ResponseEntity<List<Post>> searchPosts(@RequestParam String q, @RequestParam(required = false) String after, @RequestParam(required = false) Integer limit) {
+        Optional<Integer> offset = PageCursor.decodeOffset(after);
+        if (!offset.isPresent()) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = PageCursor.limit(limit);
+        return PageCursor.rankedPage(this.postService.search(q, offset.get(), pageSize), offset.get(), pageSize);
+    }
+
+    // Posts and words with the most recent activity, scored in memory as likes, comments and new posts come in
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingPost>> getTrendingPosts(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(trendingService.getTrendingPosts(PageCursor.limit(limit)));
+    }
+
+    @GetMapping("/trending/terms")
+    public ResponseEntity<List<TrendingTerm>> getTrendingTerms(@RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(trendingService.getTrendingTerms(PageCursor.limit(limit)));
     }
 
     // Testing Method: Create/Add A Post
@@ -46,16 +128,33 @@ public class PostController {
         return ResponseEntity.ok(this.postService.upsert(post));
     }
 
+    // Creates new posts, each with any new comments nested in it, in one transaction
+    @PostMapping("/bulk")
+    public ResponseEntity createPosts(@RequestBody List<Post> posts) {
+        String problem = checkBulk(posts);
+        if (problem != null) {
+            return ResponseEntity.badRequest().body(problem);
+        }
+        return ResponseEntity.ok(postService.createAll(posts));
+    }
+
     // Testing Method: Get a Post By Id
     @GetMapping("/{id}")
-    public ResponseEntity<Post> getPostById(@PathVariable int id) {
-        Optional<Post> postOptional = postService.findById(id);
+    public ResponseEntity<Post> getPostById(@PathVariable int id, WebRequest request) {
+        String resource = "post:" + id;
+        if (ConditionalGet.notModified(request, versionStampService.getVersion(resource))) {
+            return null;
+        }
+        long loadedAt = versionStampService.now();
+        Optional<Post> postOptional = postService.getPostWithComments(id);
 
         if (!postOptional.isPresent()){
             return ResponseEntity.badRequest().build();
         }
 
-        return ResponseEntity.ok(postOptional.get());
+        OptionalLong version = versionStampService.record(resource, loadedAt,
+                new VersionStampService.Dependencies().post(postOptional.get()));
+        return ConditionalGet.withVersion(ResponseEntity.ok(postOptional.get()), version);
     }
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deletePost(@PathVariable Integer id) {
@@ -64,29 +163,25 @@ public class PostController {
     }
 
     @PutMapping("/{id}/like")
-    public ResponseEntity<Post> addPostLikes(@PathVariable int id) {
-        Optional<Post> postOptional = postService.findById(id);
-        if(!postOptional.isPresent()) {
+    public ResponseEntity<LikeCount> addPostLikes(@PathVariable int id) {
+        Optional<Integer> likes = likeCounterService.like(id);
+        if(!likes.isPresent()) {
             return ResponseEntity.badRequest().build();
         }
-        Post post = postOptional.get();
-        post.setLikes(post.getLikes() + 1);
-        return ResponseEntity.ok(postService.upsert(post));
+        return ResponseEntity.ok(new LikeCount(id, likes.get()));
     }
 
     @PutMapping("/{id}/unlike")
-    public ResponseEntity<Post> removePostLikes(@PathVariable int id) {
-        Optional<Post> postOptional = postService.findById(id);
-        if(!postOptional.isPresent()) {
+    public ResponseEntity<LikeCount> removePostLikes(@PathVariable int id) {
+        Optional<Integer> likes = likeCounterService.unlike(id);
+        if(!likes.isPresent()) {
             return ResponseEntity.badRequest().build();
         }
-        Post post = postOptional.get();
-        post.setLikes(post.getLikes() - 1);
-        return ResponseEntity.ok(postService.upsert(post));
+        return ResponseEntity.ok(new LikeCount(id, likes.get()));
     }
     @PutMapping("editPost/{id}")
     public ResponseEntity<Post> editPost(@PathVariable int id, @RequestBody String editString) {
-        Optional<Post> postOptional = postService.findById(id);
+        Optional<Post> postOptional = postService.findByIdForUpdate(id);
         if(!postOptional.isPresent()){
             return ResponseEntity.badRequest().build();
         }
@@ -98,7 +193,7 @@ public class PostController {
 
     @PutMapping("editPost/{id}/image")
     public ResponseEntity<Post> editPostByUrl(@PathVariable int id, @RequestBody String editString) {
-        Optional<Post> postOptional = postService.findById(id);
+        Optional<Post> postOptional = postService.findByIdForUpdate(id);
         if(!postOptional.isPresent()){
             return ResponseEntity.badRequest().build();
         }
@@ -108,14 +203,53 @@ public class PostController {
         return ResponseEntity.ok(this.postService.upsert(newPost));
     }
 
+    // The comment is saved under its parent, so it has to be new
     @PostMapping("{id}/comment")
     public ResponseEntity createComment(@PathVariable int id, @RequestBody Post comment) {
+        if (comment.getId() != 0) {
+            return ResponseEntity.badRequest().body("Only new comments, without an id, can be added to a post.");
+        }
         Optional<Post> parentPostOpt = postService.findById(id);
         if (!parentPostOpt.isPresent()) {
             return ResponseEntity.badRequest().body("The parent post could not be found, please enter a valid parent post ID.");
         }
-        Post savedComment = postService.upsert(comment);
-        return ResponseEntity.ok(postService.addComment(parentPostOpt.get(), savedComment));
+        if (!parentPostOpt.get().canHaveReplies()) {
+            return ResponseEntity.badRequest().body("Replies can be nested at most " + Post.MAX_DEPTH + " levels deep.");
+        }
+        return ResponseEntity.ok(postService.addComment(parentPostOpt.get(), comment));
+    }
+
+    // Direct comments only, as summaries with the number of their replies. The replies of a comment are its own page
+    @GetMapping("/{id}/comments")
+    public ResponseEntity<StreamingResponseBody> getComments(@PathVariable int id, @RequestParam(required = false) String after,
+                                                             @RequestParam(required = false) Integer limit) {
+        Optional<Integer> afterId = PageCursor.decodeAscending(after);
+        if (!afterId.isPresent()) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = PageCursor.limit(limit);
+        List<PostSummary> page = summaryService.getCommentPage(id, afterId.get(), pageSize);
+        if (page.isEmpty() && !postService.findById(id).isPresent()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return PageCursor.summaryPage(page, pageSize).contentType(MediaType.APPLICATION_JSON)
+                .body(out -> summaryService.writePosts(page, out));
+    }
+
+    @PostMapping("{id}/comments")
+    public ResponseEntity createComments(@PathVariable int id, @RequestBody List<Post> comments) {
+        String problem = checkBulk(comments);
+        if (problem != null) {
+            return ResponseEntity.badRequest().body(problem);
+        }
+        Optional<Post> parentPostOpt = postService.findById(id);
+        if (!parentPostOpt.isPresent()) {
+            return ResponseEntity.badRequest().body("The parent post could not be found, please enter a valid parent post ID.");
+        }
+        if (!parentPostOpt.get().canHaveReplies()) {
+            return ResponseEntity.badRequest().body("Replies can be nested at most " + Post.MAX_DEPTH + " levels deep.");
+        }
+        return ResponseEntity.ok(postService.addComments(parentPostOpt.get(), comments));
     }
 
     @DeleteMapping("{postId}/comments/{commentId}")
@@ -131,4 +265,25 @@ public class PostController {
         return ResponseEntity.ok(postService.deleteComment(postOptional.get(), commentOptional.get()));
     }
 
+    // Null if the posts can be bulk created, otherwise what is wrong with them. Nested comments count towards the size
+    private static String checkBulk(List<Post> posts) {
+        if (posts == null || posts.isEmpty()) {
+            return "Nothing to create, send a list of new posts.";
+        }
+        int count = 0;
+        List<Post> pending = new ArrayList<>(posts);
+        while (!pending.isEmpty()) {
+            Post post = pending.remove(pending.size() - 1);
+            if (post == null || post.getId() != 0) {
+                return "Bulk creation only accepts new posts, without an id.";
+            }
+            if (++count > PostService.MAX_BULK_SIZE) {
+                return "At most " + PostService.MAX_BULK_SIZE + " posts and comments can be created at once.";
+            }
+            if (post.getComments() != null) {
+                pending.addAll(post.getComments());
+            }
+        }
+        return null;
+    }
 }
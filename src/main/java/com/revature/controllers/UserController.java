@@ -1,27 +1,51 @@
 package com.revature.controllers;
 
+import com.revature.dtos.UsernameSuggestion;
 import com.revature.models.Post;
 import com.revature.models.PostType;
 import com.revature.models.User;
+import com.revature.services.FeedService;
+import com.revature.services.FeedVersionService;
+import com.revature.services.LiveFeedService;
 import com.revature.services.PostService;
+import com.revature.services.SummaryService;
 import com.revature.services.UserService;
+import com.revature.services.VersionStampService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/users")
-@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:3000", "http://flutterdeployedbucket.s3-website-us-east-1.amazonaws.com"}, allowCredentials = "true")
+@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:3000", "http://flutterdeployedbucket.s3-website-us-east-1.amazonaws.com"}, allowCredentials = "true", exposedHeaders = PageCursor.NEXT_CURSOR_HEADER)
 public class UserController {
 
     private final UserService userService;
+    private final SummaryService summaryService;
+    private final FeedService feedService;
+    private final LiveFeedService liveFeedService;
+    private final VersionStampService versionStampService;
+    private final FeedVersionService feedVersionService;
 
-
-    public UserController(UserService userService) {
+    public UserController(UserService userService, SummaryService summaryService, FeedService feedService,
+                          LiveFeedService liveFeedService, VersionStampService versionStampService,
+                          FeedVersionService feedVersionService) {
         this.userService = userService;
+        this.summaryService = summaryService;
+        this.feedService = feedService;
+        this.liveFeedService = liveFeedService;
+        this.versionStampService = versionStampService;
+        this.feedVersionService = feedVersionService;
     }
 
     // Testing Method: Adds a User
@@ -35,18 +59,37 @@ public class UserController {
     public ResponseEntity<List<User>> getAllUsers() {return ResponseEntity.ok(this.userService.getAll());
     }
 
+    // Streams every user as a summary without password or follower lists
+    @GetMapping("/summary")
+    public ResponseEntity<StreamingResponseBody> getAllUserSummaries() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(summaryService::writeAllUsers);
+    }
+
+    // Autocomplete, answered from the in-memory username index
+    @GetMapping("/search")
+    public ResponseEntity<List<UsernameSuggestion>> searchUsernames(@RequestParam String prefix, @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(userService.searchUsernames(prefix, PageCursor.limit(limit)));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable int id) {
-        Optional<User> userOptional = userService.findById(id);
+    public ResponseEntity<User> getUserById(@PathVariable int id, WebRequest request) {
+        String resource = "user:" + id;
+        if (ConditionalGet.notModified(request, versionStampService.getVersion(resource))) {
+            return null;
+        }
+        long loadedAt = versionStampService.now();
+        Optional<User> userOptional = userService.getProfile(id);
         if (!userOptional.isPresent()) {
             return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(userOptional.get());
+        OptionalLong version = versionStampService.record(resource, loadedAt,
+                new VersionStampService.Dependencies().profile(userOptional.get()));
+        return ConditionalGet.withVersion(ResponseEntity.ok(userOptional.get()), version);
     }
 
     @GetMapping("/user/{username}")
     public ResponseEntity<User> findByUsername(@PathVariable String username) {
-        Optional<User> userOptional = userService.findByUsername(username);
+        Optional<User> userOptional = userService.findByUsername(username).flatMap(user -> userService.getProfile(user.getId()));
         if(!userOptional.isPresent()){
             return ResponseEntity.badRequest().build();
         }
@@ -63,47 +106,36 @@ public class UserController {
 
     @PutMapping("/{id}/password")
     public ResponseEntity<User> editPassword(@PathVariable int id, @RequestBody String editString) {
-        Optional<User> userOptional = userService.findById(id);
+        Optional<User> userOptional = userService.findByIdForUpdate(id);
         if(!userOptional.isPresent()){
             return ResponseEntity.badRequest().build();
         }
-        User newUser = userOptional.get();
-        newUser.setPassword(editString);
-
-        return ResponseEntity.ok(this.userService.save(newUser));
+        return ResponseEntity.ok(this.userService.changePassword(userOptional.get(), editString));
     }
 
     @PutMapping("/{id}/email")
     public ResponseEntity<User> editEmail(@PathVariable int id, @RequestBody String editString) {
-        Optional<User> userExist = userService.findByEmail(editString);
-
-        if(userExist.isPresent()){
+        if(userService.isEmailTaken(editString)){
             return ResponseEntity.badRequest().build();
         }
 
-        Optional<User> userOptional = userService.findById(id);
+        Optional<User> userOptional = userService.findByIdForUpdate(id);
         if(!userOptional.isPresent()){
             return ResponseEntity.badRequest().build();
         }
         User newUser = userOptional.get();
         newUser.setEmail(editString);
 
-        return ResponseEntity.ok(this.userService.save(newUser));
+        return saveUnique(newUser);
     }
 
     @PutMapping("/{id}/username")
     public ResponseEntity<User> editUsername(@PathVariable int id, @RequestBody String editString) {
-        Optional<User> userExist = userService.findByUsername(editString);
-
-        if(userExist.isPresent()){
+        if(userService.isUsernameTaken(editString)){
             return ResponseEntity.badRequest().build();
         }
 
-        if(!(this.userService.findByUsername(editString)).isEmpty()){
-            return ResponseEntity.badRequest().build();
-        }
-
-        Optional<User> userOptional = userService.findById(id);
+        Optional<User> userOptional = userService.findByIdForUpdate(id);
         if(!userOptional.isPresent()){
             return ResponseEntity.badRequest().build();
         }
@@ -111,19 +143,27 @@ public class UserController {
         newUser.setUsername(editString);
 
 
-        return ResponseEntity.ok(this.userService.save(newUser));
+        return saveUnique(newUser);
+    }
+
+    // The taken checks only see this node's index, the unique constraints catch a name taken on another node
+    private ResponseEntity<User> saveUnique(User user) {
+        try {
+            return ResponseEntity.ok(this.userService.save(user));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @PutMapping("/{id}/profileImage")
-    @Transactional
     public ResponseEntity<User> updateImageUrl(@PathVariable int id, @RequestBody String imageUrl) {
-        Optional<User> userOptional = userService.findById(id);
+        Optional<User> userOptional = userService.findByIdForUpdate(id);
         if (!userOptional.isPresent()) {
             return ResponseEntity.badRequest().build();
         }
         User newUser = userOptional.get();
         newUser.setImageUrl(imageUrl);
-        return ResponseEntity.ok(newUser);
+        return ResponseEntity.ok(this.userService.save(newUser));
     }
 
     @PutMapping("/{id}/follow")
@@ -153,25 +193,117 @@ public class UserController {
 
         return ResponseEntity.ok(userService.removeFollower(followedUserOpt.get(), followerOpt.get()));
     }
+    @GetMapping("/{id}/followers/count")
+    public ResponseEntity<Integer> countFollowers(@PathVariable int id) {
+        return ResponseEntity.ok(userService.countFollowers(id));
+    }
+
+    @GetMapping("/{id}/following/count")
+    public ResponseEntity<Integer> countFollowing(@PathVariable int id) {
+        return ResponseEntity.ok(userService.countFollowing(id));
+    }
+
+    @GetMapping("/{id}/follows/{followedId}")
+    public ResponseEntity<Boolean> isFollowing(@PathVariable int id, @PathVariable int followedId) {
+        return ResponseEntity.ok(userService.isFollowing(id, followedId));
+    }
+
     @GetMapping("/{id}/feed")
-    public ResponseEntity<List<Post>> getFeedForUser(@PathVariable int id){
+    public ResponseEntity<List<Post>> getFeedForUser(@PathVariable int id, @RequestParam(required = false) String after, @RequestParam(required = false) Integer limit, WebRequest request){
+        boolean paged = PageCursor.isPaged(after, limit);
+        Optional<Integer> afterId = PageCursor.decode(after);
+        if(!afterId.isPresent()) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = PageCursor.limit(limit);
+        String resource = paged ? feedResource(id, afterId.get(), pageSize) : "feed:" + id;
+        if (ConditionalGet.notModified(request, versionStampService.getVersion(resource))) {
+            return null;
+        }
+        long loadedAt = versionStampService.now();
         Optional<User> optionalUser = userService.findById(id);
         if(!optionalUser.isPresent()){
             return ResponseEntity.badRequest().build();
         }
+        if(paged) {
+            List<Post> page = userService.getFeedPageForUser(optionalUser.get(), afterId.get(), pageSize);
+            OptionalLong version = versionStampService.record(resource, loadedAt, feedVersionService.dependencies(id, page));
+            return ConditionalGet.withVersion(PageCursor.page(page, pageSize), version);
+        }
         List<Post> feed = userService.getFeedForUser(optionalUser.get());
         if(feed == null) {
            return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(feed);
+        OptionalLong version = versionStampService.record(resource, loadedAt, feedVersionService.dependencies(id, feed));
+        return ConditionalGet.withVersion(ResponseEntity.ok(feed), version);
+    }
+
+    // Same pages as the paged feed, assembled on the feed pool while the servlet thread is released
+    @GetMapping("/{id}/feed/async")
+    public CompletableFuture<ResponseEntity<List<Post>>> getFeedForUserAsync(@PathVariable int id, @RequestParam(required = false) String after, @RequestParam(required = false) Integer limit, WebRequest request) {
+        Optional<Integer> afterId = PageCursor.decode(after);
+        if(!afterId.isPresent()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        int pageSize = PageCursor.limit(limit);
+        String resource = feedResource(id, afterId.get(), pageSize);
+        if (ConditionalGet.notModified(request, versionStampService.getVersion(resource))) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+        }
+        long loadedAt = versionStampService.now();
+        Optional<User> optionalUser = userService.findById(id);
+        if(!optionalUser.isPresent()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return feedService.getFeedPage(id, afterId.get(), pageSize).thenApply(page -> {
+            OptionalLong version = versionStampService.record(resource, loadedAt, feedVersionService.dependencies(id, page));
+            return ConditionalGet.withVersion(PageCursor.page(page, pageSize), version);
+        });
+    }
+
+    private static String feedResource(int userId, int afterId, int limit) {
+        return "feed:" + userId + ":" + afterId + ":" + limit;
+    }
+
+    // Server-sent events for new posts in the feed, and for comments and likes on the listed posts and the pushed ones
+    @GetMapping(path = "/{id}/feed/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getLiveFeedForUser(@PathVariable int id, @RequestParam(required = false) List<Integer> posts) {
+        if(!userService.findById(id).isPresent()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(liveFeedService.subscribe(id, posts));
+    }
+
+    @GetMapping("/{id}/feed/summary")
+    public ResponseEntity<StreamingResponseBody> getFeedSummariesForUser(@PathVariable int id) {
+        if(!userService.findById(id).isPresent()){
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(out -> summaryService.writeFeed(id, out));
+    }
+
+    @GetMapping("/{id}/posts/summary")
+    public ResponseEntity<StreamingResponseBody> getPostSummariesByAUser(@PathVariable int id) {
+        if(!userService.findById(id).isPresent()){
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(out -> summaryService.writePostsByUser(id, out));
     }
 
     @GetMapping("/{id}/posts")
-    public ResponseEntity<List<Post>> getAllPostsByAUser(@PathVariable int id) {
+    public ResponseEntity<List<Post>> getAllPostsByAUser(@PathVariable int id, @RequestParam(required = false) String after, @RequestParam(required = false) Integer limit) {
         Optional<User> optionalUser = userService.findById(id);
         if(!optionalUser.isPresent()){
             return ResponseEntity.badRequest().build();
         }
+        if(PageCursor.isPaged(after, limit)) {
+            Optional<Integer> afterId = PageCursor.decode(after);
+            if(!afterId.isPresent()) {
+                return ResponseEntity.badRequest().build();
+            }
+            int pageSize = PageCursor.limit(limit);
+            return PageCursor.page(userService.getPostsPageByAUser(optionalUser.get(), afterId.get(), pageSize), pageSize);
+        }
         Optional<List<Post>> postList = userService.getAllPostsByAUser(optionalUser.get());
         if (!postList.isPresent()) {
             return ResponseEntity.ok().build();
@@ -0,0 +1,57 @@
+package com.revature.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// The primary pool from spring.datasource, plus a read-only pool per flutter.replicas.urls entry routed by ReplicaRouter
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRouter replicaRouter(DataSourceProperties properties,
+                                       @Value("${flutter.replicas.urls}") List<String> urls,
+                                       @Value("${flutter.replicas.lag-query}") String lagQuery,
+                                       @Value("${flutter.replicas.max-lag-ms}") long maxLagMillis,
+                                       @Value("${flutter.replicas.lag-check-interval-ms}") long lagCheckIntervalMillis,
+                                       @Value("${flutter.replicas.sticky-clients}") long stickyClients,
+                                       @Value("${flutter.versions.settle-ms}") long settleMillis) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaRouter(replicas, lagQuery, maxLagMillis, lagCheckIntervalMillis, stickyClients, settleMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRouter replicaRouter) {
+        if (!replicaRouter.hasReplicas()) {
+            return primaryDataSource;
+        }
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replicaRouter));
+    }
+}
@@ -0,0 +1,58 @@
+package com.revature.datasource;
+
+import com.revature.services.TokenService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+
+// Lets GET and HEAD requests read from replicas unless their client wrote something recently
+@Component
+public class ReplicaReadFilter extends OncePerRequestFilter {
+
+    private final ReplicaRouter replicaRouter;
+    private final TokenService tokenService;
+
+    public ReplicaReadFilter(ReplicaRouter replicaRouter, TokenService tokenService) {
+        this.replicaRouter = replicaRouter;
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!replicaRouter.hasReplicas()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String client = client(request);
+        boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        ReplicaRouter.allowReplicaReads(read && !replicaRouter.isSticky(client));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRouter.clear();
+            if (!read) {
+                replicaRouter.recordWrite(client);
+            }
+        }
+    }
+
+    private String client(HttpServletRequest request) {
+        int userId = tokenService.verify(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (userId >= 0) {
+            return "user:" + userId;
+        }
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            return "session:" + session.getId();
+        }
+        return "address:" + request.getRemoteAddr();
+    }
+}
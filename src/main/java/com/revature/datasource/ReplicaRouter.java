@@ -0,0 +1,177 @@
+package com.revature.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Routes read-only transactions of GET and HEAD requests to replicas that are within max-lag-ms of the primary
+public class ReplicaRouter implements HibernatePropertiesCustomizer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    // Whether the current thread may read from a replica, set per request by ReplicaReadFilter
+    private static final ThreadLocal<Boolean> REPLICA_READS = new ThreadLocal<>();
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private final long staleMillis;
+    private final Cache<String, Boolean> writers;
+    private final Executor afterStaleWindow;
+
+    public ReplicaRouter(List<DataSource> replicaDataSources, String lagQuery, long maxLagMillis,
+                         long lagCheckIntervalMillis, long stickyClients, long settleMillis) {
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            replicas.add(new Replica("replica-" + i, replicaDataSources.get(i)));
+        }
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLagMillis;
+        this.staleMillis = maxLagMillis + lagCheckIntervalMillis;
+        // Conditional GETs trust a response once its data settled for settle-ms, a replica must be at least that recent
+        if (!replicas.isEmpty() && staleMillis > settleMillis) {
+            throw new IllegalStateException("flutter.replicas.max-lag-ms plus lag-check-interval-ms must not exceed "
+                    + "flutter.versions.settle-ms");
+        }
+        this.writers = Caffeine.newBuilder()
+                .maximumSize(stickyClients)
+                .expireAfterWrite(Duration.ofMillis(staleMillis))
+                .build();
+        this.afterStaleWindow = CompletableFuture.delayedExecutor(staleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        if (hasReplicas()) {
+            // Holding a connection for the whole request would route every transaction in it like the first one
+            hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                    PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+        }
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    // Runs the read on the primary even where a replica would be used, for reads whose result is kept for longer
+    // than a replica may lag
+    public static <T> T onPrimary(Supplier<T> read) {
+        Boolean previous = REPLICA_READS.get();
+        REPLICA_READS.set(false);
+        try {
+            return read.get();
+        } finally {
+            REPLICA_READS.set(previous);
+        }
+    }
+
+    // Runs the task once every replica in use has seen the writes made so far. Does nothing without replicas
+    public void afterReplicationLag(Runnable task) {
+        if (hasReplicas()) {
+            CompletableFuture.runAsync(task, afterStaleWindow).exceptionally(e -> {
+                log.warn("Task after replication lag failed", e);
+                return null;
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${flutter.replicas.lag-check-interval-ms}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            boolean available;
+            try {
+                Double lag = new JdbcTemplate(replica.dataSource).queryForObject(lagQuery, Double.class);
+                available = lag != null && lag <= maxLagMillis;
+                if (!available && (replica.available || !replica.checked)) {
+                    log.warn("{} is {} ms behind the primary, reading from the primary until it catches up", replica.name, lag);
+                }
+            } catch (DataAccessException e) {
+                available = false;
+                if (replica.available || !replica.checked) {
+                    log.warn("Could not check the lag of {}, reading from the primary until it answers", replica.name, e);
+                }
+            }
+            if (available && !replica.available) {
+                log.info("Reading from {}", replica.name);
+            }
+            replica.available = available;
+            replica.checked = true;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+    }
+
+    static void allowReplicaReads(boolean allowed) {
+        REPLICA_READS.set(allowed);
+    }
+
+    static void clear() {
+        REPLICA_READS.remove();
+    }
+
+    void recordWrite(String client) {
+        writers.put(client, Boolean.TRUE);
+    }
+
+    boolean isSticky(String client) {
+        return writers.getIfPresent(client) != null;
+    }
+
+    // Takes available replicas in turn
+    DataSource route(DataSource primary) {
+        if (!Boolean.TRUE.equals(REPLICA_READS.get()) || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary;
+        }
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (replica.available) {
+                return replica.dataSource;
+            }
+        }
+        return primary;
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean available;
+        // Only the scheduler thread checks
+        private boolean checked;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
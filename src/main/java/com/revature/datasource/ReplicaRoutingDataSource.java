@@ -0,0 +1,29 @@
+package com.revature.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Hands out connections to the primary or a replica, as ReplicaRouter decides when the connection is taken
+class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReplicaRouter replicaRouter;
+
+    ReplicaRoutingDataSource(DataSource primary, ReplicaRouter replicaRouter) {
+        this.primary = primary;
+        this.replicaRouter = replicaRouter;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return replicaRouter.route(primary).getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return replicaRouter.route(primary).getConnection(username, password);
+    }
+}
@@ -0,0 +1,21 @@
+package com.revature.dtos;
+
+// Projection of a user for list views, never carries the password or the follower graph, only its counts
+public interface AuthorSummary {
+
+    int getId();
+
+    String getUsername();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getImageUrl();
+
+    int getFollowerCount();
+
+    int getFollowingCount();
+
+    int getPostCount();
+}
@@ -0,0 +1,51 @@
+package com.revature.dtos;
+
+// How many lookups of one kind ran against the database and how many were served by a lookup already in flight
+public class CoalescingStatistics {
+
+    private String name;
+    private long executions;
+    private long collapsed;
+
+    public CoalescingStatistics() {
+    }
+
+    public CoalescingStatistics(String name, long executions, long collapsed) {
+        this.name = name;
+        this.executions = executions;
+        this.collapsed = collapsed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getExecutions() {
+        return executions;
+    }
+
+    public void setExecutions(long executions) {
+        this.executions = executions;
+    }
+
+    public long getCollapsed() {
+        return collapsed;
+    }
+
+    public void setCollapsed(long collapsed) {
+        this.collapsed = collapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingStatistics{" +
+                "name='" + name + '\'' +
+                ", executions=" + executions +
+                ", collapsed=" + collapsed +
+                '}';
+    }
+}
@@ -0,0 +1,130 @@
+package com.revature.dtos;
+
+// Latency percentiles (milliseconds) and SQL statement counts per request of one endpoint, as reported by the metrics endpoint
+public class EndpointStatistics {
+
+    private String endpoint;
+    private long requests;
+    private double p50Millis;
+    private double p99Millis;
+    private double p999Millis;
+    private double maxMillis;
+    private long statementsP50;
+    private long statementsP99;
+    private long statementsMax;
+    private long statementAlarms;
+
+    public EndpointStatistics() {
+    }
+
+    public EndpointStatistics(String endpoint, long requests, double p50Millis, double p99Millis, double p999Millis,
+                              double maxMillis, long statementsP50, long statementsP99, long statementsMax,
+                              long statementAlarms) {
+        this.endpoint = endpoint;
+        this.requests = requests;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.p999Millis = p999Millis;
+        this.maxMillis = maxMillis;
+        this.statementsP50 = statementsP50;
+        this.statementsP99 = statementsP99;
+        this.statementsMax = statementsMax;
+        this.statementAlarms = statementAlarms;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public void setP50Millis(double p50Millis) {
+        this.p50Millis = p50Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public void setP99Millis(double p99Millis) {
+        this.p99Millis = p99Millis;
+    }
+
+    public double getP999Millis() {
+        return p999Millis;
+    }
+
+    public void setP999Millis(double p999Millis) {
+        this.p999Millis = p999Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(double maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    public long getStatementsP50() {
+        return statementsP50;
+    }
+
+    public void setStatementsP50(long statementsP50) {
+        this.statementsP50 = statementsP50;
+    }
+
+    public long getStatementsP99() {
+        return statementsP99;
+    }
+
+    public void setStatementsP99(long statementsP99) {
+        this.statementsP99 = statementsP99;
+    }
+
+    public long getStatementsMax() {
+        return statementsMax;
+    }
+
+    public void setStatementsMax(long statementsMax) {
+        this.statementsMax = statementsMax;
+    }
+
+    public long getStatementAlarms() {
+        return statementAlarms;
+    }
+
+    public void setStatementAlarms(long statementAlarms) {
+        this.statementAlarms = statementAlarms;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointStatistics{" +
+                "endpoint='" + endpoint + '\'' +
+                ", requests=" + requests +
+                ", p50Millis=" + p50Millis +
+                ", p99Millis=" + p99Millis +
+                ", p999Millis=" + p999Millis +
+                ", maxMillis=" + maxMillis +
+                ", statementsP50=" + statementsP50 +
+                ", statementsP99=" + statementsP99 +
+                ", statementsMax=" + statementsMax +
+                ", statementAlarms=" + statementAlarms +
+                '}';
+    }
+}
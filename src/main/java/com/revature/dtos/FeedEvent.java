@@ -0,0 +1,104 @@
+package com.revature.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Change to a post pushed to live feed connections, the type is the SSE event name
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FeedEvent {
+
+    public static final String POST = "post";
+    public static final String COMMENT = "comment";
+    public static final String LIKES = "likes";
+
+    private String type;
+    private int postId;
+    private Integer authorId;
+    private Integer commentId;
+    private String text;
+    private String imageUrl;
+    private Integer likes;
+
+    public FeedEvent() {
+    }
+
+    public FeedEvent(String type, int postId, Integer authorId, Integer commentId, String text, String imageUrl, Integer likes) {
+        this.type = type;
+        this.postId = postId;
+        this.authorId = authorId;
+        this.commentId = commentId;
+        this.text = text;
+        this.imageUrl = imageUrl;
+        this.likes = likes;
+    }
+
+    @JsonIgnore
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getPostId() {
+        return postId;
+    }
+
+    public void setPostId(int postId) {
+        this.postId = postId;
+    }
+
+    public Integer getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Integer authorId) {
+        this.authorId = authorId;
+    }
+
+    public Integer getCommentId() {
+        return commentId;
+    }
+
+    public void setCommentId(Integer commentId) {
+        this.commentId = commentId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public Integer getLikes() {
+        return likes;
+    }
+
+    public void setLikes(Integer likes) {
+        this.likes = likes;
+    }
+
+    @Override
+    public String toString() {
+        return "FeedEvent{" +
+                "type='" + type + '\'' +
+                ", postId=" + postId +
+                ", authorId=" + authorId +
+                ", commentId=" + commentId +
+                ", text='" + text + '\'' +
+                ", imageUrl='" + imageUrl + '\'' +
+                ", likes=" + likes +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package com.revature.dtos;
+
+// Response of the like/unlike endpoints, carries the same id and likes fields as a Post
+public class LikeCount {
+
+    private int id;
+    private int likes;
+
+    public LikeCount() {
+    }
+
+    public LikeCount(int id, int likes) {
+        this.id = id;
+        this.likes = likes;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getLikes() {
+        return likes;
+    }
+
+    public void setLikes(int likes) {
+        this.likes = likes;
+    }
+
+    @Override
+    public String toString() {
+        return "LikeCount{" +
+                "id=" + id +
+                ", likes=" + likes +
+                '}';
+    }
+}
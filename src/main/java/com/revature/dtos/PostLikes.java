@@ -0,0 +1,9 @@
+package com.revature.dtos;
+
+// Stored like count of a post and the id of its thread's top level post, which trending credits
+public interface PostLikes {
+
+    int getLikes();
+
+    int getThreadId();
+}
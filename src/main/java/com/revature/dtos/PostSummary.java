@@ -0,0 +1,29 @@
+package com.revature.dtos;
+
+import com.revature.models.PostType;
+
+// Projection of a post for list views: no comments, and only the public fields of its author
+public interface PostSummary {
+
+    int getId();
+
+    String getText();
+
+    String getImageUrl();
+
+    PostType getPostType();
+
+    int getLikes();
+
+    int getCommentCount();
+
+    Integer getAuthorId();
+
+    String getAuthorUsername();
+
+    String getAuthorFirstName();
+
+    String getAuthorLastName();
+
+    String getAuthorImageUrl();
+}
@@ -0,0 +1,40 @@
+package com.revature.dtos;
+
+// Entry of the trending list, the score is the decayed weight of recent activity as of the request
+public class TrendingPost {
+
+    private int id;
+    private double score;
+
+    public TrendingPost() {
+    }
+
+    public TrendingPost(int id, double score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    @Override
+    public String toString() {
+        return "TrendingPost{" +
+                "id=" + id +
+                ", score=" + score +
+                '}';
+    }
+}
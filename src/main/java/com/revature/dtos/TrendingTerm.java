@@ -0,0 +1,40 @@
+package com.revature.dtos;
+
+// Entry of the trending list, the score is the decayed weight of recent activity as of the request
+public class TrendingTerm {
+
+    private String term;
+    private double score;
+
+    public TrendingTerm() {
+    }
+
+    public TrendingTerm(String term, double score) {
+        this.term = term;
+        this.score = score;
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    public void setTerm(String term) {
+        this.term = term;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    @Override
+    public String toString() {
+        return "TrendingTerm{" +
+                "term='" + term + '\'' +
+                ", score=" + score +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package com.revature.dtos;
+
+// Result of the username search, served from the in-memory index without loading users
+public class UsernameSuggestion {
+
+    private int id;
+    private String username;
+
+    public UsernameSuggestion() {
+    }
+
+    public UsernameSuggestion(int id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    @Override
+    public String toString() {
+        return "UsernameSuggestion{" +
+                "id=" + id +
+                ", username='" + username + '\'' +
+                '}';
+    }
+}
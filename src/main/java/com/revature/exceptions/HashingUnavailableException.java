@@ -0,0 +1,25 @@
+package com.revature.exceptions;
+
+// Exception to be thrown by the PasswordHashingService when its queue is full
+// Will be handled by a Spring Exception Handler to return a 503
+public class HashingUnavailableException extends RuntimeException {
+
+    public HashingUnavailableException() {
+    }
+
+    public HashingUnavailableException(String message) {
+        super(message);
+    }
+
+    public HashingUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public HashingUnavailableException(Throwable cause) {
+        super(cause);
+    }
+
+    public HashingUnavailableException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,119 @@
+package com.revature.metrics;
+
+import com.revature.dtos.EndpointStatistics;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency and SQL statement count histograms per controller method, logging requests over the statement alarm
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+    private final int statementAlarm;
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    public RequestMetricsFilter(@Value("${flutter.metrics.statement-alarm}") int statementAlarm) {
+        this.statementAlarm = statementAlarm;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        SqlStatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = SqlStatementCounter.stop();
+            if (request.isAsyncStarted()) {
+                // Streamed responses are timed until the stream is written out
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, start, statements);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, start, statements);
+            }
+        }
+    }
+
+    public List<EndpointStatistics> getStatistics() {
+        List<EndpointStatistics> statistics = new ArrayList<>();
+        endpoints.forEach((endpoint, metrics) -> statistics.add(metrics.toStatistics(endpoint)));
+        statistics.sort(Comparator.comparing(EndpointStatistics::getEndpoint));
+        return statistics;
+    }
+
+    private void record(HttpServletRequest request, long start, int statements) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null || !(request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod)) {
+            return;
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        String endpoint = request.getMethod() + " " + pattern;
+        EndpointMetrics metrics = endpoints.computeIfAbsent(endpoint, e -> new EndpointMetrics());
+        metrics.latencyMicros.recordValue(micros);
+        metrics.statements.recordValue(statements);
+        if (statements > statementAlarm) {
+            metrics.alarms.increment();
+            log.warn("{} issued {} SQL statements, above the alarm threshold of {}", endpoint, statements, statementAlarm);
+        }
+    }
+
+    private static class EndpointMetrics {
+
+        private final Histogram latencyMicros = new ConcurrentHistogram(3);
+        private final Histogram statements = new ConcurrentHistogram(3);
+        private final LongAdder alarms = new LongAdder();
+
+        EndpointStatistics toStatistics(String endpoint) {
+            // Copies, so every percentile comes from the same set of requests
+            Histogram latency = latencyMicros.copy();
+            Histogram sql = statements.copy();
+            return new EndpointStatistics(endpoint, latency.getTotalCount(),
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                    millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()),
+                    sql.getValueAtPercentile(50), sql.getValueAtPercentile(99), sql.getMaxValue(), alarms.sum());
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
@@ -4,22 +4,76 @@ import java.util.List;
 
 import javax.persistence.*;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
+// Comments keep their parent, root, depth and the path of ids above them, so a thread is one index range
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+		@Index(name = "posts_parent_id_id_idx", columnList = "parent_id, id"),
+		@Index(name = "posts_root_id_path_idx", columnList = "root_id, path")})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Post.CACHE_REGION)
+@BatchSize(size = 50)
 public class Post {
 
+	public static final String ID_SEQUENCE = "posts_seq";
+	public static final String CACHE_REGION = "posts";
+	// Deepest level a reply can be at, the path column has room for that many ids
+	public static final int MAX_DEPTH = 100;
+
+	// Allocated in blocks of 50 per node, so new posts are inserted in JDBC batches. Feeds order posts by id, which
+	// follows creation time on each node but can put posts from different nodes up to a block out of order
 	@Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "post_ids")
+	@SequenceGenerator(name = "post_ids", sequenceName = ID_SEQUENCE, allocationSize = 50)
     private int id;
 	private String text;
 	private String imageUrl;
-	@OneToMany(cascade = CascadeType.ALL)
+	// Mapped by the comments' parent_id, which only the comments write
+	@OneToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+	@JoinColumn(name = "parent_id", insertable = false, updatable = false,
+			foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+	@OrderBy("id")
 	private List<Post> comments;
 	@ManyToOne
 	private User author;
 
 	private PostType postType;
+	// Owned by LikeCounterService, which applies like deltas in place. Entity updates never write it
+	@Column(updatable = false)
 	private int likes;
+	// Number of direct comments, owned by CounterService like likes
+	@Column(updatable = false)
+	@ColumnDefault("0")
+	private int commentCount;
+	// Set once when the post is inserted
+	@Column(name = "parent_id", updatable = false)
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private Integer parentId;
+	@Column(name = "root_id", updatable = false)
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private Integer rootId;
+	@Column(updatable = false)
+	@ColumnDefault("0")
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private int depth;
+	@Column(updatable = false, length = MAX_DEPTH * 10)
+	@ColumnDefault("''")
+	@JsonIgnore
+	private String path = "";
+	// The post a new comment is saved under, its thread columns are taken from it on insert
+	@Transient
+	@JsonIgnore
+	private Post parent;
+	// Set when some of the replies were cut from the loaded comment tree, see CommentTreeService
+	@Transient
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private boolean commentsTruncated;
 
 	public Post() {
 	}
@@ -99,6 +153,112 @@ public class Post {
 		this.likes = likes;
 	}
 
+	public boolean isCommentsTruncated() {
+		return commentsTruncated;
+	}
+
+	public void setCommentsTruncated(boolean commentsTruncated) {
+		this.commentsTruncated = commentsTruncated;
+	}
+
+	public int getCommentCount() {
+		return commentCount;
+	}
+
+	public void setCommentCount(int commentCount) {
+		this.commentCount = commentCount;
+	}
+
+	public Integer getParentId() {
+		return parentId;
+	}
+
+	public void setParentId(Integer parentId) {
+		this.parentId = parentId;
+	}
+
+	public Integer getRootId() {
+		return rootId;
+	}
+
+	public void setRootId(Integer rootId) {
+		this.rootId = rootId;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	@JsonIgnore
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	// Makes this new post a comment on parent once it is saved. The parent has to be saved first
+	public void attachTo(Post parent) {
+		this.parent = parent;
+	}
+
+	// The root of this post's replies
+	public int childRootId() {
+		return rootId == null ? id : rootId;
+	}
+
+	public boolean canHaveReplies() {
+		return depth < MAX_DEPTH;
+	}
+
+	// The path of this post's direct replies, and the start of the paths of all its replies
+	public String childPath() {
+		return path + pathSegment(id);
+	}
+
+	// Just past the paths of all of this post's replies
+	public String childPathEnd() {
+		return path + pathSegment(id + 1);
+	}
+
+	public static String pathSegment(int id) {
+		return String.format("%010d", id);
+	}
+
+	// Detached copy of the columns, without the comments. The author is copied without the follow lists
+	public Post copyWithoutComments() {
+		Post copy = new Post(getId(), getText(), getImageUrl(), null,
+				getAuthor() == null ? null : getAuthor().copyWithoutFollows(), getPostType(), getLikes());
+		copy.commentCount = getCommentCount();
+		copy.parentId = getParentId();
+		copy.rootId = getRootId();
+		copy.depth = getDepth();
+		copy.path = getPath();
+		return copy;
+	}
+
+	// Comments created along with this post are saved after it, and take their thread columns from it then
+	@PrePersist
+	void prePersist() {
+		commentCount = comments == null ? 0 : comments.size();
+		if (comments != null) {
+			for (Post comment : comments) {
+				comment.attachTo(this);
+			}
+		}
+		if (parent != null) {
+			parentId = parent.getId();
+			rootId = parent.childRootId();
+			depth = parent.getDepth() + 1;
+			path = parent.childPath();
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "Post{" +
@@ -109,6 +269,9 @@ public class Post {
 				", author=" + author +
 				", postType=" + postType +
 				", likes=" + likes +
+				", commentCount=" + commentCount +
+				", parentId=" + parentId +
+				", depth=" + depth +
 				'}';
 	}
 }
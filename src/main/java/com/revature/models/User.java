@@ -1,16 +1,27 @@
 package com.revature.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "users_follower_count_idx", columnList = "followerCount"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 public class User {
 
+    public static final String ID_SEQUENCE = "users_seq";
+    public static final String CACHE_REGION = "users";
+    // Both sides of the follow join table
+    public static final String FOLLOWS_CACHE_REGION = "follows";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_ids")
+    @SequenceGenerator(name = "user_ids", sequenceName = ID_SEQUENCE, allocationSize = 50)
     private int id;
     @Column(unique = true)
     private String email;
@@ -20,15 +31,29 @@ public class User {
     @Column(unique = true)
     private String username;
     @ManyToMany(cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = FOLLOWS_CACHE_REGION)
     @JsonIgnoreProperties({"following", "followers"})
     @JoinTable(name = "follower_following",
             joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"),
-            inverseJoinColumns = @JoinColumn(name = "follower_id", referencedColumnName = "id"))
+            inverseJoinColumns = @JoinColumn(name = "follower_id", referencedColumnName = "id"),
+            uniqueConstraints = @UniqueConstraint(name = "follower_following_user_id_follower_id_key",
+                    columnNames = {"user_id", "follower_id"}))
     private List<User> followers;
     @ManyToMany(mappedBy = "followers")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = FOLLOWS_CACHE_REGION)
     @JsonIgnoreProperties({"following", "followers"})
     private List<User> following;
     private String imageUrl;
+    // Owned by CounterService, entity updates never write them. Only top level posts count
+    @Column(updatable = false)
+    @ColumnDefault("0")
+    private int followerCount;
+    @Column(updatable = false)
+    @ColumnDefault("0")
+    private int followingCount;
+    @Column(updatable = false)
+    @ColumnDefault("0")
+    private int postCount;
 
     public User() {
     }
@@ -125,6 +150,41 @@ public class User {
         this.imageUrl = imageUrl;
     }
 
+    public int getFollowerCount() {
+        return followerCount;
+    }
+
+    public void setFollowerCount(int followerCount) {
+        this.followerCount = followerCount;
+    }
+
+    public int getFollowingCount() {
+        return followingCount;
+    }
+
+    public void setFollowingCount(int followingCount) {
+        this.followingCount = followingCount;
+    }
+
+    public int getPostCount() {
+        return postCount;
+    }
+
+    public void setPostCount(int postCount) {
+        this.postCount = postCount;
+    }
+
+    // Detached copy of the columns, without the follow lists
+    public User copyWithoutFollows() {
+        // Through the getters, this may be a lazy proxy
+        User copy = new User(getId(), getEmail(), getPassword(), getFirstName(), getLastName(), getUsername(), null, null,
+                getImageUrl());
+        copy.followerCount = getFollowerCount();
+        copy.followingCount = getFollowingCount();
+        copy.postCount = getPostCount();
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "User{" +
@@ -137,6 +197,9 @@ public class User {
                 ", followers=" + followers +
                 ", following=" + following +
                 ", imageUrl='" + imageUrl + '\'' +
+                ", followerCount=" + followerCount +
+                ", followingCount=" + followingCount +
+                ", postCount=" + postCount +
                 '}';
     }
 }
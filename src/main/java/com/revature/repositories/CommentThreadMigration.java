@@ -0,0 +1,79 @@
+package com.revature.repositories;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+// Moves comment links out of the old posts_comments join table and fills in the thread columns of unthreaded comments
+@Component
+@DependsOn("entityManagerFactory")
+public class CommentThreadMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentThreadMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String posts;
+    private final String joinTable;
+
+    public CommentThreadMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                  @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        String prefix = schema.isEmpty() ? "" : schema + ".";
+        this.posts = prefix + "posts";
+        this.joinTable = prefix + "posts_comments";
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (hasJoinTable()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                int copied = jdbcTemplate.update("update " + posts + " p set parent_id = (select c.post_id from "
+                        + joinTable + " c where c.comments_id = p.id) where p.parent_id is null and p.id in "
+                        + "(select comments_id from " + joinTable + ")");
+                jdbcTemplate.execute("drop table " + joinTable);
+                log.info("Copied the parents of {} comments out of {} and dropped it", copied, joinTable);
+            });
+        }
+
+        String fillLevel = "update " + posts + " p set "
+                + "depth = (select q.depth + 1 from " + posts + " q where q.id = p.parent_id), "
+                + "root_id = (select coalesce(q.root_id, q.id) from " + posts + " q where q.id = p.parent_id), "
+                + "path = (select q.path || lpad(cast(q.id as varchar(10)), 10, '0') from " + posts
+                + " q where q.id = p.parent_id) "
+                + "where p.parent_id is not null and p.root_id is null and exists (select 1 from " + posts
+                + " q where q.id = p.parent_id and (q.parent_id is null or q.root_id is not null))";
+        int levels = 0;
+        int filled = 0;
+        int updated;
+        while ((updated = jdbcTemplate.update(fillLevel)) > 0) {
+            levels++;
+            filled += updated;
+        }
+        if (filled > 0) {
+            log.info("Filled in the threads of {} comments, {} levels deep", filled, levels);
+        }
+        Integer orphans = jdbcTemplate.queryForObject("select count(*) from " + posts
+                + " p where p.parent_id is not null and p.root_id is null", Integer.class);
+        if (orphans != null && orphans > 0) {
+            log.warn("{} comments have a parent that is missing or unthreaded and were left out of their threads", orphans);
+        }
+    }
+
+    private boolean hasJoinTable() {
+        try {
+            jdbcTemplate.queryForObject("select count(*) from " + joinTable + " where 1 = 0", Integer.class);
+            return true;
+        } catch (DataAccessException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.revature.repositories;
+
+import com.revature.models.Post;
+import com.revature.models.User;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+// Moves the id sequences past the highest existing ids before anything is inserted
+@Component
+public class IdSequenceInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+    private final String prefix;
+
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                                 @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.prefix = schema.isEmpty() ? "" : schema + ".";
+    }
+
+    @PostConstruct
+    public void initialize() {
+        align("users", User.ID_SEQUENCE);
+        align("posts", Post.ID_SEQUENCE);
+    }
+
+    private void align(String table, String sequence) {
+        Long highest = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + prefix + table, Long.class);
+        if (highest == null || highest == 0) {
+            return;
+        }
+        // Reading the sequence takes a value from it, the block starting there is never used
+        Long next = jdbcTemplate.queryForObject(dialect.getSequenceNextValString(prefix + sequence), Long.class);
+        if (next != null && next <= highest) {
+            jdbcTemplate.execute("alter sequence " + prefix + sequence + " restart with " + (highest + 1));
+            log.info("Moved {} from {} past the highest id in {}, {}", sequence, next, table, highest);
+        }
+    }
+}
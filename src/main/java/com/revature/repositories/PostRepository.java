@@ -1,18 +1,108 @@
 package com.revature.repositories;
 
+import com.revature.dtos.PostLikes;
+import com.revature.dtos.PostSummary;
 import com.revature.models.PostType;
 import com.revature.models.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.revature.models.Post;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface PostRepository extends JpaRepository<Post, Integer>{
 
+    String SUMMARY_SELECT = "select p.id as id, p.text as text, p.imageUrl as imageUrl, p.postType as postType, p.likes as likes, "
+            + "p.commentCount as commentCount, a.id as authorId, a.username as authorUsername, a.firstName as authorFirstName, "
+            + "a.lastName as authorLastName, a.imageUrl as authorImageUrl from Post p left join p.author a ";
+
+    // Kept in the query cache, see SecondLevelCache
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCache.TOP_POSTS)})
     List<Post> findAllByPostType(PostType postType);
     Optional<List<Post>> findByAuthorInAndPostType(List<User> author, PostType postType);
     Optional<List<Post>> findAllByAuthorAndPostType(User user, PostType postType);
+    List<Post> findByAuthorIdInAndPostTypeOrderByIdDesc(Collection<Integer> authorIds, PostType postType, Pageable pageable);
+
+    // Keyset pages, newest first: every post with an id below the cursor
+    List<Post> findByIdLessThanOrderByIdDesc(int afterId, Pageable pageable);
+    List<Post> findByPostTypeAndIdLessThanOrderByIdDesc(PostType postType, int afterId, Pageable pageable);
+    List<Post> findByAuthorAndPostTypeAndIdLessThanOrderByIdDesc(User author, PostType postType, int afterId, Pageable pageable);
+    List<Post> findByAuthorIdInAndPostTypeAndIdLessThanOrderByIdDesc(Collection<Integer> authorIds, PostType postType, int afterId, Pageable pageable);
+
+    // Ids only, newest first, for merging feed pages from several queries before loading the posts
+    @Query("select p.id from Post p where p.author.id in :authorIds and p.postType = :postType and p.id < :afterId order by p.id desc")
+    List<Integer> findIdsByAuthorIdInAndPostTypeAndIdLessThan(@Param("authorIds") Collection<Integer> authorIds,
+            @Param("postType") PostType postType, @Param("afterId") int afterId, Pageable pageable);
+
+    // Every reply in whole threads down to maxDepth, with their authors. Ordered by path, so parents come before their
+    // replies and siblings oldest first, each thread is a range of the (root_id, path) index
+    @Query("select p from Post p left join fetch p.author where p.rootId in :rootIds and p.depth <= :maxDepth "
+            + "order by p.rootId, p.path, p.id")
+    List<Post> findThreads(@Param("rootIds") Collection<Integer> rootIds, @Param("maxDepth") int maxDepth);
+
+    // Every reply below one post down to maxDepth, see Post.childPath
+    @Query("select p from Post p left join fetch p.author where p.rootId = :rootId and p.path >= :fromPath "
+            + "and p.path < :toPath and p.depth <= :maxDepth order by p.path, p.id")
+    List<Post> findReplyTree(@Param("rootId") int rootId, @Param("fromPath") String fromPath,
+            @Param("toPath") String toPath, @Param("maxDepth") int maxDepth);
+
+    @Query("select p.id from Post p where p.rootId = :rootId and p.path >= :fromPath and p.path < :toPath")
+    List<Integer> findReplyTreeIds(@Param("rootId") int rootId, @Param("fromPath") String fromPath,
+            @Param("toPath") String toPath);
+
+    // The post and every reply below it in one statement
+    @Modifying
+    @Query("delete from Post p where p.id = :id or (p.rootId = :rootId and p.path >= :fromPath and p.path < :toPath)")
+    int deleteWithReplyTree(@Param("id") int id, @Param("rootId") int rootId, @Param("fromPath") String fromPath,
+            @Param("toPath") String toPath);
+
+    // A page of a post's direct comments, oldest first: a range of the (parent_id, id) index
+    @Query(SUMMARY_SELECT + "where p.parentId = :postId and p.id > :afterId order by p.id")
+    List<PostSummary> findCommentSummaries(@Param("postId") int postId, @Param("afterId") int afterId, Pageable pageable);
+
+    // Summary streams are read through a database cursor and have to be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY_SELECT + "order by p.id desc")
+    Stream<PostSummary> streamAllSummaries();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY_SELECT + "where p.postType = :postType order by p.id desc")
+    Stream<PostSummary> streamSummariesByPostType(@Param("postType") PostType postType);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY_SELECT + "where a.id in :authorIds and p.postType = :postType order by p.id desc")
+    Stream<PostSummary> streamSummariesByAuthorIds(@Param("authorIds") Collection<Integer> authorIds, @Param("postType") PostType postType);
+
+    // (id, text) of every post, for building the search index
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select p.id, p.text from Post p order by p.id")
+    Stream<Object[]> streamAllTexts();
+
+    // Rows of the data export: (id, text, image url, post type, likes, author id)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.id, p.text, p.imageUrl, p.postType, p.likes, a.id from Post p left join p.author a order by p.id")
+    Stream<Object[]> streamAllForExport();
+
+    // (parent id, comment id) of every comment
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.parentId, p.id from Post p where p.parentId is not null order by p.id")
+    Stream<Object[]> streamAllCommentLinks();
+
+    @Query("select p.likes as likes, coalesce(p.rootId, p.id) as threadId from Post p where p.id = :id")
+    Optional<PostLikes> findLikesById(@Param("id") int id);
 
 }
@@ -0,0 +1,102 @@
+package com.revature.repositories;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.revature.dtos.CacheStatistics;
+import com.revature.models.Post;
+import com.revature.models.User;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+// Hibernate second-level cache regions in Caffeine, each with its own size and TTL
+@Component
+public class SecondLevelCache implements HibernatePropertiesCustomizer {
+
+    public static final String TOP_POSTS = "top-posts";
+
+    // Hibernate's own regions, the timestamps region must never be evicted
+    private static final String DEFAULT_QUERY_RESULTS = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    private final CacheManager cacheManager;
+    private final List<String> regions = new ArrayList<>();
+
+    public SecondLevelCache(@Value("${flutter.second-level-cache.users.max-size}") long userMaxSize,
+                            @Value("${flutter.second-level-cache.users.ttl-seconds}") long userTtlSeconds,
+                            @Value("${flutter.second-level-cache.posts.max-size}") long postMaxSize,
+                            @Value("${flutter.second-level-cache.posts.ttl-seconds}") long postTtlSeconds,
+                            @Value("${flutter.second-level-cache.follows.max-size}") long followMaxSize,
+                            @Value("${flutter.second-level-cache.follows.ttl-seconds}") long followTtlSeconds,
+                            @Value("${flutter.second-level-cache.top-posts.max-size}") long topPostMaxSize,
+                            @Value("${flutter.second-level-cache.top-posts.ttl-seconds}") long topPostTtlSeconds) {
+        this.cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        Map<String, long[]> settings = new LinkedHashMap<>();
+        settings.put(User.CACHE_REGION, new long[]{userMaxSize, userTtlSeconds});
+        settings.put(Post.CACHE_REGION, new long[]{postMaxSize, postTtlSeconds});
+        settings.put(User.FOLLOWS_CACHE_REGION, new long[]{followMaxSize, followTtlSeconds});
+        settings.put(TOP_POSTS, new long[]{topPostMaxSize, topPostTtlSeconds});
+        settings.put(DEFAULT_QUERY_RESULTS, new long[]{topPostMaxSize, topPostTtlSeconds});
+        settings.put(UPDATE_TIMESTAMPS, new long[]{0, 0});
+        settings.forEach((region, sizeAndTtl) -> create(region, sizeAndTtl[0], sizeAndTtl[1]));
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+        hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+        hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+        // Every region is configured here, a region only named in a mapping is a mistake
+        hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+    }
+
+    public List<CacheStatistics> getStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        for (String region : regions) {
+            com.github.benmanes.caffeine.cache.Cache<?, ?> cache = cacheManager.getCache(region)
+                    .unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+            CacheStats stats = cache.stats();
+            statistics.add(new CacheStatistics("second-level:" + region, cache.estimatedSize(), stats.hitCount(),
+                    stats.missCount(), stats.hitRate(), stats.evictionCount()));
+        }
+        return statistics;
+    }
+
+    @PreDestroy
+    public void close() {
+        cacheManager.close();
+    }
+
+    // A size or TTL of 0 leaves the region unbounded
+    private void create(String region, long maxSize, long ttlSeconds) {
+        if (cacheManager.getCache(region) != null) {
+            // Left over from an earlier context in the same class loader
+            cacheManager.destroyCache(region);
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        configuration.setNativeStatisticsEnabled(true);
+        if (maxSize > 0) {
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+        }
+        if (ttlSeconds > 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        }
+        cacheManager.createCache(region, configuration);
+        regions.add(region);
+    }
+}
@@ -1,14 +1,48 @@
 package com.revature.repositories;
 
+import com.revature.dtos.AuthorSummary;
 import com.revature.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
 
-    Optional<User> findByEmailAndPassword(String email, String password);
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmail(String email);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select u.id as id, u.username as username, u.firstName as firstName, u.lastName as lastName, "
+            + "u.imageUrl as imageUrl, u.followerCount as followerCount, u.followingCount as followingCount, "
+            + "u.postCount as postCount from User u order by u.id")
+    Stream<AuthorSummary> streamAllSummaries();
+
+    @Query("select u.id from User u where u.followerCount > :count")
+    List<Integer> findIdsWithMoreFollowersThan(@Param("count") int count);
+
+    @Query("select f.id from User u join u.followers f where u.id = :userId")
+    List<Integer> findFollowerIds(@Param("userId") int userId);
+
+    @Query("select f.id from User u join u.following f where u.id = :userId")
+    List<Integer> findFollowingIds(@Param("userId") int userId);
+
+    // Rows of the data export: (id, email, password, first name, last name, username, image url)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id, u.email, u.password, u.firstName, u.lastName, u.username, u.imageUrl from User u order by u.id")
+    Stream<Object[]> streamAllForExport();
+
+    // (followed user id, follower id) of every follow
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id, f.id from User u join u.followers f order by u.id, f.id")
+    Stream<Object[]> streamAllFollows();
 }
@@ -10,16 +10,33 @@ import java.util.Optional;
 public class AuthService {
 
     private final UserService userService;
+    private final TokenService tokenService;
+    private final PasswordHashingService passwordHashingService;
 
-    public AuthService(UserService userService) {
+    public AuthService(UserService userService, TokenService tokenService, PasswordHashingService passwordHashingService) {
         this.userService = userService;
+        this.tokenService = tokenService;
+        this.passwordHashingService = passwordHashingService;
     }
 
     public Optional<User> findByCredentials(String email, String password) {
         return userService.findByCredentials(email, password);
     }
 
+    public boolean isTaken(String email, String username) {
+        return userService.isEmailTaken(email) || userService.isUsernameTaken(username);
+    }
+
     public User register(User user) {
+        user.setPassword(passwordHashingService.hash(user.getPassword()));
         return userService.save(user);
     }
+
+    public String issueToken(User user) {
+        return tokenService.issue(user.getId());
+    }
+
+    public boolean isSessionLoginEnabled() {
+        return tokenService.isSessionLoginEnabled();
+    }
 }
@@ -0,0 +1,86 @@
+package com.revature.services;
+
+import com.revature.models.Post;
+import com.revature.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Loads the reply trees of posts about to be rendered, detached from the persistence context
+@Service
+public class CommentTreeService {
+
+    private static final int MAX_IN_LIST = 500;
+
+    private final PostRepository postRepository;
+    private final EntityManager entityManager;
+    private final int maxDepth;
+    private final int fanOut;
+
+    public CommentTreeService(PostRepository postRepository, EntityManager entityManager,
+                              @Value("${flutter.comments.max-depth}") int maxDepth,
+                              @Value("${flutter.comments.fan-out}") int fanOut) {
+        this.postRepository = postRepository;
+        this.entityManager = entityManager;
+        this.maxDepth = maxDepth;
+        this.fanOut = fanOut;
+    }
+
+    // Replaces the comments of every root with its reply tree, cut at max-depth levels and
+    // fan-out comments per parent (oldest first). Posts that lost replies to the cut are marked truncated
+    @Transactional(readOnly = true)
+    public void loadCommentTrees(List<Post> roots) {
+        Map<Integer, Post> loaded = new HashMap<>();
+        List<Integer> threadIds = new ArrayList<>();
+        for (Post root : roots) {
+            loaded.put(root.getId(), detach(root));
+            if (root.getParentId() == null) {
+                threadIds.add(root.getId());
+            }
+        }
+
+        for (int from = 0; from < threadIds.size(); from += MAX_IN_LIST) {
+            List<Integer> chunk = threadIds.subList(from, Math.min(from + MAX_IN_LIST, threadIds.size()));
+            attach(postRepository.findThreads(chunk, maxDepth), loaded, maxDepth);
+        }
+        for (Post root : roots) {
+            if (root.getParentId() != null) {
+                int deepest = root.getDepth() + maxDepth;
+                attach(postRepository.findReplyTree(root.childRootId(), root.childPath(), root.childPathEnd(),
+                        deepest), loaded, deepest);
+            }
+        }
+    }
+
+    // Replies under a parent that was cut off are left out along with it
+    private void attach(List<Post> replies, Map<Integer, Post> loaded, int deepest) {
+        for (Post reply : replies) {
+            Post parent = loaded.get(reply.getParentId());
+            if (parent == null) {
+                continue;
+            }
+            if (parent.getComments().size() < fanOut) {
+                parent.getComments().add(detach(reply));
+                loaded.put(reply.getId(), reply);
+                reply.setCommentsTruncated(reply.getDepth() >= deepest && reply.getCommentCount() > 0);
+            } else {
+                parent.setCommentsTruncated(true);
+            }
+        }
+    }
+
+    private Post detach(Post post) {
+        entityManager.detach(post);
+        post.setComments(new ArrayList<>());
+        if (post.getAuthor() != null) {
+            post.setAuthor(post.getAuthor().copyWithoutFollows());
+        }
+        return post;
+    }
+}
@@ -0,0 +1,69 @@
+package com.revature.services;
+
+// Count-min sketch with conservative updates, not thread safe
+final class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9e3779b97f4a7c15L, 0xbf58476d1ce4e5b9L, 0x94d049bb133111ebL, 0xd6e8feb86659fd93L,
+            0xa0761d6478bd642fL, 0xe7037ed1a0b428dbL, 0x8ebc6af09c88c6e3L, 0x589965cc75374cc3L
+    };
+
+    private final double[][] rows;
+    private final int width;
+
+    CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("depth must be between 1 and " + SEEDS.length);
+        }
+        this.rows = new double[depth][width];
+        this.width = width;
+    }
+
+    // Returns the estimate for the key after adding the weight
+    double add(long key, double weight) {
+        double estimate = estimate(key) + weight;
+        for (int row = 0; row < rows.length; row++) {
+            int column = column(key, row);
+            if (rows[row][column] < estimate) {
+                rows[row][column] = estimate;
+            }
+        }
+        return estimate;
+    }
+
+    double estimate(long key) {
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < rows.length; row++) {
+            estimate = Math.min(estimate, rows[row][column(key, row)]);
+        }
+        return estimate;
+    }
+
+    void scale(double factor) {
+        for (double[] row : rows) {
+            for (int column = 0; column < width; column++) {
+                row[column] *= factor;
+            }
+        }
+    }
+
+    private int column(long key, int row) {
+        long hash = key ^ SEEDS[row];
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Long.remainderUnsigned(hash, width);
+    }
+
+    // 64 bit FNV-1a, for string keys
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,145 @@
+package com.revature.services;
+
+import com.revature.models.PostType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Denormalized comment, follow and post counts, updated in place and reconciled on a schedule
+@Service
+public class CounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(CounterService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityCacheService entityCacheService;
+    private final VersionStampService versionStampService;
+    private final int batchSize;
+    private final String addCommentsSql;
+    private final String addFollowersSql;
+    private final String addFollowingSql;
+    private final String addPostsSql;
+    private final String postBatchEndSql;
+    private final String driftedPostsSql;
+    private final String repairPostSql;
+    private final String userBatchEndSql;
+    private final String driftedUsersSql;
+    private final String repairUserSql;
+
+    // Last id reconciled of either table, only the scheduler thread moves them
+    private int postCursor;
+    private int userCursor;
+
+    public CounterService(JdbcTemplate jdbcTemplate, EntityCacheService entityCacheService,
+                          VersionStampService versionStampService,
+                          @Value("${flutter.counters.batch-size}") int batchSize,
+                          @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityCacheService = entityCacheService;
+        this.versionStampService = versionStampService;
+        this.batchSize = batchSize;
+        String prefix = schema.isEmpty() ? "" : schema + ".";
+        String posts = prefix + "posts";
+        String users = prefix + "users";
+        String follows = prefix + "follower_following";
+
+        String commentCount = "(select count(*) from " + posts + " c where c.parent_id = p.id)";
+        String followerCount = "(select count(*) from " + follows + " f where f.user_id = u.id)";
+        String followingCount = "(select count(*) from " + follows + " f where f.follower_id = u.id)";
+        String postCount = "(select count(*) from " + posts + " p where p.author_id = u.id and p.post_type = "
+                + PostType.Top.ordinal() + ")";
+
+        this.addCommentsSql = "update " + posts + " set comment_count = comment_count + ? where id = ?";
+        this.addFollowersSql = "update " + users + " set follower_count = follower_count + ? where id = ?";
+        this.addFollowingSql = "update " + users + " set following_count = following_count + ? where id = ?";
+        this.addPostsSql = "update " + users + " set post_count = post_count + ? where id = ?";
+
+        this.postBatchEndSql = "select max(id) from (select id from " + posts + " where id > ? order by id limit ?) b";
+        this.driftedPostsSql = "select p.id from " + posts + " p where p.id > ? and p.id <= ? and p.comment_count <> "
+                + commentCount;
+        this.repairPostSql = "update " + posts + " p set comment_count = " + commentCount + " where p.id = ?";
+        this.userBatchEndSql = "select max(id) from (select id from " + users + " where id > ? order by id limit ?) b";
+        this.driftedUsersSql = "select u.id from " + users + " u where u.id > ? and u.id <= ? and (u.follower_count <> "
+                + followerCount + " or u.following_count <> " + followingCount + " or u.post_count <> " + postCount + ")";
+        this.repairUserSql = "update " + users + " u set follower_count = " + followerCount + ", following_count = "
+                + followingCount + ", post_count = " + postCount + " where u.id = ?";
+    }
+
+    public void addComments(int postId, int delta) {
+        jdbcTemplate.update(addCommentsSql, delta, postId);
+    }
+
+    // The lower id is updated first, so a follow and the follow back cannot lock the two rows in opposite order
+    public void addFollow(int followerId, int followedId, int delta) {
+        if (followedId <= followerId) {
+            jdbcTemplate.update(addFollowersSql, delta, followedId);
+            jdbcTemplate.update(addFollowingSql, delta, followerId);
+        } else {
+            jdbcTemplate.update(addFollowingSql, delta, followerId);
+            jdbcTemplate.update(addFollowersSql, delta, followedId);
+        }
+    }
+
+    public void addPosts(int authorId, int delta) {
+        jdbcTemplate.update(addPostsSql, delta, authorId);
+    }
+
+    // Each repair recounts inside its own update, so a change counted between finding and repairing a row is kept
+    @Scheduled(fixedDelayString = "${flutter.counters.reconcile-interval-ms}")
+    public void reconcile() {
+        try {
+            reconcilePosts();
+            reconcileUsers();
+        } catch (DataAccessException e) {
+            log.warn("Could not reconcile counters, retrying on the next run", e);
+        }
+    }
+
+    private void reconcilePosts() {
+        Integer end = jdbcTemplate.queryForObject(postBatchEndSql, Integer.class, postCursor, batchSize);
+        if (end == null) {
+            postCursor = 0;
+            return;
+        }
+        for (int id : repair(driftedPostsSql, repairPostSql, postCursor, end)) {
+            entityCacheService.evictPost(id);
+            versionStampService.touchPost(id);
+        }
+        postCursor = end;
+    }
+
+    private void reconcileUsers() {
+        Integer end = jdbcTemplate.queryForObject(userBatchEndSql, Integer.class, userCursor, batchSize);
+        if (end == null) {
+            userCursor = 0;
+            return;
+        }
+        for (int id : repair(driftedUsersSql, repairUserSql, userCursor, end)) {
+            entityCacheService.evictUser(id);
+            versionStampService.touchUser(id);
+        }
+        userCursor = end;
+    }
+
+    // Repairs the rows with ids in (after, end] whose counts are off and returns their ids
+    private List<Integer> repair(String driftedSql, String repairSql, int after, int end) {
+        List<Integer> drifted = jdbcTemplate.queryForList(driftedSql, Integer.class, after, end);
+        if (drifted.isEmpty()) {
+            return drifted;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (Integer id : drifted) {
+            batch.add(new Object[]{id});
+        }
+        jdbcTemplate.batchUpdate(repairSql, batch);
+        log.info("Repaired the counts of {} rows with ids from {} to {}", drifted.size(), after + 1, end);
+        return drifted;
+    }
+}
@@ -0,0 +1,59 @@
+package com.revature.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Runs the import or export given by flutter.transfer.import-file or export-file and exits
+@Component
+public class DataTransferRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DataTransferRunner.class);
+
+    private final DataTransferService dataTransferService;
+    private final ConfigurableApplicationContext context;
+    private final String importFile;
+    private final String exportFile;
+
+    public DataTransferRunner(DataTransferService dataTransferService, ConfigurableApplicationContext context,
+                              @Value("${flutter.transfer.import-file}") String importFile,
+                              @Value("${flutter.transfer.export-file}") String exportFile) {
+        this.dataTransferService = dataTransferService;
+        this.context = context;
+        this.importFile = importFile;
+        this.exportFile = exportFile;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (importFile.isEmpty() && exportFile.isEmpty()) {
+            return;
+        }
+        if (!importFile.isEmpty()) {
+            long start = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(Paths.get(importFile), StandardOpenOption.READ)) {
+                long records = dataTransferService.importFrom(channel);
+                log.info("Imported {} records from {} in {} ms", records, importFile, (System.nanoTime() - start) / 1000000);
+            }
+        }
+        if (!exportFile.isEmpty()) {
+            long start = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(Paths.get(exportFile), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long records = dataTransferService.export(channel);
+                log.info("Exported {} records to {} in {} ms", records, exportFile, (System.nanoTime() - start) / 1000000);
+            }
+        }
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,259 @@
+package com.revature.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.models.PostType;
+import com.revature.repositories.IdSequenceInitializer;
+import com.revature.repositories.PostRepository;
+import com.revature.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Streams users, posts, comments and follows to and from newline delimited JSON
+@Service
+public class DataTransferService {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final List<RecordType> RECORD_TYPES = Arrays.asList(
+            new RecordType("user", "users", false,
+                    new String[]{"id", "email", "password", "first_name", "last_name", "username", "image_url"},
+                    new String[]{"id", "email", "password", "firstName", "lastName", "username", "imageUrl"}),
+            new RecordType("post", "posts", false,
+                    new String[]{"id", "text", "image_url", "post_type", "likes", "author_id"},
+                    new String[]{"id", "text", "imageUrl", "postType", "likes", "authorId"}),
+            new RecordType("comment", "posts", true,
+                    new String[]{"parent_id", "id"},
+                    new String[]{"postId", "commentId"}),
+            new RecordType("follow", "follower_following", false,
+                    new String[]{"user_id", "follower_id"},
+                    new String[]{"userId", "followerId"}));
+
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final IdSequenceInitializer idSequenceInitializer;
+    private final int chunkSize;
+    private final int threads;
+    private final Map<String, String> writeSql = new HashMap<>();
+
+    public DataTransferService(UserRepository userRepository, PostRepository postRepository, JdbcTemplate jdbcTemplate,
+                               ObjectMapper objectMapper, IdSequenceInitializer idSequenceInitializer,
+                               @Value("${flutter.transfer.chunk-size}") int chunkSize,
+                               @Value("${flutter.transfer.threads}") int threads,
+                               @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.idSequenceInitializer = idSequenceInitializer;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        String prefix = schema.isEmpty() ? "" : schema + ".";
+        for (RecordType type : RECORD_TYPES) {
+            writeSql.put(type.name, type.sql(prefix));
+        }
+    }
+
+    // Returns the number of records written
+    @Transactional(readOnly = true)
+    public long export(WritableByteChannel channel) throws IOException {
+        long count = 0;
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(
+                Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE))) {
+            json.setRootValueSeparator(new SerializedString("\n"));
+            count += write(json, RECORD_TYPES.get(0), userRepository.streamAllForExport());
+            count += write(json, RECORD_TYPES.get(1), postRepository.streamAllForExport());
+            count += write(json, RECORD_TYPES.get(2), postRepository.streamAllCommentLinks());
+            count += write(json, RECORD_TYPES.get(3), userRepository.streamAllFollows());
+            if (count > 0) {
+                json.writeRaw('\n');
+            }
+        }
+        return count;
+    }
+
+    // Returns the number of records read
+    public long importFrom(ReadableByteChannel channel) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE), BUFFER_SIZE);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService writers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "data-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<?>> pending = new ArrayDeque<>();
+        long count = 0;
+        try {
+            RecordType current = null;
+            List<Object[]> chunk = new ArrayList<>();
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode record;
+                try {
+                    record = objectMapper.readTree(line);
+                } catch (JsonProcessingException e) {
+                    throw new IOException("Line " + lineNumber + " is not valid JSON", e);
+                }
+                RecordType type = recordType(record.path("type").asText());
+                if (type == null) {
+                    throw new IOException("Line " + lineNumber + " has an unknown record type");
+                }
+                if (type != current) {
+                    submit(writers, pending, current, chunk);
+                    chunk = new ArrayList<>();
+                    while (!pending.isEmpty()) {
+                        await(pending.poll());
+                    }
+                    current = type;
+                }
+                chunk.add(type.values(record));
+                count++;
+                if (chunk.size() == chunkSize) {
+                    submit(writers, pending, current, chunk);
+                    chunk = new ArrayList<>();
+                    while (pending.size() >= threads * 2) {
+                        await(pending.poll());
+                    }
+                }
+            }
+            submit(writers, pending, current, chunk);
+            while (!pending.isEmpty()) {
+                await(pending.poll());
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+        idSequenceInitializer.initialize();
+        return count;
+    }
+
+    private long write(JsonGenerator json, RecordType type, Stream<Object[]> rows) throws IOException {
+        long count = 0;
+        try (rows) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                json.writeStartObject();
+                json.writeStringField("type", type.name);
+                for (int i = 0; i < type.fields.length; i++) {
+                    // Post types are written by name, the enum serializes as its name
+                    json.writeObjectField(type.fields[i], row[i]);
+                }
+                json.writeEndObject();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void submit(ExecutorService writers, Deque<Future<?>> pending, RecordType type, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            String sql = writeSql.get(type.name);
+            pending.add(writers.submit(() -> jdbcTemplate.batchUpdate(sql, rows)));
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static RecordType recordType(String name) {
+        for (RecordType type : RECORD_TYPES) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static final class RecordType {
+
+        private final String name;
+        private final String table;
+        // Whether records update existing rows, by the last column, instead of inserting new ones
+        private final boolean update;
+        private final String[] columns;
+        // JSON field of each column, in the same order
+        private final String[] fields;
+
+        private RecordType(String name, String table, boolean update, String[] columns, String[] fields) {
+            this.name = name;
+            this.table = table;
+            this.update = update;
+            this.columns = columns;
+            this.fields = fields;
+        }
+
+        private String sql(String prefix) {
+            if (update) {
+                List<String> set = new ArrayList<>();
+                for (int i = 0; i < columns.length - 1; i++) {
+                    set.add(columns[i] + " = ?");
+                }
+                return "update " + prefix + table + " set " + String.join(", ", set)
+                        + " where " + columns[columns.length - 1] + " = ?";
+            }
+            return "insert into " + prefix + table + " (" + String.join(", ", columns)
+                    + ") values (" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+        }
+
+        private Object[] values(JsonNode record) {
+            Object[] values = new Object[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                JsonNode value = record.get(fields[i]);
+                if (value == null || value.isNull()) {
+                    values[i] = null;
+                } else if (value.isNumber()) {
+                    values[i] = value.numberValue();
+                } else if (fields[i].equals("postType")) {
+                    // Stored by ordinal
+                    values[i] = PostType.valueOf(value.asText()).ordinal();
+                } else {
+                    values[i] = value.asText();
+                }
+            }
+            return values;
+        }
+    }
+}
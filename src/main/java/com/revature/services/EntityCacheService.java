@@ -0,0 +1,155 @@
+package com.revature.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.revature.datasource.ReplicaRouter;
+import com.revature.dtos.CacheStatistics;
+import com.revature.models.Post;
+import com.revature.models.User;
+import com.revature.repositories.SecondLevelCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Bounded TTL caches of detached user and post copies by id, username and email
+@Service
+public class EntityCacheService {
+
+    private final Cache<Integer, User> users;
+    private final Cache<String, Integer> userIdsByUsername;
+    private final Cache<String, Integer> userIdsByEmail;
+    private final Cache<Integer, Post> posts;
+    private final EntityManager entityManager;
+    private final ReplicaRouter replicaRouter;
+
+    public EntityCacheService(EntityManager entityManager, ReplicaRouter replicaRouter,
+                              @Value("${flutter.cache.users.max-size}") long userMaxSize,
+                              @Value("${flutter.cache.users.ttl-seconds}") long userTtlSeconds,
+                              @Value("${flutter.cache.posts.max-size}") long postMaxSize,
+                              @Value("${flutter.cache.posts.ttl-seconds}") long postTtlSeconds) {
+        this.entityManager = entityManager;
+        this.replicaRouter = replicaRouter;
+        this.users = build(userMaxSize, userTtlSeconds);
+        this.userIdsByUsername = build(userMaxSize, userTtlSeconds);
+        this.userIdsByEmail = build(userMaxSize, userTtlSeconds);
+        this.posts = build(postMaxSize, postTtlSeconds);
+    }
+
+    // Concurrent misses for the same id share one load
+    public Optional<User> getUser(int id, Supplier<Optional<User>> loader) {
+        User cached = users.get(id, key -> loader.get().map(User::copyWithoutFollows).orElse(null));
+        return Optional.ofNullable(cached).map(User::copyWithoutFollows);
+    }
+
+    public Optional<User> getUserByUsername(String username, Supplier<Optional<User>> loader) {
+        return getUserByKey(userIdsByUsername, username, User::getUsername, loader);
+    }
+
+    public Optional<User> getUserByEmail(String email, Supplier<Optional<User>> loader) {
+        return getUserByKey(userIdsByEmail, email, User::getEmail, loader);
+    }
+
+    public void evictUser(int id) {
+        evict(() -> evictUserEntity(id));
+    }
+
+    // For changes written with plain JDBC, also detaches the request's stale managed instance
+    public void evictUserAfterJdbcWrite(int id) {
+        entityManager.detach(entityManager.getReference(User.class, id));
+        evict(() -> {
+            evictUserEntity(id);
+            org.hibernate.Cache secondLevel = entityManager.getEntityManagerFactory().getCache().unwrap(org.hibernate.Cache.class);
+            secondLevel.evictCollectionData(User.class.getName() + ".followers", id);
+            secondLevel.evictCollectionData(User.class.getName() + ".following", id);
+        });
+    }
+
+    public Optional<Post> getPost(int id, Supplier<Optional<Post>> loader) {
+        Post cached = posts.get(id, key -> loader.get().map(Post::copyWithoutComments).orElse(null));
+        return Optional.ofNullable(cached).map(Post::copyWithoutComments);
+    }
+
+    // Only evicts, a post already in the current persistence context keeps what it was loaded with
+    public void evictPost(int id) {
+        evict(() -> {
+            posts.invalidate(id);
+            entityManager.getEntityManagerFactory().getCache().evict(Post.class, id);
+        });
+    }
+
+    // For new, changed and deleted top level posts. Hibernate already drops the cached listing on any write to posts
+    public void evictTopPosts() {
+        replicaRouter.afterReplicationLag(() -> entityManager.getEntityManagerFactory().getCache()
+                .unwrap(org.hibernate.Cache.class).evictQueryRegion(SecondLevelCache.TOP_POSTS));
+    }
+
+    public List<CacheStatistics> getStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        statistics.add(toStatistics("users", users));
+        statistics.add(toStatistics("usernames", userIdsByUsername));
+        statistics.add(toStatistics("emails", userIdsByEmail));
+        statistics.add(toStatistics("posts", posts));
+        return statistics;
+    }
+
+    // A hit only counts if the cached user still has the key, a rename never leaves an old key pointing at the user
+    private Optional<User> getUserByKey(Cache<String, Integer> ids, String key, Function<User, String> keyOf,
+                                        Supplier<Optional<User>> loader) {
+        Integer id = ids.getIfPresent(key);
+        if (id != null) {
+            User cached = users.getIfPresent(id);
+            if (cached != null && key.equals(keyOf.apply(cached))) {
+                return Optional.of(cached.copyWithoutFollows());
+            }
+            ids.invalidate(key);
+        }
+        Optional<User> user = loader.get().map(User::copyWithoutFollows);
+        user.ifPresent(u -> {
+            users.put(u.getId(), u);
+            ids.put(key, u.getId());
+        });
+        return user.map(User::copyWithoutFollows);
+    }
+
+    private void evictUserEntity(int id) {
+        users.invalidate(id);
+        entityManager.getEntityManagerFactory().getCache().evict(User.class, id);
+    }
+
+    private void evict(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+        replicaRouter.afterReplicationLag(eviction);
+    }
+
+    private static <K, V> Cache<K, V> build(long maxSize, long ttlSeconds) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    private static CacheStatistics toStatistics(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount());
+    }
+}
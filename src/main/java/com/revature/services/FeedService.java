@@ -0,0 +1,143 @@
+package com.revature.services;
+
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import com.revature.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Feed pages assembled on a bounded pool, the following list read in parallel chunks past the timeline
+@Service
+public class FeedService {
+
+    private final PostRepository postRepository;
+    private final PostService postService;
+    private final TimelineService timelineService;
+    private final FollowGraphService followGraphService;
+    private final int chunkSize;
+    private final ThreadPoolExecutor executor;
+
+    public FeedService(PostRepository postRepository, PostService postService, TimelineService timelineService,
+                       FollowGraphService followGraphService,
+                       @Value("${flutter.feed.chunk-size}") int chunkSize,
+                       @Value("${flutter.feed.threads}") int threads,
+                       @Value("${flutter.feed.queue-depth}") int queueDepth) {
+        this.postRepository = postRepository;
+        this.postService = postService;
+        this.timelineService = timelineService;
+        this.followGraphService = followGraphService;
+        this.chunkSize = chunkSize;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth), r -> {
+            Thread thread = new Thread(r, "feed-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Completes with up to limit posts of the user's feed with ids below afterId, newest first. Throws
+    // RejectedExecutionException right away if the pool is full
+    public CompletableFuture<List<Post>> getFeedPage(int userId, int afterId, int limit) {
+        return CompletableFuture.supplyAsync(() -> timelineIds(userId, afterId, limit), executor)
+                .thenCompose(pageIds -> {
+                    if (pageIds.size() == limit) {
+                        return CompletableFuture.completedFuture(pageIds);
+                    }
+                    int lastId = pageIds.isEmpty() ? afterId : pageIds.get(pageIds.size() - 1);
+                    return followingIds(userId, lastId, limit - pageIds.size()).thenApply(more -> {
+                        pageIds.addAll(more);
+                        return pageIds;
+                    });
+                })
+                .thenCompose(pageIds -> CompletableFuture.supplyAsync(() -> postService.getPostsNewestFirst(pageIds), executor)
+                        .thenCompose(page -> refill(userId, pageIds, page)));
+    }
+
+    // Posts deleted since they were pushed to the timeline are missing from the page, the ids after the last one
+    // scanned fill their places
+    private CompletableFuture<List<Post>> refill(int userId, List<Integer> pageIds, List<Post> page) {
+        if (page.size() == pageIds.size()) {
+            return CompletableFuture.completedFuture(page);
+        }
+        return followingIds(userId, pageIds.get(pageIds.size() - 1), pageIds.size() - page.size())
+                .thenApplyAsync(more -> {
+                    page.addAll(postService.getPostsNewestFirst(more));
+                    return page;
+                }, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Integer> timelineIds(int userId, int afterId, int limit) {
+        List<Integer> pageIds = new ArrayList<>(limit);
+        Optional<List<Integer>> timelineIds = timelineService.getPostIds(userId);
+        if (timelineIds.isPresent()) {
+            for (Integer postId : timelineIds.get()) {
+                if (postId < afterId && pageIds.size() < limit) {
+                    pageIds.add(postId);
+                }
+            }
+        }
+        return pageIds;
+    }
+
+    private CompletableFuture<List<Integer>> followingIds(int userId, int afterId, int limit) {
+        int[] followingIds = followGraphService.getFollowingIds(userId);
+        List<CompletableFuture<List<Integer>>> chunks = new ArrayList<>();
+        for (int from = 0; from < followingIds.length; from += chunkSize) {
+            List<Integer> authorIds = new ArrayList<>();
+            for (int i = from; i < Math.min(from + chunkSize, followingIds.length); i++) {
+                authorIds.add(followingIds[i]);
+            }
+            chunks.add(CompletableFuture.supplyAsync(() -> postRepository.findIdsByAuthorIdInAndPostTypeAndIdLessThan(
+                    authorIds, PostType.Top, afterId, PageRequest.of(0, limit)), executor));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    List<List<Integer>> results = new ArrayList<>(chunks.size());
+                    for (CompletableFuture<List<Integer>> chunk : chunks) {
+                        results.add(chunk.join());
+                    }
+                    return merge(results, limit);
+                });
+    }
+
+    // Merges lists of descending ids into the first limit ids of their union, newest first
+    static List<Integer> merge(List<List<Integer>> lists, int limit) {
+        // Entries are {id, list, position}, the largest id on top
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, lists.size()), (a, b) -> Integer.compare(b[0], a[0]));
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) {
+                heads.add(new int[]{lists.get(i).get(0), i, 0});
+            }
+        }
+        List<Integer> merged = new ArrayList<>(limit);
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            if (merged.isEmpty() || merged.get(merged.size() - 1) != head[0]) {
+                merged.add(head[0]);
+            }
+            List<Integer> list = lists.get(head[1]);
+            if (head[2] + 1 < list.size()) {
+                heads.add(new int[]{list.get(head[2] + 1), head[1], head[2] + 1});
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,88 @@
+package com.revature.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.models.Post;
+import com.revature.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+// What a feed's version depends on: a stamp per follower, raised when an author with few followers posts, and the
+// posts of the more followed authors the user follows
+@Service
+public class FeedVersionService {
+
+    private static final String WATCHED = "watched";
+
+    private final FollowGraphService followGraphService;
+    private final VersionStampService versionStampService;
+    private final UserRepository userRepository;
+    private final int fanOut;
+    private final Cache<String, int[]> watched;
+
+    public FeedVersionService(FollowGraphService followGraphService, VersionStampService versionStampService,
+                              UserRepository userRepository,
+                              @Value("${flutter.versions.feed-fan-out}") int fanOut,
+                              @Value("${flutter.versions.watched-refresh-seconds}") long refreshSeconds) {
+        this.followGraphService = followGraphService;
+        this.versionStampService = versionStampService;
+        this.userRepository = userRepository;
+        this.fanOut = fanOut;
+        this.watched = Caffeine.newBuilder().expireAfterWrite(Duration.ofSeconds(refreshSeconds)).build();
+    }
+
+    // A new or deleted top level post by the author. Feeds watch the posts of authors with more followers
+    public void touchFeeds(int authorId) {
+        int[] followerIds = followGraphService.getFollowerIds(authorId);
+        if (followerIds.length <= fanOut) {
+            for (int followerId : followerIds) {
+                versionStampService.touchFeed(followerId);
+            }
+        }
+    }
+
+    // Feeds rendered before the followed user became watched only depend on their stamps, so those are raised once
+    public void followed(int followedId) {
+        int followers = followGraphService.countFollowers(followedId);
+        if (followers > watchThreshold() && followers <= fanOut
+                && Arrays.binarySearch(getWatchedIds(), followedId) < 0) {
+            touchFeeds(followedId);
+            watched.invalidateAll();
+        }
+    }
+
+    // The user's feed stamp, the user's follows and own posts, the posts on the page and the posts of watched authors
+    // the user follows
+    public VersionStampService.Dependencies dependencies(int userId, List<Post> feed) {
+        VersionStampService.Dependencies dependencies = new VersionStampService.Dependencies()
+                .posts(feed)
+                .feed(userId)
+                .user(userId)
+                .postsBy(userId);
+        int[] watchedIds = getWatchedIds();
+        if (watchedIds.length > 0) {
+            int[] followingIds = followGraphService.getFollowingIds(userId);
+            for (int watchedId : watchedIds) {
+                if (Arrays.binarySearch(followingIds, watchedId) >= 0) {
+                    dependencies.postsBy(watchedId);
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    // Half the fan-out, so an author is watched well before their posts stop raising feed stamps. Authors that
+    // double their followers within refresh-seconds can still be missed by nodes that have not refreshed
+    private int watchThreshold() {
+        return fanOut / 2;
+    }
+
+    private int[] getWatchedIds() {
+        return watched.get(WATCHED, key -> userRepository.findIdsWithMoreFollowersThan(watchThreshold()).stream()
+                .mapToInt(Integer::intValue).sorted().toArray());
+    }
+}
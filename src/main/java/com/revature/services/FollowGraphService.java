@@ -0,0 +1,166 @@
+package com.revature.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+// Bounded cache of every user's follower and following ids as sorted arrays, replaced copy-on-write on changes
+@Service
+public class FollowGraphService {
+
+    private static final int[] NONE = new int[0];
+    private static final int LOCK_STRIPES = 64;
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final CounterService counterService;
+    private final TransactionTemplate transactionTemplate;
+    private final String insertSql;
+    private final String deleteSql;
+
+    private final ConcurrentMap<Integer, int[]> followers;
+    private final ConcurrentMap<Integer, int[]> following;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public FollowGraphService(UserRepository userRepository, JdbcTemplate jdbcTemplate, CounterService counterService,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${flutter.follow-graph.max-users}") long maxUsers,
+                              @Value("${flutter.follow-graph.ttl-seconds}") long ttlSeconds,
+                              @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.counterService = counterService;
+        this.transactionTemplate = transactionTemplate;
+        String table = schema.isEmpty() ? "follower_following" : schema + ".follower_following";
+        this.insertSql = "insert into " + table + " (user_id, follower_id) select ?, ? where not exists "
+                + "(select 1 from " + table + " where user_id = ? and follower_id = ?)";
+        this.deleteSql = "delete from " + table + " where user_id = ? and follower_id = ?";
+        this.followers = Caffeine.newBuilder().maximumSize(maxUsers).expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .<Integer, int[]>build().asMap();
+        this.following = Caffeine.newBuilder().maximumSize(maxUsers).expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .<Integer, int[]>build().asMap();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Returns false if the follower already follows the user. The cached graph only sees this node's follows, the
+    // insert and the unique constraint on the join table settle follows made on other nodes
+    public boolean follow(int followerId, int followedId) {
+        synchronized (lockFor(followedId)) {
+            if (isFollowing(followerId, followedId)) {
+                return false;
+            }
+            boolean inserted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                try {
+                    if (jdbcTemplate.update(insertSql, followedId, followerId, followedId, followerId) == 0) {
+                        return false;
+                    }
+                } catch (DuplicateKeyException e) {
+                    // A concurrent follow inserted the row after the check
+                    status.setRollbackOnly();
+                    return false;
+                }
+                counterService.addFollow(followerId, followedId, 1);
+                return true;
+            }));
+            followers.computeIfPresent(followedId, (id, ids) -> insert(ids, followerId));
+            following.computeIfPresent(followerId, (id, ids) -> insert(ids, followedId));
+            return inserted;
+        }
+    }
+
+    // Returns false if the follower did not follow the user
+    public boolean unfollow(int followerId, int followedId) {
+        synchronized (lockFor(followedId)) {
+            if (!isFollowing(followerId, followedId)) {
+                return false;
+            }
+            boolean deleted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (jdbcTemplate.update(deleteSql, followedId, followerId) == 0) {
+                    return false;
+                }
+                counterService.addFollow(followerId, followedId, -1);
+                return true;
+            }));
+            followers.computeIfPresent(followedId, (id, ids) -> remove(ids, followerId));
+            following.computeIfPresent(followerId, (id, ids) -> remove(ids, followedId));
+            return deleted;
+        }
+    }
+
+    public boolean isFollowing(int followerId, int followedId) {
+        return Arrays.binarySearch(getFollowerIds(followedId), followerId) >= 0;
+    }
+
+    public int countFollowers(int userId) {
+        return getFollowerIds(userId).length;
+    }
+
+    public int countFollowing(int userId) {
+        return getFollowingIds(userId).length;
+    }
+
+    // Sorted ids of the user's followers. The array is shared, do not modify it
+    public int[] getFollowerIds(int userId) {
+        // Loading inside computeIfAbsent orders the load against concurrent follows of the same user
+        return followers.computeIfAbsent(userId, id -> toSortedArray(userRepository.findFollowerIds(id)));
+    }
+
+    // Sorted ids of the users the user follows. The array is shared, do not modify it
+    public int[] getFollowingIds(int userId) {
+        return following.computeIfAbsent(userId, id -> toSortedArray(userRepository.findFollowingIds(id)));
+    }
+
+    // Forgets what is indexed for the user, for changes made to the join table outside this service
+    public void evict(int userId) {
+        followers.remove(userId);
+        following.remove(userId);
+    }
+
+    private Object lockFor(int userId) {
+        return locks[Math.floorMod(userId, LOCK_STRIPES)];
+    }
+
+    private static int[] toSortedArray(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return NONE;
+        }
+        int[] sorted = ids.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static int[] insert(int[] ids, int id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        index = -index - 1;
+        int[] copy = new int[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, index);
+        copy[index] = id;
+        System.arraycopy(ids, index, copy, index + 1, ids.length - index);
+        return copy;
+    }
+
+    private static int[] remove(int[] ids, int id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        int[] copy = new int[ids.length - 1];
+        System.arraycopy(ids, 0, copy, 0, index);
+        System.arraycopy(ids, index + 1, copy, index, ids.length - index - 1);
+        return copy;
+    }
+}
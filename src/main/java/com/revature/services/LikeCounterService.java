@@ -0,0 +1,167 @@
+package com.revature.services;
+
+import com.revature.dtos.FeedEvent;
+import com.revature.dtos.PostLikes;
+import com.revature.repositories.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Write-behind like counts, flushed as one batch of relative updates
+@Service
+public class LikeCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(LikeCounterService.class);
+
+    private final PostRepository postRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TrendingService trendingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final VersionStampService versionStampService;
+    private final EntityCacheService entityCacheService;
+    private final String updateSql;
+
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+
+    public LikeCounterService(PostRepository postRepository, JdbcTemplate jdbcTemplate, TrendingService trendingService,
+                              ApplicationEventPublisher eventPublisher, VersionStampService versionStampService,
+                              EntityCacheService entityCacheService,
+                              @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.postRepository = postRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.trendingService = trendingService;
+        this.eventPublisher = eventPublisher;
+        this.versionStampService = versionStampService;
+        this.entityCacheService = entityCacheService;
+        String table = schema.isEmpty() ? "posts" : schema + ".posts";
+        this.updateSql = "update " + table + " set likes = likes + ? where id = ?";
+    }
+
+    // Returns the approximate like count after the like, or empty if the post does not exist
+    public Optional<Integer> like(int postId) {
+        return add(postId, 1);
+    }
+
+    public Optional<Integer> unlike(int postId) {
+        return add(postId, -1);
+    }
+
+    private Optional<Integer> add(int postId, int delta) {
+        while (true) {
+            Counter counter = counters.get(postId);
+            if (counter == null) {
+                // First click on this post since it was last flushed out, read the stored count once
+                Optional<PostLikes> stored = postRepository.findLikesById(postId);
+                if (!stored.isPresent()) {
+                    return Optional.empty();
+                }
+                counter = counters.computeIfAbsent(postId,
+                        id -> new Counter(stored.get().getLikes(), stored.get().getThreadId()));
+            }
+            counter.pending.add(delta);
+            if (!counter.retired) {
+                int likes = counter.current();
+                if (delta > 0) {
+                    // Likes on comments count towards their thread
+                    trendingService.recordLike(counter.threadId);
+                }
+                eventPublisher.publishEvent(new FeedEvent(FeedEvent.LIKES, postId, null, null, null, null, likes));
+                return Optional.of(likes);
+            }
+            // Raced with the flush evicting this counter, take the delta back and retry on a fresh one
+            counter.pending.add(-delta);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${flutter.likes.flush-interval-ms}")
+    public void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        List<Counter> flushed = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+
+        for (Map.Entry<Integer, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long delta = counter.pending.sum();
+            if (delta == 0) {
+                evictIfIdle(entry.getKey(), counter);
+                continue;
+            }
+            // Move exactly what is flushed from pending to stored, clicks that land meanwhile stay pending
+            counter.stored += delta;
+            counter.pending.add(-delta);
+            batch.add(new Object[]{delta, entry.getKey()});
+            flushed.add(counter);
+            deltas.add(delta);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(updateSql, batch);
+            // Rendered posts show the stored count, so they change with the flush rather than with the click
+            for (Object[] row : batch) {
+                entityCacheService.evictPost((Integer) row[1]);
+                versionStampService.touchPost((Integer) row[1]);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not flush {} like counters, retrying on the next flush", batch.size(), e);
+            for (int i = 0; i < flushed.size(); i++) {
+                flushed.get(i).pending.add(deltas.get(i));
+                flushed.get(i).stored -= deltas.get(i);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // A counter that saw no clicks for a whole flush interval is dropped to keep the map bounded
+    private void evictIfIdle(int postId, Counter counter) {
+        if (counter.touched) {
+            counter.touched = false;
+            return;
+        }
+        counter.retired = true;
+        if (counter.pending.sum() != 0) {
+            counter.retired = false;
+            return;
+        }
+        counters.remove(postId, counter);
+    }
+
+    private static class Counter {
+
+        private final LongAdder pending = new LongAdder();
+        // Only the flush thread writes stored, so the read-modify-writes on it do not race
+        private volatile long stored;
+        private volatile boolean retired;
+        private volatile boolean touched = true;
+        private final int threadId;
+
+        Counter(long stored, int threadId) {
+            this.stored = stored;
+            this.threadId = threadId;
+        }
+
+        int current() {
+            touched = true;
+            return (int) (stored + pending.sum());
+        }
+    }
+}
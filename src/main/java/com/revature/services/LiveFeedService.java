@@ -0,0 +1,252 @@
+package com.revature.services;
+
+import com.revature.dtos.FeedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Server-sent event streams of new posts, comments and likes, closing connections that fall behind
+@Service
+public class LiveFeedService {
+
+    private static final FeedEvent HEARTBEAT = new FeedEvent();
+
+    private final FollowGraphService followGraphService;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final int maxConnections;
+    private final int maxWatchedPosts;
+    private final ExecutorService senders;
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Set<Connection> everyPost = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Set<Connection>> byUser = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Connection>> byPost = new ConcurrentHashMap<>();
+
+    public LiveFeedService(FollowGraphService followGraphService,
+                           @Value("${flutter.live.buffer-size}") int bufferSize,
+                           @Value("${flutter.live.timeout-ms}") long timeoutMillis,
+                           @Value("${flutter.live.max-connections}") int maxConnections,
+                           @Value("${flutter.live.max-watched-posts}") int maxWatchedPosts,
+                           @Value("${flutter.live.threads}") int threads) {
+        this.followGraphService = followGraphService;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.maxConnections = maxConnections;
+        this.maxWatchedPosts = maxWatchedPosts;
+        AtomicInteger count = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "live-feed-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // New posts by the people the user follows. Throws RejectedExecutionException when there are too many connections
+    public SseEmitter subscribe(int userId, List<Integer> watchedPostIds) {
+        return subscribe(new SseEmitter(timeoutMillis), userId, watchedPostIds);
+    }
+
+    // New posts by anyone
+    public SseEmitter subscribeToAll(List<Integer> watchedPostIds) {
+        return subscribe(new SseEmitter(timeoutMillis), null, watchedPostIds);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Integer userId, List<Integer> watchedPostIds) {
+        if (connections.size() >= maxConnections) {
+            throw new RejectedExecutionException("Too many live feed connections");
+        }
+        Connection connection = new Connection(emitter, userId, bufferSize);
+        connections.add(connection);
+        if (userId == null) {
+            everyPost.add(connection);
+        } else {
+            addTo(byUser, userId, connection);
+        }
+        if (watchedPostIds != null) {
+            for (Integer postId : watchedPostIds) {
+                watch(connection, postId);
+            }
+        }
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(FeedEvent event) {
+        if (FeedEvent.POST.equals(event.getType())) {
+            for (Connection connection : everyPost) {
+                push(connection, event);
+            }
+            if (event.getAuthorId() != null && !byUser.isEmpty()) {
+                int[] followerIds = followGraphService.getFollowerIds(event.getAuthorId());
+                // Walk whichever side is smaller, the followers or the connected users
+                if (followerIds.length <= byUser.size()) {
+                    for (int followerId : followerIds) {
+                        pushAll(byUser.get(followerId), event);
+                    }
+                } else {
+                    for (Map.Entry<Integer, Set<Connection>> entry : byUser.entrySet()) {
+                        if (Arrays.binarySearch(followerIds, entry.getKey()) >= 0) {
+                            pushAll(entry.getValue(), event);
+                        }
+                    }
+                }
+            }
+        } else {
+            Set<Connection> watching = byPost.get(event.getPostId());
+            if (watching != null) {
+                for (Connection connection : watching) {
+                    offer(connection, event);
+                }
+            }
+        }
+    }
+
+    // Keeps idle connections from being cut by proxies, and finds the ones that went away
+    @Scheduled(fixedDelayString = "${flutter.live.heartbeat-ms}")
+    public void heartbeat() {
+        for (Connection connection : connections) {
+            offer(connection, HEARTBEAT);
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Connection connection : connections) {
+            try {
+                connection.emitter.complete();
+            } catch (RuntimeException e) {
+                // The client already went away
+            }
+        }
+    }
+
+    private void pushAll(Set<Connection> targets, FeedEvent event) {
+        if (targets != null) {
+            for (Connection connection : targets) {
+                push(connection, event);
+            }
+        }
+    }
+
+    // New posts are watched from then on, so their comments and likes follow
+    private void push(Connection connection, FeedEvent event) {
+        watch(connection, event.getPostId());
+        offer(connection, event);
+    }
+
+    private void watch(Connection connection, int postId) {
+        if (connection.watched.size() < maxWatchedPosts && connection.watched.add(postId)) {
+            addTo(byPost, postId, connection);
+            // Removed while this was being added
+            if (!connections.contains(connection)) {
+                removeFrom(byPost, postId, connection);
+            }
+        }
+    }
+
+    private void offer(Connection connection, FeedEvent event) {
+        if (!connection.buffer.offer(event)) {
+            remove(connection);
+            connection.emitter.complete();
+            return;
+        }
+        if (connection.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+    }
+
+    private void drain(Connection connection) {
+        try {
+            FeedEvent event;
+            while ((event = connection.buffer.poll()) != null) {
+                if (event == HEARTBEAT) {
+                    connection.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    connection.emitter.send(SseEmitter.event().name(event.getType()).data(event, MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the emitter completed
+            remove(connection);
+            connection.buffer.clear();
+        } finally {
+            connection.draining.set(false);
+        }
+        // An event offered after the last poll but before draining was cleared still needs a drain
+        if (!connection.buffer.isEmpty() && connection.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(connection));
+        }
+    }
+
+    private void remove(Connection connection) {
+        if (!connections.remove(connection)) {
+            return;
+        }
+        if (connection.userId == null) {
+            everyPost.remove(connection);
+        } else {
+            removeFrom(byUser, connection.userId, connection);
+        }
+        for (Integer postId : connection.watched) {
+            removeFrom(byPost, postId, connection);
+        }
+    }
+
+    // Sets are added and dropped inside compute, so an add never lands in a set that was just dropped
+    private static void addTo(Map<Integer, Set<Connection>> index, Integer key, Connection connection) {
+        index.compute(key, (id, set) -> {
+            Set<Connection> target = set == null ? ConcurrentHashMap.newKeySet() : set;
+            target.add(connection);
+            return target;
+        });
+    }
+
+    private static void removeFrom(Map<Integer, Set<Connection>> index, Integer key, Connection connection) {
+        index.computeIfPresent(key, (id, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static final class Connection {
+
+        private final SseEmitter emitter;
+        private final Integer userId;
+        private final BlockingQueue<FeedEvent> buffer;
+        private final Set<Integer> watched = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Connection(SseEmitter emitter, Integer userId, int bufferSize) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
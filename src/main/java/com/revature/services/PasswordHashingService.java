@@ -0,0 +1,162 @@
+package com.revature.services;
+
+import com.revature.exceptions.HashingUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// PBKDF2 password hashes computed on a small bounded pool
+@Service
+public class PasswordHashingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int MIN_ITERATIONS = 10000;
+    private static final int MAX_ITERATIONS = 5000000;
+    private static final int CALIBRATION_ITERATIONS = 20000;
+    private static final int CALIBRATION_MIN_RUNS = 10;
+    private static final int CALIBRATION_MAX_RUNS = 30;
+
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom random = new SecureRandom();
+    private final int iterations;
+
+    public PasswordHashingService(@Value("${flutter.passwords.threads}") int threads,
+                                  @Value("${flutter.passwords.queue-depth}") int queueDepth,
+                                  @Value("${flutter.passwords.target-millis}") long targetMillis) {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth), r -> {
+            Thread thread = new Thread(r, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.iterations = calibrate(targetMillis);
+        log.info("Hashing passwords with {} PBKDF2 iterations", iterations);
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        int work = iterations;
+        byte[] hash = submit(() -> pbkdf2(password, salt, work));
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + work + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    public boolean matches(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int work = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, submit(() -> pbkdf2(password, salt, work)));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Calibration differs a little between nodes and restarts, the slack keeps a login on one node
+    // from rehashing a password that another node hashed a moment ago
+    public boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) * 5L / 4 < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private byte[] submit(Callable<byte[]> task) {
+        Future<byte[]> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new HashingUnavailableException("Too many logins in progress", e);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingUnavailableException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Times the hash on the pool threads it will run on. The first runs are interpreted and several times
+    // slower, so it keeps going while the runs are still getting clearly faster and takes the fastest one
+    private int calibrate(long targetMillis) {
+        byte[] salt = new byte[SALT_BYTES];
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_MAX_RUNS; i++) {
+            long start = System.nanoTime();
+            submit(() -> pbkdf2("calibration", salt, CALIBRATION_ITERATIONS));
+            long elapsed = System.nanoTime() - start;
+            boolean improved = elapsed < best * 9 / 10;
+            best = Math.min(best, elapsed);
+            if (i >= CALIBRATION_MIN_RUNS && !improved) {
+                break;
+            }
+        }
+        long scaled = CALIBRATION_ITERATIONS * TimeUnit.MILLISECONDS.toNanos(targetMillis) / Math.max(best, 1);
+        // Rounded, so nodes on the same hardware usually land on the same count
+        long rounded = scaled / 1000 * 1000;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, rounded));
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
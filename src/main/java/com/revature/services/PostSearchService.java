@@ -0,0 +1,375 @@
+package com.revature.services;
+
+import com.revature.repositories.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// In-process BM25 full-text index over post text
+@Service
+public class PostSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSearchService.class);
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_TERM_LENGTH = 40;
+    private static final int MAX_QUERY_TERMS = 16;
+    // Deepest result that can be paged to, bounds the size of the top-k heap
+    public static final int MAX_RESULTS = 1000;
+
+    private final PostRepository postRepository;
+
+    private volatile Index index = new Index(new ConcurrentHashMap<>(), new Documents(new int[1024], new int[1024], 0));
+    private volatile long liveCount;
+    private volatile long liveLength;
+
+    // Everything below is only used by writers, under the lock
+    private final Object lock = new Object();
+    private final Map<Integer, Integer> documentsByPostId = new HashMap<>();
+    private int retired;
+    // Posts written while the initial build reads the table, their rows in the build are stale
+    private Set<Integer> writtenDuringBuild;
+
+    public PostSearchService(PostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        synchronized (lock) {
+            writtenDuringBuild = new HashSet<>();
+        }
+        long start = System.nanoTime();
+        try (Stream<Object[]> rows = postRepository.streamAllTexts()) {
+            rows.forEach(row -> {
+                int postId = (Integer) row[0];
+                synchronized (lock) {
+                    if (!writtenDuringBuild.contains(postId)) {
+                        add(postId, (String) row[1]);
+                    }
+                }
+            });
+        } finally {
+            synchronized (lock) {
+                writtenDuringBuild = null;
+            }
+        }
+        log.info("Indexed {} posts and {} terms in {} ms", liveCount, index.postings.size(), (System.nanoTime() - start) / 1000000);
+    }
+
+    // Adds the post, or replaces what was indexed for it
+    public void index(int postId, String text) {
+        synchronized (lock) {
+            if (writtenDuringBuild != null) {
+                writtenDuringBuild.add(postId);
+            }
+            retire(postId);
+            add(postId, text);
+            compactIfNeeded();
+        }
+    }
+
+    public void remove(int postId) {
+        synchronized (lock) {
+            if (writtenDuringBuild != null) {
+                writtenDuringBuild.add(postId);
+            }
+            retire(postId);
+            compactIfNeeded();
+        }
+    }
+
+    // Ids of the best matching posts for any of the query terms, best first, skipping the first offset matches
+    public List<Integer> search(String query, int offset, int limit) {
+        List<String> terms = new ArrayList<>(termFrequencies(query).keySet());
+        int wanted = Math.min(offset + limit, MAX_RESULTS);
+        if (terms.isEmpty() || offset >= wanted) {
+            return new ArrayList<>();
+        }
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+
+        Index current = index;
+        Documents docs = current.documents;
+        long count = Math.max(1, liveCount);
+        double averageLength = Math.max(1.0, (double) liveLength / count);
+        List<Cursor> cursors = new ArrayList<>();
+        for (String term : terms) {
+            Postings list = current.postings.get(term);
+            if (list != null) {
+                double idf = Math.log(1 + (count - list.count + 0.5) / (list.count + 0.5));
+                cursors.add(new Cursor(list, Math.max(idf, 0.0)));
+            }
+        }
+
+        // Document at a time: all cursors advance together in document order, keeping the best (score, post id)
+        // pairs in a min-heap. Equal scores rank the newer post first
+        PriorityQueue<double[]> best = new PriorityQueue<>(wanted + 1, (a, b) -> Double.compare(a[0], b[0]) != 0
+                ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (Cursor cursor : cursors) {
+                if (cursor.hasCurrent() && cursor.doc < doc) {
+                    doc = cursor.doc;
+                }
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+            double score = 0;
+            for (Cursor cursor : cursors) {
+                if (cursor.hasCurrent() && cursor.doc == doc) {
+                    if (doc < docs.count) {
+                        double length = docs.lengths[doc];
+                        score += cursor.idf * cursor.frequency * (K1 + 1)
+                                / (cursor.frequency + K1 * (1 - B + B * length / averageLength));
+                    }
+                    cursor.next();
+                }
+            }
+            if (doc < docs.count && docs.postIds[doc] >= 0) {
+                best.add(new double[]{score, docs.postIds[doc]});
+                if (best.size() > wanted) {
+                    best.poll();
+                }
+            }
+        }
+
+        double[][] ranked = best.toArray(new double[0][]);
+        Arrays.sort(ranked, best.comparator().reversed());
+        List<Integer> page = new ArrayList<>(limit);
+        for (int i = offset; i < ranked.length; i++) {
+            page.add((int) ranked[i][1]);
+        }
+        return page;
+    }
+
+    private void retire(int postId) {
+        Integer doc = documentsByPostId.remove(postId);
+        if (doc != null) {
+            Documents docs = index.documents;
+            docs.postIds[doc] = -1;
+            liveCount--;
+            liveLength -= docs.lengths[doc];
+            retired++;
+        }
+    }
+
+    private void add(int postId, String text) {
+        Map<String, Integer> frequencies = termFrequencies(text);
+        if (frequencies.isEmpty()) {
+            return;
+        }
+        int length = 0;
+        for (int frequency : frequencies.values()) {
+            length += frequency;
+        }
+
+        Index current = index;
+        Documents docs = current.documents;
+        int doc = docs.count;
+        if (doc == docs.postIds.length) {
+            docs = new Documents(Arrays.copyOf(docs.postIds, doc * 2), Arrays.copyOf(docs.lengths, doc * 2), doc);
+        }
+        docs.postIds[doc] = postId;
+        docs.lengths[doc] = length;
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            Postings list = current.postings.get(term.getKey());
+            current.postings.put(term.getKey(), list == null
+                    ? Postings.EMPTY.append(doc, term.getValue())
+                    : list.append(doc, term.getValue()));
+        }
+        current.documents = new Documents(docs.postIds, docs.lengths, doc + 1);
+        documentsByPostId.put(postId, doc);
+        liveCount++;
+        liveLength += length;
+    }
+
+    // Renumbers the live documents in order once retired ones make up a third of the index, and rewrites every
+    // postings list with the new numbers
+    private void compactIfNeeded() {
+        Index current = index;
+        Documents docs = current.documents;
+        if (retired < 1024 || retired < docs.count / 3) {
+            return;
+        }
+        int[] renumbered = new int[docs.count];
+        int live = 0;
+        for (int doc = 0; doc < docs.count; doc++) {
+            renumbered[doc] = docs.postIds[doc] >= 0 ? live++ : -1;
+        }
+        int[] postIds = new int[Math.max(1024, live * 2)];
+        int[] lengths = new int[postIds.length];
+        for (int doc = 0; doc < docs.count; doc++) {
+            if (renumbered[doc] >= 0) {
+                postIds[renumbered[doc]] = docs.postIds[doc];
+                lengths[renumbered[doc]] = docs.lengths[doc];
+                documentsByPostId.put(docs.postIds[doc], renumbered[doc]);
+            }
+        }
+
+        Map<String, Postings> compacted = new ConcurrentHashMap<>();
+        for (Map.Entry<String, Postings> entry : current.postings.entrySet()) {
+            Postings list = Postings.EMPTY;
+            Cursor cursor = new Cursor(entry.getValue(), 0);
+            while (cursor.hasCurrent()) {
+                if (renumbered[cursor.doc] >= 0) {
+                    list = list.append(renumbered[cursor.doc], cursor.frequency);
+                }
+                cursor.next();
+            }
+            if (list.count > 0) {
+                compacted.put(entry.getKey(), list);
+            }
+        }
+        index = new Index(compacted, new Documents(postIds, lengths, live));
+        retired = 0;
+    }
+
+    // Document numbers in use, live or retired
+    int documentCount() {
+        return index.documents.count;
+    }
+
+    // Lower cased runs of letters and digits
+    static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        if (text == null) {
+            return frequencies;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                if (i - start <= MAX_TERM_LENGTH) {
+                    frequencies.merge(text.substring(start, i).toLowerCase(Locale.ROOT), 1, Integer::sum);
+                }
+                start = -1;
+            }
+        }
+        return frequencies;
+    }
+
+    private static final class Index {
+
+        private final Map<String, Postings> postings;
+        private volatile Documents documents;
+
+        private Index(Map<String, Postings> postings, Documents documents) {
+            this.postings = postings;
+            this.documents = documents;
+        }
+    }
+
+    private static final class Documents {
+
+        // Post id per document number, -1 once retired
+        private final int[] postIds;
+        private final int[] lengths;
+        private final int count;
+
+        private Documents(int[] postIds, int[] lengths, int count) {
+            this.postIds = postIds;
+            this.lengths = lengths;
+            this.count = count;
+        }
+    }
+
+    private static final class Postings {
+
+        private static final Postings EMPTY = new Postings(new byte[0], 0, 0, -1);
+
+        private final byte[] data;
+        private final int size;
+        private final int count;
+        private final int lastDoc;
+
+        private Postings(byte[] data, int size, int count, int lastDoc) {
+            this.data = data;
+            this.size = size;
+            this.count = count;
+            this.lastDoc = lastDoc;
+        }
+
+        // Document numbers only grow, so the gap to the previous one is never negative
+        private Postings append(int doc, int frequency) {
+            byte[] target = data;
+            if (size + 10 > target.length) {
+                target = Arrays.copyOf(data, Math.max(16, (size + 10) * 2));
+            }
+            int end = writeVarint(target, size, doc - lastDoc);
+            end = writeVarint(target, end, frequency);
+            return new Postings(target, end, count + 1, doc);
+        }
+
+        private static int writeVarint(byte[] target, int at, int value) {
+            while ((value & ~0x7f) != 0) {
+                target[at++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            target[at++] = (byte) value;
+            return at;
+        }
+    }
+
+    private static final class Cursor {
+
+        private final Postings postings;
+        private final double idf;
+        private int position;
+        private int doc = -1;
+        private int frequency;
+        private boolean current;
+
+        private Cursor(Postings postings, double idf) {
+            this.postings = postings;
+            this.idf = idf;
+            next();
+        }
+
+        private boolean hasCurrent() {
+            return current;
+        }
+
+        private void next() {
+            if (position >= postings.size) {
+                current = false;
+                return;
+            }
+            doc += readVarint();
+            frequency = readVarint();
+            current = true;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings.data[position++];
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.revature.services;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import com.revature.models.PostType;
 import com.revature.models.User;
 import com.revature.repositories.UserRepository;
+import com.revature.dtos.FeedEvent;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import com.revature.models.Post;
@@ -16,54 +27,348 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class PostService {
 
+	// Most posts or comments accepted by one bulk create
+	public static final int MAX_BULK_SIZE = 500;
+
 	private PostRepository postRepository;
 	private UserRepository userRepository;
+	private final TimelineService timelineService;
+	private final CommentTreeService commentTreeService;
+	private final FollowGraphService followGraphService;
+	private final EntityCacheService entityCacheService;
+	private final RequestCoalescer requestCoalescer;
+	private final PostSearchService postSearchService;
+	private final TrendingService trendingService;
+	private final ApplicationEventPublisher eventPublisher;
+	private final VersionStampService versionStampService;
+	private final CounterService counterService;
+	private final FeedVersionService feedVersionService;
 	
-	public PostService(PostRepository postRepository) {
+	public PostService(PostRepository postRepository, TimelineService timelineService, CommentTreeService commentTreeService,
+					   FollowGraphService followGraphService, EntityCacheService entityCacheService,
+					   RequestCoalescer requestCoalescer, PostSearchService postSearchService,
+					   TrendingService trendingService, ApplicationEventPublisher eventPublisher,
+					   VersionStampService versionStampService, CounterService counterService,
+					   FeedVersionService feedVersionService) {
 		this.postRepository = postRepository;
+		this.timelineService = timelineService;
+		this.commentTreeService = commentTreeService;
+		this.followGraphService = followGraphService;
+		this.entityCacheService = entityCacheService;
+		this.requestCoalescer = requestCoalescer;
+		this.postSearchService = postSearchService;
+		this.trendingService = trendingService;
+		this.eventPublisher = eventPublisher;
+		this.versionStampService = versionStampService;
+		this.counterService = counterService;
+		this.feedVersionService = feedVersionService;
 	}
 
+	@Transactional(readOnly = true)
 	public List<Post> getAll() {
 		return this.postRepository.findAll();
 	}
 
 	public Post upsert(Post post) {
-		return this.postRepository.save(post);
+		boolean created = post.getId() == 0;
+		Post saved;
+		try {
+			saved = this.postRepository.save(post);
+		} finally {
+			entityCacheService.evictPost(post.getId());
+		}
+		postSearchService.index(saved.getId(), saved.getText());
+		touch(saved);
+		if (created) {
+			countPost(saved, 1);
+			timelineService.fanOut(saved);
+			trendingService.recordCreated(saved);
+			publishCreated(saved);
+		}
+		return saved;
+	}
+
+	// New posts and the new comments nested in them, saved in one transaction. Ids are assigned from the sequence
+	// on save, and the inserts go out in JDBC batches when the transaction commits
+	public List<Post> createAll(List<Post> posts) {
+		List<Post> saved = postRepository.saveAll(posts);
+		for (Post post : saved) {
+			created(post);
+		}
+		return saved;
+	}
+
+	// The comments are inserted in the same batches, each row pointing at the parent
+	@Transactional
+	public Post addComments(Post post, List<Post> comments) {
+		Post parent = postRepository.findById(post.getId()).orElse(post);
+		for (Post comment : comments) {
+			comment.attachTo(parent);
+		}
+		List<Post> saved = postRepository.saveAll(comments);
+		addToLoadedComments(parent, saved);
+		counterService.addComments(parent.getId(), saved.size());
+		parent.setCommentCount(parent.getCommentCount() + saved.size());
+		entityCacheService.evictPost(parent.getId());
+		versionStampService.touchPost(parent.getId());
+		for (Post comment : saved) {
+			created(comment);
+			trendingService.recordComment(parent.childRootId());
+			publishComment(parent.getId(), comment);
+		}
+		return parent;
 	}
 
+	private void created(Post post) {
+		postSearchService.index(post.getId(), post.getText());
+		touch(post);
+		countPost(post, 1);
+		timelineService.fanOut(post);
+		trendingService.recordCreated(post);
+		publishCreated(post);
+		if (post.getComments() != null) {
+			for (Post comment : post.getComments()) {
+				created(comment);
+				trendingService.recordComment(post.childRootId());
+				publishComment(post.getId(), comment);
+			}
+		}
+	}
+
+	// Live feeds only announce top level posts, comments reach them as comment events on their parent
+	private void publishCreated(Post post) {
+		if (post.getPostType() == PostType.Top) {
+			eventPublisher.publishEvent(new FeedEvent(FeedEvent.POST, post.getId(), authorId(post), null,
+					post.getText(), post.getImageUrl(), null));
+		}
+	}
+
+	private void publishComment(int parentId, Post comment) {
+		eventPublisher.publishEvent(new FeedEvent(FeedEvent.COMMENT, parentId, authorId(comment), comment.getId(),
+				comment.getText(), comment.getImageUrl(), null));
+	}
+
+	// Top level posts are also on their author's list of posts and their followers' feeds, and on the listing of all
+	// top level posts
+	private void touch(Post post) {
+		versionStampService.touchPost(post.getId());
+		if (post.getPostType() == PostType.Top) {
+			entityCacheService.evictTopPosts();
+			if (post.getAuthor() != null) {
+				versionStampService.touchPostsBy(post.getAuthor().getId());
+				feedVersionService.touchFeeds(post.getAuthor().getId());
+			}
+		}
+	}
+
+	// Top level posts count towards their author's posts, which are shown with the author
+	private void countPost(Post post, int delta) {
+		if (post.getPostType() == PostType.Top && post.getAuthor() != null) {
+			int authorId = post.getAuthor().getId();
+			counterService.addPosts(authorId, delta);
+			entityCacheService.evictUser(authorId);
+			versionStampService.touchUser(authorId);
+		}
+	}
+
+	private static Integer authorId(Post post) {
+		return post.getAuthor() == null ? null : post.getAuthor().getId();
+	}
+
+	@Transactional(readOnly = true)
 	public List<Post> getAllTop() {
-		return postRepository.findAllByPostType(PostType.Top);
+		List<Post> posts = postRepository.findAllByPostType(PostType.Top);
+		commentTreeService.loadCommentTrees(posts);
+		return posts;
+	}
+
+	public List<Post> getPage(int afterId, int limit) {
+		List<Post> page = postRepository.findByIdLessThanOrderByIdDesc(afterId, PageRequest.of(0, limit));
+		commentTreeService.loadCommentTrees(page);
+		return page;
+	}
+
+	public List<Post> getTopPage(int afterId, int limit) {
+		List<Post> page = postRepository.findByPostTypeAndIdLessThanOrderByIdDesc(PostType.Top, afterId, PageRequest.of(0, limit));
+		commentTreeService.loadCommentTrees(page);
+		return page;
 	}
 
+	// A detached copy without the comments, of its own for every caller. Use findByIdForUpdate for changes
 	public Optional<Post> findById(int id) {
+		return entityCacheService.getPost(id, () -> postRepository.findById(id));
+	}
+
+	// The request's own managed instance, for changes saved through upsert
+	public Optional<Post> findByIdForUpdate(int id) {
 		return postRepository.findById(id);
 	}
 
+	// Read-only view of a post with its reply tree, use findById for posts that will be modified.
+	// Concurrent reads of the same post share one load
+	public Optional<Post> getPostWithComments(int id) {
+		return requestCoalescer.execute("postWithComments", id, () -> {
+			Optional<Post> post = postRepository.findById(id);
+			post.ifPresent(p -> commentTreeService.loadCommentTrees(Collections.singletonList(p)));
+			return post;
+		});
+	}
+
+	// The post and every reply below it go in one range delete over their paths. The parent and the author's list
+	// of posts are touched as well, the post drops out of them
 	@Transactional
-	public void deletePost(int id) { this.postRepository.deleteById(id);}
+	public void deletePost(int id) {
+		Optional<Post> found = postRepository.findById(id);
+		if (!found.isPresent()) {
+			return;
+		}
+		Post post = found.get();
+		touch(post);
+		countPost(post, -1);
+		timelineService.remove(post);
+		if (post.getParentId() != null) {
+			counterService.addComments(post.getParentId(), -1);
+			entityCacheService.evictPost(post.getParentId());
+			versionStampService.touchPost(post.getParentId());
+		}
+		List<Integer> deleted = new ArrayList<>(postRepository.findReplyTreeIds(post.childRootId(), post.childPath(),
+				post.childPathEnd()));
+		deleted.add(id);
+		postRepository.deleteWithReplyTree(id, post.childRootId(), post.childPath(), post.childPathEnd());
+		for (int deletedId : deleted) {
+			entityCacheService.evictPost(deletedId);
+			versionStampService.touchPost(deletedId);
+			postSearchService.remove(deletedId);
+			trendingService.remove(deletedId);
+		}
+	}
 
+	// Ranked by the search index, only the page itself is read from the database
+	public List<Post> search(String query, int offset, int limit) {
+		List<Integer> ids = postSearchService.search(query, offset, limit);
+		Map<Integer, Post> found = postRepository.findAllById(ids).stream()
+				.collect(Collectors.toMap(Post::getId, Function.identity()));
+		List<Post> page = ids.stream().map(found::get).filter(Objects::nonNull).collect(Collectors.toList());
+		commentTreeService.loadCommentTrees(page);
+		return page;
+	}
+
+	@Transactional(readOnly = true)
 	public Optional<List<Post>> getFeedForUser(List<User> following){
 		Optional<List<Post>> feed = postRepository.findByAuthorInAndPostType(following, PostType.Top);
+		feed.ifPresent(posts -> {
+			// Newest first, like the timeline it warms
+			posts.sort(Comparator.comparingInt(Post::getId).reversed());
+			commentTreeService.loadCommentTrees(posts);
+		});
 		return feed;
 	}
 
+	// Reads the feed from the user's precomputed timeline, empty if the timeline is cold
+	@Transactional(readOnly = true)
+	public Optional<List<Post>> getTimelineFeed(int userId) {
+		Optional<List<Integer>> postIds = timelineService.getPostIds(userId);
+		if (!postIds.isPresent()) {
+			return Optional.empty();
+		}
+		List<Post> feed = postRepository.findAllById(postIds.get());
+		feed.sort(Comparator.comparingInt(Post::getId).reversed());
+		commentTreeService.loadCommentTrees(feed);
+		return Optional.of(feed);
+	}
+
+	// The posts with these ids, newest first, with their comment trees. Loads and detaches them in one transaction,
+	// so it also works on threads without an open entity manager
+	@Transactional(readOnly = true)
+	public List<Post> getPostsNewestFirst(List<Integer> ids) {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		List<Post> posts = new ArrayList<>(postRepository.findAllById(ids));
+		posts.sort(Comparator.comparingInt(Post::getId).reversed());
+		commentTreeService.loadCommentTrees(posts);
+		return posts;
+	}
+
+	public void warmTimeline(int userId, List<Post> feed) {
+		timelineService.warm(userId, feed);
+	}
+
+	// Pages through the user's timeline, continuing with a keyset query once the timeline runs out
+	public List<Post> getFeedPage(User user, int afterId, int limit) {
+		List<Integer> pageIds = new ArrayList<>(limit);
+		Optional<List<Integer>> timelineIds = timelineService.getPostIds(user.getId());
+		if (timelineIds.isPresent()) {
+			for (Integer postId : timelineIds.get()) {
+				if (postId < afterId && pageIds.size() < limit) {
+					pageIds.add(postId);
+				}
+			}
+		}
+
+		List<Post> page = new ArrayList<>(postRepository.findAllById(pageIds));
+		page.sort(Comparator.comparingInt(Post::getId).reversed());
+		// Posts deleted since they were pushed are missing from the page, the keyset query fills their places too
+		if (page.size() < limit) {
+			int lastId = pageIds.isEmpty() ? afterId : pageIds.get(pageIds.size() - 1);
+			List<Integer> followingIds = Arrays.stream(followGraphService.getFollowingIds(user.getId())).boxed().collect(Collectors.toList());
+			if (!followingIds.isEmpty()) {
+				page.addAll(postRepository.findByAuthorIdInAndPostTypeAndIdLessThanOrderByIdDesc(
+						followingIds, PostType.Top, lastId, PageRequest.of(0, limit - page.size())));
+			}
+		}
+		commentTreeService.loadCommentTrees(page);
+		return page;
+	}
+
+	@Transactional(readOnly = true)
 	public Optional<List<Post>> getAllPostsByUser(User user) {
-		return postRepository.findAllByAuthorAndPostType(user, PostType.Top);
+		Optional<List<Post>> posts = postRepository.findAllByAuthorAndPostType(user, PostType.Top);
+		posts.ifPresent(commentTreeService::loadCommentTrees);
+		return posts;
+	}
+
+	public List<Post> getPostsByUserPage(User user, int afterId, int limit) {
+		List<Post> page = postRepository.findByAuthorAndPostTypeAndIdLessThanOrderByIdDesc(user, PostType.Top, afterId, PageRequest.of(0, limit));
+		commentTreeService.loadCommentTrees(page);
+		return page;
 	}
+	// A single insert of the new comment, the parent row is not written. The parent is read again, the one passed in
+	// may be a detached cache entry
 	@Transactional
 	public Post addComment(Post post, Post comment) {
-		List<Post> commentList = post.getComments();
-		commentList.add(comment);
-		post.setComments(commentList);
-		return post;
+		Post parent = postRepository.findById(post.getId()).orElse(post);
+		comment.attachTo(parent);
+		postRepository.save(comment);
+		addToLoadedComments(parent, Collections.singletonList(comment));
+		counterService.addComments(parent.getId(), 1);
+		parent.setCommentCount(parent.getCommentCount() + 1);
+		entityCacheService.evictPost(parent.getId());
+		versionStampService.touchPost(parent.getId());
+		created(comment);
+		trendingService.recordComment(parent.childRootId());
+		publishComment(parent.getId(), comment);
+		return parent;
 	}
 
+	// Deletes the comment with its replies, see deletePost. The parent is read before, so it still has the old count
 	@Transactional
 	public Post deleteComment(Post post, Post comment) {
-		List<Post> commentList = post.getComments();
-		commentList.remove(comment);
-		post.setComments(commentList);
+		Post parent = postRepository.findById(post.getId()).orElse(post);
 		deletePost(comment.getId());
-		return post;
+		if (comment.getParentId() != null && comment.getParentId() == parent.getId()) {
+			parent.setCommentCount(parent.getCommentCount() - 1);
+		}
+		if (parent.getComments() != null && Hibernate.isInitialized(parent.getComments())) {
+			parent.getComments().removeIf(c -> c.getId() == comment.getId());
+		}
+		return parent;
+	}
+
+	// A comment list not loaded yet reads the new comments from the database, one already loaded would miss them
+	private static void addToLoadedComments(Post parent, List<Post> comments) {
+		if (parent.getComments() != null && Hibernate.isInitialized(parent.getComments())) {
+			parent.getComments().addAll(comments);
+		}
 	}
 }
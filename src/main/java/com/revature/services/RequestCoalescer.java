@@ -0,0 +1,89 @@
+package com.revature.services;
+
+import com.revature.dtos.CoalescingStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Shares one load between concurrent requests for the same key, only for results that are never modified
+@Service
+public class RequestCoalescer {
+
+    private final long windowMillis;
+    private final Map<String, Flights> flights = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(@Value("${flutter.coalescing.window-ms}") long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    // Runs loader for the key unless a load of the same name and key is in flight or inside the window
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String name, Object key, Supplier<V> loader) {
+        Flights group = flights.computeIfAbsent(name, n -> new Flights());
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = group.calls.putIfAbsent(key, flight);
+        if (existing != null) {
+            group.collapsed.increment();
+            return (V) join(existing);
+        }
+
+        group.executions.increment();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            release(group, key, flight, windowMillis);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            release(group, key, flight, 0);
+            throw e;
+        }
+    }
+
+    public List<CoalescingStatistics> getStatistics() {
+        List<CoalescingStatistics> statistics = new ArrayList<>();
+        flights.forEach((name, group) ->
+                statistics.add(new CoalescingStatistics(name, group.executions.sum(), group.collapsed.sum())));
+        return statistics;
+    }
+
+    private static void release(Flights group, Object key, CompletableFuture<Object> flight, long delayMillis) {
+        if (delayMillis <= 0) {
+            group.calls.remove(key, flight);
+        } else {
+            CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS)
+                    .execute(() -> group.calls.remove(key, flight));
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // Rethrow what the loading request threw, not the future's wrapper
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Flights {
+
+        private final Map<Object, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder collapsed = new LongAdder();
+    }
+}
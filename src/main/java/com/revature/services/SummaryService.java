@@ -0,0 +1,137 @@
+package com.revature.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.dtos.AuthorSummary;
+import com.revature.dtos.PostSummary;
+import com.revature.models.PostType;
+import com.revature.repositories.PostRepository;
+import com.revature.repositories.UserRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Streams list responses as JSON summaries straight from a database cursor
+@Service
+public class SummaryService {
+
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final FollowGraphService followGraphService;
+    private final ObjectMapper objectMapper;
+
+    public SummaryService(PostRepository postRepository, UserRepository userRepository,
+                          FollowGraphService followGraphService, ObjectMapper objectMapper) {
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.followGraphService = followGraphService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public void writeAllPosts(OutputStream out) throws IOException {
+        try (Stream<PostSummary> posts = postRepository.streamAllSummaries()) {
+            writePosts(posts, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeTopPosts(OutputStream out) throws IOException {
+        try (Stream<PostSummary> posts = postRepository.streamSummariesByPostType(PostType.Top)) {
+            writePosts(posts, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writePostsByUser(int userId, OutputStream out) throws IOException {
+        try (Stream<PostSummary> posts = postRepository.streamSummariesByAuthorIds(Collections.singletonList(userId), PostType.Top)) {
+            writePosts(posts, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeFeed(int userId, OutputStream out) throws IOException {
+        List<Integer> followingIds = Arrays.stream(followGraphService.getFollowingIds(userId)).boxed().collect(Collectors.toList());
+        if (followingIds.isEmpty()) {
+            writePosts(Stream.empty(), out);
+            return;
+        }
+        try (Stream<PostSummary> posts = postRepository.streamSummariesByAuthorIds(followingIds, PostType.Top)) {
+            writePosts(posts, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeAllUsers(OutputStream out) throws IOException {
+        try (Stream<AuthorSummary> users = userRepository.streamAllSummaries();
+             JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            for (AuthorSummary user : (Iterable<AuthorSummary>) users::iterator) {
+                json.writeStartObject();
+                writeAuthorFields(json, user.getId(), user.getUsername(), user.getFirstName(), user.getLastName(),
+                        user.getImageUrl());
+                json.writeNumberField("followerCount", user.getFollowerCount());
+                json.writeNumberField("followingCount", user.getFollowingCount());
+                json.writeNumberField("postCount", user.getPostCount());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    // A page of a post's direct comments, oldest first. Their replies are only counted, clients page through them
+    // by the comment's id in turn
+    @Transactional(readOnly = true)
+    public List<PostSummary> getCommentPage(int postId, int afterId, int limit) {
+        return postRepository.findCommentSummaries(postId, afterId, PageRequest.of(0, limit));
+    }
+
+    public void writePosts(List<PostSummary> posts, OutputStream out) throws IOException {
+        writePosts(posts.stream(), out);
+    }
+
+    private void writePosts(Stream<PostSummary> posts, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            for (PostSummary post : (Iterable<PostSummary>) posts::iterator) {
+                json.writeStartObject();
+                json.writeNumberField("id", post.getId());
+                json.writeStringField("text", post.getText());
+                json.writeStringField("imageUrl", post.getImageUrl());
+                json.writeStringField("postType", post.getPostType() == null ? null : post.getPostType().name());
+                json.writeNumberField("likes", post.getLikes());
+                json.writeNumberField("commentCount", post.getCommentCount());
+                if (post.getAuthorId() == null) {
+                    json.writeNullField("author");
+                } else {
+                    json.writeFieldName("author");
+                    json.writeStartObject();
+                    writeAuthorFields(json, post.getAuthorId(), post.getAuthorUsername(), post.getAuthorFirstName(),
+                            post.getAuthorLastName(), post.getAuthorImageUrl());
+                    json.writeEndObject();
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    // Post summaries show their author without the counts
+    private void writeAuthorFields(JsonGenerator json, int id, String username, String firstName, String lastName,
+                                   String imageUrl) throws IOException {
+        json.writeNumberField("id", id);
+        json.writeStringField("username", username);
+        json.writeStringField("firstName", firstName);
+        json.writeStringField("lastName", lastName);
+        json.writeStringField("imageUrl", imageUrl);
+    }
+}
@@ -0,0 +1,219 @@
+package com.revature.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import com.revature.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// Per-node fan-out-on-write timelines of Top post ids, for users whose feed was read recently
+@Service
+public class TimelineService {
+
+    private final FollowGraphService followGraphService;
+    private final PostRepository postRepository;
+    private final int capacity;
+    private final int celebrityThreshold;
+
+    private final Cache<Integer, Timeline> timelines;
+    private final Cache<Integer, Boolean> celebrities;
+
+    public TimelineService(FollowGraphService followGraphService, PostRepository postRepository,
+                           @Value("${flutter.timeline.capacity}") int capacity,
+                           @Value("${flutter.timeline.celebrity-threshold}") int celebrityThreshold,
+                           @Value("${flutter.timeline.max-users}") long maxUsers,
+                           @Value("${flutter.timeline.ttl-seconds}") long ttlSeconds) {
+        this.followGraphService = followGraphService;
+        this.postRepository = postRepository;
+        this.capacity = capacity;
+        this.celebrityThreshold = celebrityThreshold;
+        this.timelines = Caffeine.newBuilder().maximumSize(maxUsers).expireAfterWrite(Duration.ofSeconds(ttlSeconds)).build();
+        // Marks last as long as timelines, so no timeline outlives the mark of a celebrity whose posts it skipped
+        this.celebrities = Caffeine.newBuilder().maximumSize(maxUsers).expireAfterWrite(Duration.ofSeconds(ttlSeconds)).build();
+    }
+
+    // Pushes a newly created Top post onto the timeline of every follower of its author
+    public void fanOut(Post post) {
+        if (post.getPostType() != PostType.Top || post.getAuthor() == null) {
+            return;
+        }
+        int authorId = post.getAuthor().getId();
+        int[] followerIds = followGraphService.getFollowerIds(authorId);
+        if (followerIds.length > celebrityThreshold) {
+            celebrities.put(authorId, Boolean.TRUE);
+            return;
+        }
+        celebrities.invalidate(authorId);
+
+        for (int followerId : followerIds) {
+            // Cold timelines are left alone, they are rebuilt from the database on first read
+            Timeline timeline = timelines.getIfPresent(followerId);
+            if (timeline != null) {
+                timeline.push(post.getId());
+            }
+        }
+    }
+
+    // Newest-first post ids for the user's feed, empty while the timeline is cold
+    public Optional<List<Integer>> getPostIds(int userId) {
+        Timeline timeline = timelines.getIfPresent(userId);
+        if (timeline == null || !timeline.isWarm()) {
+            return Optional.empty();
+        }
+        int[] ids = timeline.snapshot();
+
+        if (celebrities.asMap().isEmpty()) {
+            List<Integer> postIds = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                postIds.add(id);
+            }
+            return Optional.of(postIds);
+        }
+        return Optional.of(mergeCelebrityPosts(userId, ids));
+    }
+
+    // Registers a cold timeline before its feed is rebuilt, so it collects the posts pushed while warm reads the feed
+    public void startWarming(int userId) {
+        timelines.asMap().putIfAbsent(userId, new Timeline(capacity));
+    }
+
+    // Seeds a cold timeline from a fan-out-on-read feed, keeping posts pushed since startWarming
+    public void warm(int userId, List<Post> feed) {
+        int[] ids = feed.stream().mapToInt(Post::getId).toArray();
+        timelines.asMap().compute(userId, (id, timeline) -> {
+            Timeline warm = timeline == null ? new Timeline(capacity) : timeline;
+            warm.warm(ids);
+            return warm;
+        });
+    }
+
+    // Takes a deleted Top post off its author's followers' timelines
+    public void remove(Post post) {
+        if (post.getPostType() != PostType.Top || post.getAuthor() == null) {
+            return;
+        }
+        int[] followerIds = followGraphService.getFollowerIds(post.getAuthor().getId());
+        if (followerIds.length > celebrityThreshold) {
+            return;
+        }
+        for (int followerId : followerIds) {
+            Timeline timeline = timelines.getIfPresent(followerId);
+            if (timeline != null) {
+                timeline.remove(post.getId());
+            }
+        }
+    }
+
+    // Drops the user's timeline, e.g. after they follow or unfollow someone
+    public void invalidate(int userId) {
+        timelines.invalidate(userId);
+    }
+
+    private List<Integer> mergeCelebrityPosts(int userId, int[] ids) {
+        List<Integer> followedCelebrities = new ArrayList<>();
+        for (int followingId : followGraphService.getFollowingIds(userId)) {
+            if (celebrities.getIfPresent(followingId) != null) {
+                followedCelebrities.add(followingId);
+            }
+        }
+
+        int[] merged = ids;
+        if (!followedCelebrities.isEmpty()) {
+            List<Post> celebrityPosts = postRepository.findByAuthorIdInAndPostTypeOrderByIdDesc(
+                    followedCelebrities, PostType.Top, PageRequest.of(0, capacity));
+            merged = Arrays.copyOf(ids, ids.length + celebrityPosts.size());
+            for (int i = 0; i < celebrityPosts.size(); i++) {
+                merged[ids.length + i] = celebrityPosts.get(i).getId();
+            }
+            Arrays.sort(merged);
+            reverse(merged);
+        }
+
+        Set<Integer> postIds = new LinkedHashSet<>();
+        for (int i = 0; i < merged.length && postIds.size() < capacity; i++) {
+            postIds.add(merged[i]);
+        }
+        return new ArrayList<>(postIds);
+    }
+
+    private static void reverse(int[] ids) {
+        for (int i = 0, j = ids.length - 1; i < j; i++, j--) {
+            int tmp = ids[i];
+            ids[i] = ids[j];
+            ids[j] = tmp;
+        }
+    }
+
+    // Fixed-size ring buffer of post ids, the oldest id is overwritten once full. Collects pushes before it is warm
+    static class Timeline {
+
+        private final int[] ring;
+        private int head;
+        private int size;
+        private boolean warm;
+
+        Timeline(int capacity) {
+            this.ring = new int[capacity];
+        }
+
+        synchronized boolean isWarm() {
+            return warm;
+        }
+
+        // Keeps the newest ids of the feed and of what was pushed so far
+        synchronized void warm(int[] ids) {
+            int[] newest = IntStream.concat(IntStream.of(ids), IntStream.of(snapshot())).distinct().sorted().toArray();
+            head = 0;
+            size = 0;
+            for (int i = Math.max(0, newest.length - ring.length); i < newest.length; i++) {
+                push(newest[i]);
+            }
+            warm = true;
+        }
+
+        synchronized void push(int postId) {
+            ring[head] = postId;
+            head = (head + 1) % ring.length;
+            if (size < ring.length) {
+                size++;
+            }
+        }
+
+        synchronized void remove(int postId) {
+            int[] ids = snapshot();
+            if (IntStream.of(ids).noneMatch(id -> id == postId)) {
+                return;
+            }
+            head = 0;
+            size = 0;
+            for (int i = ids.length - 1; i >= 0; i--) {
+                if (ids[i] != postId) {
+                    push(ids[i]);
+                }
+            }
+        }
+
+        // Ids ordered newest first, as far as ids go: they increase over time on each node, see Post
+        synchronized int[] snapshot() {
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = ring[Math.floorMod(head - 1 - i, ring.length)];
+            }
+            Arrays.sort(ids);
+            reverse(ids);
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.revature.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Stateless login tokens signed with HMAC-SHA256
+@Service
+public class TokenService {
+
+    public static final String TOKEN_HEADER = "X-Auth-Token";
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String BEARER = "Bearer ";
+    private static final int PAYLOAD_BYTES = 12;
+    private static final int MAC_BYTES = 32;
+    private static final int TOKEN_BYTES = PAYLOAD_BYTES + MAC_BYTES;
+    private static final int TOKEN_CHARS = (TOKEN_BYTES * 4 + 2) / 3;
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final boolean sessionLoginEnabled;
+    private final ThreadLocal<Mac> macs;
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    public TokenService(@Value("${flutter.auth.token-secret}") String secret,
+                        @Value("${flutter.auth.token-ttl-seconds}") long ttlSeconds,
+                        @Value("${flutter.auth.sessions-enabled}") boolean sessionLoginEnabled) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length == 0) {
+            log.warn("flutter.auth.token-secret is not set, tokens will only be valid on this node until it restarts");
+            secretBytes = new byte[MAC_BYTES];
+            new SecureRandom().nextBytes(secretBytes);
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.sessionLoginEnabled = sessionLoginEnabled;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public String issue(int userId) {
+        long expiry = System.currentTimeMillis() / 1000 + ttlSeconds;
+        byte[] token = new byte[TOKEN_BYTES];
+        writeInt(token, 0, userId);
+        writeLong(token, 4, expiry);
+        Mac mac = macs.get();
+        mac.update(token, 0, PAYLOAD_BYTES);
+        try {
+            mac.doFinal(token, PAYLOAD_BYTES);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    // Returns the user id of a valid, unexpired token, or -1. Accepts the raw token or an Authorization header value
+    public int verify(String token) {
+        if (token == null) {
+            return -1;
+        }
+        int offset = token.startsWith(BEARER) ? BEARER.length() : 0;
+        if (token.length() - offset != TOKEN_CHARS) {
+            return -1;
+        }
+
+        Buffers buffer = buffers.get();
+        for (int i = 0; i < TOKEN_CHARS; i++) {
+            char c = token.charAt(offset + i);
+            if (c > 0x7f) {
+                return -1;
+            }
+            buffer.encoded[i] = (byte) c;
+        }
+        try {
+            if (Base64.getUrlDecoder().decode(buffer.encoded, buffer.decoded) != TOKEN_BYTES) {
+                return -1;
+            }
+            Mac mac = macs.get();
+            mac.update(buffer.decoded, 0, PAYLOAD_BYTES);
+            mac.doFinal(buffer.mac, 0);
+        } catch (IllegalArgumentException | ShortBufferException e) {
+            return -1;
+        }
+
+        // Constant time, so the comparison does not reveal how many leading bytes of a forged MAC were right
+        int difference = 0;
+        for (int i = 0; i < MAC_BYTES; i++) {
+            difference |= buffer.mac[i] ^ buffer.decoded[PAYLOAD_BYTES + i];
+        }
+        if (difference != 0 || readLong(buffer.decoded, 4) < System.currentTimeMillis() / 1000) {
+            return -1;
+        }
+        return readInt(buffer.decoded, 0);
+    }
+
+    // Whether logins also open an HttpSession, for clients that still send the session cookie instead of a token
+    public boolean isSessionLoginEnabled() {
+        return sessionLoginEnabled;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        for (int i = 3; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static class Buffers {
+
+        private final byte[] encoded = new byte[TOKEN_CHARS];
+        private final byte[] decoded = new byte[TOKEN_BYTES];
+        private final byte[] mac = new byte[MAC_BYTES];
+    }
+}
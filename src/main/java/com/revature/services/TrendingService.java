@@ -0,0 +1,232 @@
+package com.revature.services;
+
+import com.revature.dtos.TrendingPost;
+import com.revature.dtos.TrendingTerm;
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Trending posts and terms with exponentially decaying scores, from count-min sketches and top-k maps
+@Service
+public class TrendingService {
+
+    private static final double LIKE_WEIGHT = 1.0;
+    private static final double COMMENT_WEIGHT = 3.0;
+    private static final double POST_WEIGHT = 1.0;
+    private static final double TERM_WEIGHT = 1.0;
+    // Weights grow by 2^32 before everything is rescaled, far below what a double can hold
+    private static final double RESCALE_HALF_LIVES = 32;
+    private static final int MIN_TERM_LENGTH = 3;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "the", "and", "for", "are", "but", "not", "you", "all", "any", "can", "had", "her", "was", "one",
+            "our", "out", "has", "have", "him", "his", "how", "its", "may", "new", "now", "see", "two", "who",
+            "did", "get", "let", "she", "too", "use", "that", "this", "with", "from", "they", "will", "what",
+            "when", "your", "just", "than", "then", "them", "been", "were", "there", "their", "about", "would",
+            "could", "should", "which", "into", "some", "more", "very", "also", "only", "like", "dont", "im"));
+
+    private final Clock clock;
+    private final double halfLifeMillis;
+
+    private final Object lock = new Object();
+    private final TopK<Integer> posts;
+    private final TopK<String> terms;
+    private long landmark;
+
+    @Autowired
+    public TrendingService(@Value("${flutter.trending.half-life-minutes}") long halfLifeMinutes,
+                           @Value("${flutter.trending.top-k}") int topK,
+                           @Value("${flutter.trending.sketch-depth}") int sketchDepth,
+                           @Value("${flutter.trending.sketch-width}") int sketchWidth) {
+        this(Clock.systemUTC(), halfLifeMinutes, topK, sketchDepth, sketchWidth);
+    }
+
+    TrendingService(Clock clock, long halfLifeMinutes, int topK, int sketchDepth, int sketchWidth) {
+        this.clock = clock;
+        this.halfLifeMillis = halfLifeMinutes * 60000.0;
+        this.posts = new TopK<>(new CountMinSketch(sketchDepth, sketchWidth), topK);
+        this.terms = new TopK<>(new CountMinSketch(sketchDepth, sketchWidth), topK);
+        this.landmark = clock.millis();
+    }
+
+    public void recordLike(int postId) {
+        synchronized (lock) {
+            posts.add(postId, postId, LIKE_WEIGHT * weightNow());
+        }
+    }
+
+    // Replies anywhere in a thread count towards its top level post
+    public void recordComment(int threadId) {
+        synchronized (lock) {
+            posts.add(threadId, threadId, COMMENT_WEIGHT * weightNow());
+        }
+    }
+
+    // New top level posts start trending on their own, the words of every new post and comment count towards terms
+    public void recordCreated(Post post) {
+        Set<String> words = new HashSet<>();
+        for (String term : PostSearchService.termFrequencies(post.getText()).keySet()) {
+            if (term.length() >= MIN_TERM_LENGTH && !STOP_WORDS.contains(term) && !isNumber(term)) {
+                words.add(term);
+            }
+        }
+        synchronized (lock) {
+            double weight = weightNow();
+            if (post.getPostType() == PostType.Top) {
+                posts.add(post.getId(), post.getId(), POST_WEIGHT * weight);
+            }
+            for (String word : words) {
+                terms.add(word, CountMinSketch.hash(word), TERM_WEIGHT * weight);
+            }
+        }
+    }
+
+    public void remove(int postId) {
+        synchronized (lock) {
+            posts.remove(postId);
+        }
+    }
+
+    public List<TrendingPost> getTrendingPosts(int limit) {
+        List<Map.Entry<Integer, Double>> top;
+        double scale;
+        synchronized (lock) {
+            top = posts.sorted();
+            scale = 1 / weightNow();
+        }
+        List<TrendingPost> trending = new ArrayList<>(Math.min(limit, top.size()));
+        for (int i = 0; i < top.size() && i < limit; i++) {
+            trending.add(new TrendingPost(top.get(i).getKey(), top.get(i).getValue() * scale));
+        }
+        return trending;
+    }
+
+    public List<TrendingTerm> getTrendingTerms(int limit) {
+        List<Map.Entry<String, Double>> top;
+        double scale;
+        synchronized (lock) {
+            top = terms.sorted();
+            scale = 1 / weightNow();
+        }
+        List<TrendingTerm> trending = new ArrayList<>(Math.min(limit, top.size()));
+        for (int i = 0; i < top.size() && i < limit; i++) {
+            trending.add(new TrendingTerm(top.get(i).getKey(), top.get(i).getValue() * scale));
+        }
+        return trending;
+    }
+
+    // The weight of an event happening now relative to one at the landmark. Callers hold the lock
+    private double weightNow() {
+        long now = clock.millis();
+        double halfLives = (now - landmark) / halfLifeMillis;
+        if (halfLives > RESCALE_HALF_LIVES) {
+            double factor = Math.pow(2, -halfLives);
+            posts.scale(factor);
+            terms.scale(factor);
+            landmark = now;
+            halfLives = 0;
+        }
+        return Math.pow(2, halfLives);
+    }
+
+    private static boolean isNumber(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (!Character.isDigit(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The sketch of every key's score, and the keys with the best scores. Callers hold the lock
+    private static final class TopK<K> {
+
+        private final CountMinSketch sketch;
+        private final int capacity;
+        private final Map<K, Double> top = new HashMap<>();
+        private K weakest;
+        private double weakestScore;
+        private List<Map.Entry<K, Double>> sorted = Collections.emptyList();
+        private boolean dirty;
+
+        private TopK(CountMinSketch sketch, int capacity) {
+            this.sketch = sketch;
+            this.capacity = capacity;
+        }
+
+        private void add(K key, long hash, double weight) {
+            double estimate = sketch.add(hash, weight);
+            if (top.containsKey(key)) {
+                top.put(key, estimate);
+                if (key.equals(weakest)) {
+                    weakest = null;
+                }
+            } else if (top.size() < capacity) {
+                top.put(key, estimate);
+                weakest = null;
+            } else {
+                findWeakest();
+                if (estimate <= weakestScore) {
+                    return;
+                }
+                top.remove(weakest);
+                top.put(key, estimate);
+                weakest = null;
+            }
+            dirty = true;
+        }
+
+        private void remove(K key) {
+            if (top.remove(key) != null) {
+                weakest = null;
+                dirty = true;
+            }
+        }
+
+        private void scale(double factor) {
+            sketch.scale(factor);
+            top.replaceAll((key, score) -> score * factor);
+            weakest = null;
+            dirty = true;
+        }
+
+        private List<Map.Entry<K, Double>> sorted() {
+            if (dirty) {
+                List<Map.Entry<K, Double>> entries = new ArrayList<>(top.size());
+                for (Map.Entry<K, Double> entry : top.entrySet()) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                }
+                entries.sort(Map.Entry.<K, Double>comparingByValue().reversed());
+                sorted = Collections.unmodifiableList(entries);
+                dirty = false;
+            }
+            return sorted;
+        }
+
+        // Only rescanned after the weakest key changed, most events are for keys that are nowhere near the top
+        private void findWeakest() {
+            if (weakest != null) {
+                return;
+            }
+            weakestScore = Double.MAX_VALUE;
+            for (Map.Entry<K, Double> entry : top.entrySet()) {
+                if (entry.getValue() < weakestScore) {
+                    weakest = entry.getKey();
+                    weakestScore = entry.getValue();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.revature.services;
+
+import com.revature.dtos.UsernameSuggestion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// In-memory index of usernames and emails for prefix search and uniqueness checks
+@Service
+public class UserIndexService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String selectSql;
+
+    private final Object lock = new Object();
+    private final Object loadLock = new Object();
+    private volatile Index index;
+    // Saves that happen while a load reads the table, replayed onto the new index
+    private List<Object[]> pending;
+
+    public UserIndexService(JdbcTemplate jdbcTemplate,
+                            @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        String table = schema.isEmpty() ? "users" : schema + ".users";
+        this.selectSql = "select id, username, email from " + table;
+    }
+
+    // Usernames starting with the prefix, ignoring case, in alphabetical order
+    public List<UsernameSuggestion> search(String prefix, int limit) {
+        Index current = index();
+        String key = prefix.toLowerCase(Locale.ROOT);
+        int from = Index.insertionPoint(current.keys, current.usernames, key, "");
+        List<UsernameSuggestion> suggestions = new ArrayList<>(Math.min(limit, 16));
+        for (int i = from; i < current.keys.length && suggestions.size() < limit && current.keys[i].startsWith(key); i++) {
+            suggestions.add(new UsernameSuggestion(current.ids[i], current.usernames[i]));
+        }
+        return suggestions;
+    }
+
+    // False means no user has this username, true means one might
+    public boolean mightHaveUsername(String username) {
+        return username != null && index().usernameFilter.mightContain(username);
+    }
+
+    public boolean mightHaveEmail(String email) {
+        return email != null && index().emailFilter.mightContain(email);
+    }
+
+    // Called after a user row was written
+    public void put(int id, String username, String email) {
+        synchronized (lock) {
+            if (pending != null) {
+                pending.add(new Object[]{id, username, email});
+            }
+            if (index != null) {
+                index = index.with(id, username, email);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${flutter.user-index.rebuild-interval-ms}")
+    public void rebuild() {
+        synchronized (loadLock) {
+            // Nobody has used it yet, the first use loads it
+            if (index != null) {
+                load();
+            }
+        }
+    }
+
+    private Index index() {
+        Index current = index;
+        if (current == null) {
+            synchronized (loadLock) {
+                if (index == null) {
+                    load();
+                }
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    // Reads and sorts without holding the lock, so saves only wait for the final swap
+    private void load() {
+        synchronized (lock) {
+            pending = new ArrayList<>();
+        }
+        List<Object[]> rows = new ArrayList<>(jdbcTemplate.query(selectSql,
+                (rs, rowNum) -> new Object[]{rs.getInt(1), rs.getString(2), rs.getString(3)}));
+        int replayed;
+        synchronized (lock) {
+            rows.addAll(pending);
+            replayed = pending.size();
+        }
+        Index loaded = Index.build(rows);
+        synchronized (lock) {
+            for (Object[] row : pending.subList(replayed, pending.size())) {
+                loaded = loaded.with((Integer) row[0], (String) row[1], (String) row[2]);
+            }
+            pending = null;
+            index = loaded;
+        }
+    }
+
+    private static final class Index {
+
+        private final String[] keys;
+        private final String[] usernames;
+        private final int[] ids;
+        // Only read and written under the lock, and shared by each snapshot with the next one
+        private final Map<Integer, String> usernamesById;
+        private final BloomFilter usernameFilter;
+        private final BloomFilter emailFilter;
+
+        private Index(String[] keys, String[] usernames, int[] ids, Map<Integer, String> usernamesById,
+                      BloomFilter usernameFilter, BloomFilter emailFilter) {
+            this.keys = keys;
+            this.usernames = usernames;
+            this.ids = ids;
+            this.usernamesById = usernamesById;
+            this.usernameFilter = usernameFilter;
+            this.emailFilter = emailFilter;
+        }
+
+        // Rows are id, username, email. A later row for the same id replaces an earlier one
+        private static Index build(List<Object[]> rows) {
+            int capacity = Math.max(MIN_CAPACITY, rows.size() * 2);
+            BloomFilter usernameFilter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+            BloomFilter emailFilter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+            Map<Integer, String> usernamesById = new HashMap<>();
+            for (Object[] row : rows) {
+                String username = (String) row[1];
+                String email = (String) row[2];
+                if (username != null) {
+                    usernamesById.put((Integer) row[0], username);
+                    usernameFilter.add(username);
+                } else {
+                    usernamesById.remove((Integer) row[0]);
+                }
+                if (email != null) {
+                    emailFilter.add(email);
+                }
+            }
+
+            List<Map.Entry<Integer, String>> entries = new ArrayList<>(usernamesById.entrySet());
+            String[] keys = new String[entries.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = entries.get(i).getValue().toLowerCase(Locale.ROOT);
+            }
+            Integer[] order = new Integer[keys.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> compare(keys[a], entries.get(a).getValue(), keys[b], entries.get(b).getValue()));
+
+            String[] sortedKeys = new String[keys.length];
+            String[] usernames = new String[keys.length];
+            int[] ids = new int[keys.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedKeys[i] = keys[order[i]];
+                usernames[i] = entries.get(order[i]).getValue();
+                ids[i] = entries.get(order[i]).getKey();
+            }
+            return new Index(sortedKeys, usernames, ids, usernamesById, usernameFilter, emailFilter);
+        }
+
+        // Copies the arrays with the user's old username taken out and the new one put in. The filters only
+        // ever gain entries, so they are shared with the previous snapshot like the id map
+        private Index with(int id, String username, String email) {
+            if (email != null) {
+                emailFilter.add(email);
+            }
+            String previous = usernamesById.get(id);
+            if (previous != null && previous.equals(username)) {
+                return this;
+            }
+
+            String[] newKeys = keys;
+            String[] newUsernames = usernames;
+            int[] newIds = ids;
+            if (previous != null) {
+                int at = position(previous.toLowerCase(Locale.ROOT), previous);
+                newKeys = remove(newKeys, at);
+                newUsernames = remove(newUsernames, at);
+                newIds = remove(newIds, at);
+            }
+            if (username != null) {
+                usernameFilter.add(username);
+                String key = username.toLowerCase(Locale.ROOT);
+                int at = insertionPoint(newKeys, newUsernames, key, username);
+                newKeys = insert(newKeys, at, key);
+                newUsernames = insert(newUsernames, at, username);
+                newIds = insert(newIds, at, id);
+                usernamesById.put(id, username);
+            } else {
+                usernamesById.remove(id);
+            }
+            return new Index(newKeys, newUsernames, newIds, usernamesById, usernameFilter, emailFilter);
+        }
+
+        private int position(String key, String username) {
+            int at = insertionPoint(keys, usernames, key, username);
+            return at < keys.length && usernames[at].equals(username) ? at : -1;
+        }
+
+        // The first position that does not sort before the key and username
+        private static int insertionPoint(String[] keys, String[] usernames, String key, String username) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(keys[mid], usernames[mid], key, username) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Case-insensitive order, usernames that only differ in case are ordered by their spelling
+        private static int compare(String keyA, String usernameA, String keyB, String usernameB) {
+            int byKey = keyA.compareTo(keyB);
+            return byKey != 0 ? byKey : usernameA.compareTo(usernameB);
+        }
+
+        private static String[] remove(String[] values, int at) {
+            if (at < 0) {
+                return values;
+            }
+            String[] copy = new String[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+            return copy;
+        }
+
+        private static int[] remove(int[] values, int at) {
+            if (at < 0) {
+                return values;
+            }
+            int[] copy = new int[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+            return copy;
+        }
+
+        private static String[] insert(String[] values, int at, String value) {
+            String[] copy = new String[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            copy[at] = value;
+            System.arraycopy(values, at, copy, at + 1, values.length - at);
+            return copy;
+        }
+
+        private static int[] insert(int[] values, int at, int value) {
+            int[] copy = new int[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            copy[at] = value;
+            System.arraycopy(values, at, copy, at + 1, values.length - at);
+            return copy;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.revature.services;
 
+import com.revature.datasource.ReplicaRouter;
+import com.revature.dtos.UsernameSuggestion;
 import com.revature.models.Post;
 import com.revature.models.PostType;
 import com.revature.models.User;
 import com.revature.repositories.PostRepository;
 import com.revature.repositories.UserRepository;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,80 +20,181 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PostService postService;
-
-    public UserService(UserRepository userRepository, PostService postService) {
+    private final TimelineService timelineService;
+    private final FollowGraphService followGraphService;
+    private final EntityCacheService entityCacheService;
+    private final RequestCoalescer requestCoalescer;
+    private final PasswordHashingService passwordHashingService;
+    private final UserIndexService userIndexService;
+    private final VersionStampService versionStampService;
+    private final FeedVersionService feedVersionService;
+
+    public UserService(UserRepository userRepository, PostService postService, TimelineService timelineService,
+                       FollowGraphService followGraphService, EntityCacheService entityCacheService,
+                       RequestCoalescer requestCoalescer, PasswordHashingService passwordHashingService,
+                       UserIndexService userIndexService, VersionStampService versionStampService,
+                       FeedVersionService feedVersionService) {
         this.userRepository = userRepository;
         this.postService = postService;
+        this.timelineService = timelineService;
+        this.followGraphService = followGraphService;
+        this.entityCacheService = entityCacheService;
+        this.requestCoalescer = requestCoalescer;
+        this.passwordHashingService = passwordHashingService;
+        this.userIndexService = userIndexService;
+        this.versionStampService = versionStampService;
+        this.feedVersionService = feedVersionService;
     }
 
+    // Hashes older than the current work factor, and plain text passwords from before hashing, are upgraded
+    // while the password is at hand
     public Optional<User> findByCredentials(String email, String password) {
-        return userRepository.findByEmailAndPassword(email, password);
+        Optional<User> userOptional = findByEmail(email)
+                .filter(user -> passwordHashingService.matches(password, user.getPassword()));
+        userOptional.filter(user -> passwordHashingService.needsRehash(user.getPassword()))
+                .flatMap(user -> findByIdForUpdate(user.getId()))
+                .ifPresent(user -> changePassword(user, password));
+        return userOptional;
+    }
+
+    public User changePassword(User user, String password) {
+        user.setPassword(passwordHashingService.hash(password));
+        return save(user);
     }
 
+    // Evicted even if the save fails, the caller's instance may already hold the unsaved changes
     public User save(User user) {
-        return userRepository.save(user);
+        try {
+            User saved = userRepository.save(user);
+            userIndexService.put(saved.getId(), saved.getUsername(), saved.getEmail());
+            versionStampService.touchUser(saved.getId());
+            return saved;
+        } finally {
+            entityCacheService.evictUser(user.getId());
+        }
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAll() {
         return userRepository.findAll();
     }
 
+    // A detached copy without the follow lists, of its own for every caller. Use findByIdForUpdate for changes
     public Optional<User> findById(int id) {
+        return entityCacheService.getUser(id, () -> userRepository.findById(id));
+    }
+
+    // The request's own managed instance, for changes saved through save
+    public Optional<User> findByIdForUpdate(int id) {
         return userRepository.findById(id);
     }
 
+    // Read-only view of a user with the follow lists, for rendering. Concurrent reads of the same user share one load
+    @Transactional(readOnly = true)
+    public Optional<User> getProfile(int id) {
+        return requestCoalescer.execute("userProfile", id, () -> {
+            Optional<User> user = userRepository.findById(id);
+            user.ifPresent(u -> {
+                Hibernate.initialize(u.getFollowers());
+                Hibernate.initialize(u.getFollowing());
+            });
+            return user;
+        });
+    }
+
     public Optional<User> findByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return entityCacheService.getUserByUsername(username, () -> userRepository.findByUsername(username));
     }
 
     public Optional<User> findByEmail(String email) {
-        return userRepository.findByEmail(email);
+        return entityCacheService.getUserByEmail(email, () -> userRepository.findByEmail(email));
     }
 
-    @Transactional
-    public List<User> addFollower(User followed, User follower) {
-        List<User> followSuccess = new ArrayList();
+    // Most names are not taken, the index answers those without a query and only possible matches are looked up
+    public boolean isUsernameTaken(String username) {
+        return userIndexService.mightHaveUsername(username) && findByUsername(username).isPresent();
+    }
 
-        List<User> newFollowers = followed.getFollowers();
-        newFollowers.add(follower);
-        followed.setFollowers(newFollowers);
+    public boolean isEmailTaken(String email) {
+        return userIndexService.mightHaveEmail(email) && findByEmail(email).isPresent();
+    }
 
-        List<User> newFollowing = follower.getFollowing();
-        newFollowing.add(followed);
-        follower.setFollowing(newFollowing);
+    public List<UsernameSuggestion> searchUsernames(String prefix, int limit) {
+        return userIndexService.search(prefix, limit);
+    }
 
-        followSuccess.add(followed);
-        followSuccess.add(follower);
-        return followSuccess;
+    // A single join table insert, the follower collections of either user are never loaded
+    public List<User> addFollower(User followed, User follower) {
+        if (followGraphService.follow(follower.getId(), followed.getId())) {
+            feedVersionService.followed(followed.getId());
+        }
+        timelineService.invalidate(follower.getId());
+        return reloadFollowPair(followed, follower);
     }
 
-    @Transactional
     public List<User> removeFollower(User followed, User follower) {
+        followGraphService.unfollow(follower.getId(), followed.getId());
+        timelineService.invalidate(follower.getId());
+        return reloadFollowPair(followed, follower);
+    }
+
+    // Both users were read from the cache before the join table changed, so they are evicted and read again
+    private List<User> reloadFollowPair(User followed, User follower) {
         List<User> followSuccess = new ArrayList();
 
-        List<User> newFollowers = followed.getFollowers();
-        newFollowers.remove(follower);
-        followed.setFollowers(newFollowers);
+        versionStampService.touchUser(followed.getId());
+        versionStampService.touchUser(follower.getId());
+        entityCacheService.evictUserAfterJdbcWrite(followed.getId());
+        entityCacheService.evictUserAfterJdbcWrite(follower.getId());
+        followSuccess.add(findById(followed.getId()).orElse(followed));
+        followSuccess.add(findById(follower.getId()).orElse(follower));
+        return followSuccess;
+    }
+
+    public boolean isFollowing(int followerId, int followedId) {
+        return followGraphService.isFollowing(followerId, followedId);
+    }
 
-        List<User> newFollowing = follower.getFollowing();
-        newFollowing.remove(followed);
-        follower.setFollowing(newFollowing);
+    public int countFollowers(int userId) {
+        return followGraphService.countFollowers(userId);
+    }
 
-        followSuccess.add(followed);
-        followSuccess.add(follower);
-        return followSuccess;
+    public int countFollowing(int userId) {
+        return followGraphService.countFollowing(userId);
     }
+
     public List<Post> getFeedForUser(User user){
-        List<User> following = user.getFollowing();
-        Optional<List<Post>> feedOptional = postService.getFeedForUser(following);
+        Optional<List<Post>> timelineOptional = postService.getTimelineFeed(user.getId());
+        if(timelineOptional.isPresent()){
+            return timelineOptional.get();
+        }
+
+        // Cold timeline: assemble the feed from the followed ids once and keep it warm from now on. Read from the
+        // primary, new posts only reach warm timelines, so one missing from a lagging replica would never show up
+        timelineService.startWarming(user.getId());
+        List<Integer> followingIds = new ArrayList<>();
+        for (int followingId : followGraphService.getFollowingIds(user.getId())) {
+            followingIds.add(followingId);
+        }
+        List<User> following = userRepository.findAllById(followingIds);
+        Optional<List<Post>> feedOptional = ReplicaRouter.onPrimary(() -> postService.getFeedForUser(following));
         if(!feedOptional.isPresent()){
             return null;
         }
+        postService.warmTimeline(user.getId(), feedOptional.get());
         return feedOptional.get();
     }
 
+    public List<Post> getFeedPageForUser(User user, int afterId, int limit) {
+        return postService.getFeedPage(user, afterId, limit);
+    }
+
     public Optional<List<Post>> getAllPostsByAUser(User user) {
         return postService.getAllPostsByUser(user);
     }
+
+    public List<Post> getPostsPageByAUser(User user, int afterId, int limit) {
+        return postService.getPostsByUserPage(user, afterId, limit);
+    }
 }
 
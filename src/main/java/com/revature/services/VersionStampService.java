@@ -0,0 +1,295 @@
+package com.revature.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.models.Post;
+import com.revature.models.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Versions for conditional GETs, kept as stamps in the version_slots table shared by every node
+@Service
+public class VersionStampService {
+
+    private static final Logger log = LoggerFactory.getLogger(VersionStampService.class);
+
+    private static final long POST = 1;
+    private static final long USER = 2;
+    private static final long POSTS_BY = 3;
+    private static final long FEED = 4;
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate raiseTransaction;
+    private final int slotCount;
+    private final Cache<String, Rendered> resources;
+    private final long settleMillis;
+    private final String table;
+
+    public VersionStampService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               @Value("${flutter.versions.slots}") int slotCount,
+                               @Value("${flutter.versions.max-resources}") long maxResources,
+                               @Value("${flutter.versions.settle-ms}") long settleMillis,
+                               @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Touches apply after the changing transaction completed, which can only start a new one
+        this.raiseTransaction = new TransactionTemplate(transactionManager);
+        this.raiseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.slotCount = slotCount;
+        this.resources = Caffeine.newBuilder().maximumSize(maxResources).build();
+        this.settleMillis = settleMillis;
+        this.table = (schema.isEmpty() ? "" : schema + ".") + "version_slots";
+    }
+
+    // Every slot gets a row once, nodes starting at the same time may race to insert them
+    @PostConstruct
+    public void createSlots() {
+        jdbcTemplate.execute("create table if not exists " + table + " (slot int primary key, stamp bigint not null)");
+        try {
+            insertMissingSlots();
+        } catch (DuplicateKeyException e) {
+            insertMissingSlots();
+        }
+    }
+
+    public void touchPost(int postId) {
+        touch(POST, postId);
+    }
+
+    public void touchUser(int userId) {
+        touch(USER, userId);
+    }
+
+    // New and deleted top level posts by the author
+    public void touchPostsBy(int authorId) {
+        touch(POSTS_BY, authorId);
+    }
+
+    // New and deleted top level posts in the user's feed, see FeedVersionService
+    public void touchFeed(int userId) {
+        touch(FEED, userId);
+    }
+
+    // Taken before loading a response and passed to record
+    public long now() {
+        return System.currentTimeMillis();
+    }
+
+    // Empty if the resource was not rendered on this node yet, or was dropped since
+    public OptionalLong getVersion(String resource) {
+        Rendered rendered = resources.getIfPresent(resource);
+        if (rendered == null) {
+            return OptionalLong.empty();
+        }
+        long version = max(rendered.slotIds);
+        rendered.checked(version, now());
+        return OptionalLong.of(version);
+    }
+
+    // Remembers what the resource was rendered from, empty if a dependency changed too recently to trust the load
+    // Reuses the version getVersion read for the same slots just before the load
+    public OptionalLong record(String resource, long loadedAt, Dependencies dependencies) {
+        int[] slotIds = dependencies.keys.stream().mapToInt(this::slot).distinct().sorted().toArray();
+        Rendered previous = resources.getIfPresent(resource);
+        long version;
+        OptionalLong checked = previous != null && Arrays.equals(previous.slotIds, slotIds)
+                ? previous.checkedBy(loadedAt) : OptionalLong.empty();
+        if (checked.isPresent()) {
+            version = checked.getAsLong();
+        } else {
+            version = max(slotIds);
+            resources.put(resource, new Rendered(slotIds, version, now()));
+        }
+        return version <= loadedAt - settleMillis ? OptionalLong.of(version) : OptionalLong.empty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void touch(long kind, int id) {
+        int slot = slot(key(kind, id));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            raise(Collections.singleton(slot));
+            return;
+        }
+        Set<Integer> pending = (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Integer> slots = new TreeSet<>();
+            TransactionSynchronizationManager.bindResource(this, slots);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(VersionStampService.this);
+                    raise(slots);
+                }
+            });
+            pending = slots;
+        }
+        pending.add(slot);
+    }
+
+    // In ascending slot order, so two raises never wait on each other's rows
+    private void raise(Collection<Integer> slots) {
+        long stamp = now();
+        List<Object[]> rows = slots.stream().sorted().map(slot -> new Object[]{stamp, slot}).collect(Collectors.toList());
+        raiseTransaction.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate("update " + table + " set stamp = greatest(stamp + 1, ?) where slot = ?", rows));
+    }
+
+    private long max(int[] slotIds) {
+        if (slotIds.length == 0) {
+            return 0;
+        }
+        String in = IntStream.of(slotIds).mapToObj(slot -> "?").collect(Collectors.joining(", "));
+        Long max = jdbcTemplate.queryForObject("select max(stamp) from " + table + " where slot in (" + in + ")",
+                Long.class, IntStream.of(slotIds).boxed().toArray());
+        return max == null ? 0 : max;
+    }
+
+    private void insertMissingSlots() {
+        BitSet present = new BitSet(slotCount);
+        jdbcTemplate.query("select slot from " + table, row -> {
+            present.set(row.getInt(1));
+        });
+        long stamp = now();
+        String sql = "insert into " + table + " (slot, stamp) values (?, ?)";
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        int added = 0;
+        for (int slot = present.nextClearBit(0); slot < slotCount; slot = present.nextClearBit(slot + 1)) {
+            rows.add(new Object[]{slot, stamp});
+            added++;
+            if (rows.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+        if (added > 0) {
+            log.info("Added {} rows to {}", added, table);
+        }
+    }
+
+    private static long key(long kind, int id) {
+        return kind << 32 | (id & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) slotCount);
+    }
+
+    // What a response was rendered from
+    // The slots of a rendered resource and the last version read for them. An older version only costs a reload, one
+    // read after the load began could be newer than what it saw
+    private static final class Rendered {
+
+        private final int[] slotIds;
+        private long version;
+        private long checkedAt;
+
+        Rendered(int[] slotIds, long version, long checkedAt) {
+            this.slotIds = slotIds;
+            this.version = version;
+            this.checkedAt = checkedAt;
+        }
+
+        synchronized void checked(long version, long checkedAt) {
+            this.version = version;
+            this.checkedAt = checkedAt;
+        }
+
+        synchronized OptionalLong checkedBy(long loadedAt) {
+            return checkedAt <= loadedAt ? OptionalLong.of(version) : OptionalLong.empty();
+        }
+    }
+
+    public static final class Dependencies {
+
+        private final Set<Long> keys = new HashSet<>();
+
+        // The post, its authors and its comment tree as loaded
+        public Dependencies post(Post post) {
+            keys.add(key(POST, post.getId()));
+            if (post.getAuthor() != null) {
+                user(post.getAuthor().getId());
+            }
+            if (post.getComments() != null) {
+                for (Post comment : post.getComments()) {
+                    post(comment);
+                }
+            }
+            return this;
+        }
+
+        public Dependencies posts(Collection<Post> posts) {
+            for (Post post : posts) {
+                post(post);
+            }
+            return this;
+        }
+
+        // The user and the followers and followings rendered with them
+        public Dependencies profile(User user) {
+            user(user.getId());
+            users(user.getFollowers());
+            users(user.getFollowing());
+            return this;
+        }
+
+        public Dependencies user(int userId) {
+            keys.add(key(USER, userId));
+            return this;
+        }
+
+        public Dependencies postsBy(int authorId) {
+            keys.add(key(POSTS_BY, authorId));
+            return this;
+        }
+
+        public Dependencies feed(int userId) {
+            keys.add(key(FEED, userId));
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Dependencies && keys.equals(((Dependencies) o).keys);
+        }
+
+        @Override
+        public int hashCode() {
+            return keys.hashCode();
+        }
+
+        private void users(List<User> users) {
+            if (users != null) {
+                for (User user : users) {
+                    user(user.getId());
+                }
+            }
+        }
+    }
+}
@@ -5,16 +5,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.datasource.ReplicaRouter;
 import com.revature.dtos.LoginRequest;
 import com.revature.dtos.RegisterRequest;
 import com.revature.models.User;
 import com.revature.services.AuthService;
+import com.revature.services.TokenService;
 import com.revature.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -25,6 +28,7 @@ import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -41,6 +45,10 @@ public class AuthControllerTest {
     private AuthService authService;
     @MockBean
     private UserService userService;
+    @MockBean
+    private ReplicaRouter replicaRouter;
+    @MockBean
+    private TokenService tokenService;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -72,6 +80,46 @@ public class AuthControllerTest {
                 .andExpect(jsonPath("$.username", is(testUser2.getUsername())));
     }
 
+    @Test
+    public void loginReturnsTokenWithoutSession() throws Exception {
+        User testUser2 = new User(2, "blorp@email.com", "blorp", "Bob", "Smith", "BSmi", null, null, "image2.com");
+
+        LoginRequest testLoginR = new LoginRequest();
+        testLoginR.setEmail("blorp@email.com");
+        testLoginR.setPassword("blorp");
+        String requestBody = objectMapper.writeValueAsString(testLoginR);
+
+        given(authService.findByCredentials(testLoginR.getEmail(),testLoginR.getPassword())).willReturn(Optional.of(testUser2));
+        given(authService.issueToken(testUser2)).willReturn("signed-token");
+        given(authService.isSessionLoginEnabled()).willReturn(false);
+        this.mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TokenService.TOKEN_HEADER, "signed-token"))
+                .andExpect(request().sessionAttribute("user", nullValue()))
+                .andExpect(jsonPath("$.id", is(testUser2.getId())));
+    }
+
+    @Test
+    public void loginKeepsOnlyUserIdInSession() throws Exception {
+        User testUser2 = new User(2, "blorp@email.com", "blorp", "Bob", "Smith", "BSmi", null, null, "image2.com");
+
+        LoginRequest testLoginR = new LoginRequest();
+        testLoginR.setEmail("blorp@email.com");
+        testLoginR.setPassword("blorp");
+        String requestBody = objectMapper.writeValueAsString(testLoginR);
+
+        given(authService.findByCredentials(testLoginR.getEmail(),testLoginR.getPassword())).willReturn(Optional.of(testUser2));
+        given(authService.issueToken(testUser2)).willReturn("signed-token");
+        given(authService.isSessionLoginEnabled()).willReturn(true);
+        this.mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(request().sessionAttribute("user", is(2)));
+    }
+
     @Test
     public void loginFail() throws Exception {
         User testUser2 = new User(2, "blorp@email.com", "blorp", "Bob", "Smith", "BSmi", null, null, "image2.com");
@@ -123,6 +171,31 @@ public class AuthControllerTest {
     }
 
 
+    @Test
+    public void registerTakenFail() throws Exception {
+        User testUser1 = new User("test.com", "password", "John", "Doe", "JDoe");
+        given(authService.isTaken("test.com", "JDoe")).willReturn(true);
+
+        String requestBody = objectMapper.writeValueAsString(testUser1);
+        this.mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().is(400));
+    }
+
+    @Test
+    public void registerTakenOnAnotherNodeFail() throws Exception {
+        User testUser1 = new User("test.com", "password", "John", "Doe", "JDoe");
+        //the local index misses the name, the unique constraint rejects it
+        given(authService.register(any(User.class))).willThrow(new DataIntegrityViolationException("users_username_key"));
+
+        String requestBody = objectMapper.writeValueAsString(testUser1);
+        this.mockMvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().is(400));
+    }
+
     @Test
     public void registerFail() throws Exception {
         User testUser1 = new User("test.com", "password", "John", "Doe", "JDoe");
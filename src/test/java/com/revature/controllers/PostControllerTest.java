@@ -1,10 +1,20 @@
 package com.revature.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.datasource.ReplicaRouter;
+import com.revature.dtos.PostSummary;
+import com.revature.dtos.TrendingPost;
+import com.revature.dtos.TrendingTerm;
 import com.revature.models.Post;
 import com.revature.models.PostType;
 import com.revature.models.User;
+import com.revature.services.LikeCounterService;
+import com.revature.services.LiveFeedService;
 import com.revature.services.PostService;
+import com.revature.services.SummaryService;
+import com.revature.services.TokenService;
+import com.revature.services.TrendingService;
+import com.revature.services.VersionStampService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +22,14 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static com.revature.models.PostType.Top;
 import static org.hamcrest.CoreMatchers.is;
@@ -30,6 +44,20 @@ class PostControllerTest {
     private MockMvc mockMvc;
     @MockBean
     private PostService postService;
+    @MockBean
+    private LikeCounterService likeCounterService;
+    @MockBean
+    private SummaryService summaryService;
+    @MockBean
+    private TrendingService trendingService;
+    @MockBean
+    private LiveFeedService liveFeedService;
+    @MockBean
+    private VersionStampService versionStampService;
+    @MockBean
+    private ReplicaRouter replicaRouter;
+    @MockBean
+    private TokenService tokenService;
     //what we use in order to map our objects to JSon strings. For converting our objects to compare to expected
     //response from the servlet
     @Autowired
@@ -53,6 +81,54 @@ class PostControllerTest {
     }
 
 
+    @Test
+    void getAllPostsPageTestSuccess() throws Exception {
+        User testUser1 = new User("test.com", "password", "John", "Doe", "JDoe");
+        List<Post> expectedPage = new ArrayList<>();
+        expectedPage.add(new Post(9,"Newest post","image.com",new ArrayList<>(), testUser1, Top, 1));
+        expectedPage.add(new Post(7,"Older post","image.com",new ArrayList<>(), testUser1, Top, 1));
+
+        given(postService.getPage(10, 2)).willReturn(expectedPage);
+
+        //a full page hands back a cursor pointing after its last post
+        this.mockMvc.perform(get("/posts").param("after", PageCursor.encode(10)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(header().string(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode(7)));
+    }
+
+    @Test
+    void searchPostsTestSuccess() throws Exception {
+        User testUser1 = new User("test.com", "password", "John", "Doe", "JDoe");
+        List<Post> page = new ArrayList<>();
+        page.add(new Post(9, "cats", "", null, testUser1, Top, 0));
+        page.add(new Post(4, "more cats", "", null, testUser1, Top, 0));
+        given(postService.search("cats", 2, 2)).willReturn(page);
+
+        this.mockMvc.perform(get("/posts/search").param("q", "cats").param("after", PageCursor.encodeOffset(2)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(jsonPath("$[0].id", is(9)))
+                .andExpect(header().string(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encodeOffset(4)));
+    }
+
+    @Test
+    void searchPostsTestFail() throws Exception {
+        //a keyset cursor from another listing is not a search cursor
+        this.mockMvc.perform(get("/posts/search").param("q", "cats").param("after", PageCursor.encode(10)))
+                .andExpect(status().isBadRequest());
+
+        verify(postService, never()).search(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getAllPostsPageTestFail() throws Exception {
+        this.mockMvc.perform(get("/posts").param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+
+        verify(postService, never()).getPage(anyInt(), anyInt());
+    }
+
     @Test
     void upsertPostTestSuccess() throws Exception {
         User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
@@ -84,7 +160,42 @@ class PostControllerTest {
     }
 
     @Test
-    void getPostById() {
+    void getPostById() throws Exception {
+        User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
+        List<Post> comments = new ArrayList<>();
+        comments.add(new Post(2,"This is a comment",null,new ArrayList<>(), testUser2, PostType.Comment, 0));
+        Post expectedPost = new Post(1,"This is a test post","image.com",comments, testUser2, Top, 1);
+
+        given(postService.getPostWithComments(1)).willReturn(Optional.of(expectedPost));
+
+        mockMvc.perform(get("/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.comments[0].id").value(2));
+    }
+
+    @Test
+    void getPostByIdSendsVersionTest() throws Exception {
+        User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
+        Post expectedPost = new Post(1,"This is a test post","image.com",new ArrayList<>(), testUser2, Top, 1);
+        given(postService.getPostWithComments(1)).willReturn(Optional.of(expectedPost));
+        given(versionStampService.record(eq("post:1"), anyLong(), any())).willReturn(OptionalLong.of(1000000L));
+
+        mockMvc.perform(get("/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + Long.toString(1000000L, 36) + "\""))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+    }
+
+    @Test
+    void getPostByIdNotModifiedTest() throws Exception {
+        given(versionStampService.getVersion("post:1")).willReturn(OptionalLong.of(1000000L));
+
+        mockMvc.perform(get("/posts/1").header("If-None-Match", "\"" + Long.toString(1000000L, 36) + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(postService, never()).getPostWithComments(1);
     }
 
     @Test
@@ -112,11 +223,34 @@ class PostControllerTest {
     }
 
     @Test
-    void addPostLikes() {
+    void addPostLikes() throws Exception {
+        given(likeCounterService.like(1)).willReturn(Optional.of(4));
+
+        mockMvc.perform(put("/posts/1/like"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.likes").value(4));
+
+        //likes never go through a full upsert of the post
+        verify(postService, never()).upsert(any(Post.class));
+    }
+
+    @Test
+    void addPostLikesFail() throws Exception {
+        given(likeCounterService.like(1)).willReturn(Optional.empty());
+
+        mockMvc.perform(put("/posts/1/like"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
-    void removePostLikes() {
+    void removePostLikes() throws Exception {
+        given(likeCounterService.unlike(1)).willReturn(Optional.of(2));
+
+        mockMvc.perform(put("/posts/1/unlike"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.likes").value(2));
     }
 
     @Test
@@ -128,7 +262,7 @@ class PostControllerTest {
 
         String editString = "editTest";
 
-        given(postService.findById(1)).willReturn(Optional.of(testpost));
+        given(postService.findByIdForUpdate(1)).willReturn(Optional.of(testpost));
         testpost.setText(editString);
         given(postService.upsert(testpost)).willReturn((testpost));
         this.mockMvc.perform(put("/posts/editPost/1")
@@ -152,7 +286,7 @@ class PostControllerTest {
 
         String editString = "url/test.com";
 
-        given(postService.findById(1)).willReturn(Optional.of(testpost));
+        given(postService.findByIdForUpdate(1)).willReturn(Optional.of(testpost));
         testpost.setImageUrl(editString);
         given(postService.upsert(testpost)).willReturn((testpost));
         this.mockMvc.perform(put("/posts/editPost/1/image")
@@ -177,11 +311,191 @@ class PostControllerTest {
 
         String editString = "url/test.com";
 
-        given(postService.findById(1)).willReturn(Optional.empty());
+        given(postService.findByIdForUpdate(1)).willReturn(Optional.empty());
         testpost.setImageUrl(editString);
         given(postService.upsert(testpost)).willReturn((testpost));
         this.mockMvc.perform(put("/posts/editPost/1/image")
                         .contentType(MediaType.APPLICATION_JSON).content(editString))
                 .andExpect(status().is(400));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllTopPostSummariesTest() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("[{\"id\":1}]".getBytes());
+            return null;
+        }).when(summaryService).writeTopPosts(any(OutputStream.class));
+
+        //the body is streamed asynchronously, so the result is only available after the async dispatch
+        MvcResult result = mockMvc.perform(get("/posts/feed/summary"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    void getCommentsPageTest() throws Exception {
+        PostSummary first = mock(PostSummary.class);
+        PostSummary second = mock(PostSummary.class);
+        given(second.getId()).willReturn(6);
+        List<PostSummary> page = List.of(first, second);
+        given(summaryService.getCommentPage(1, 0, 2)).willReturn(page);
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("[{\"id\":4,\"commentCount\":3},{\"id\":6,\"commentCount\":0}]".getBytes());
+            return null;
+        }).when(summaryService).writePosts(eq(page), any(OutputStream.class));
+
+        //comment pages start at the oldest comment and continue after the last one
+        MvcResult result = mockMvc.perform(get("/posts/1/comments").param("limit", "2"))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode(6)))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].commentCount").value(3));
+    }
+
+    @Test
+    void getCommentsOfMissingPostTest() throws Exception {
+        given(summaryService.getCommentPage(9, 0, PageCursor.DEFAULT_LIMIT)).willReturn(Collections.emptyList());
+        given(postService.findById(9)).willReturn(Optional.empty());
+
+        this.mockMvc.perform(get("/posts/9/comments"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getTrendingPostsTest() throws Exception {
+        given(trendingService.getTrendingPosts(5)).willReturn(List.of(new TrendingPost(3, 4.5), new TrendingPost(1, 2.0)));
+
+        this.mockMvc.perform(get("/posts/trending").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[0].score").value(4.5))
+                .andExpect(jsonPath("$[1].id").value(1));
+    }
+
+    @Test
+    void getTrendingTermsDefaultLimitTest() throws Exception {
+        given(trendingService.getTrendingTerms(20)).willReturn(List.of(new TrendingTerm("flutter", 3.0)));
+
+        this.mockMvc.perform(get("/posts/trending/terms"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].term").value("flutter"));
+    }
+
+    @Test
+    void createPostsInBulkTest() throws Exception {
+        List<Post> posts = new ArrayList<>();
+        posts.add(new Post("first", null, new ArrayList<>(), null, Top));
+        posts.add(new Post("second", null, new ArrayList<>(), null, Top));
+
+        given(postService.createAll(anyList())).willAnswer(invocation -> {
+            List<Post> saved = invocation.getArgument(0);
+            for (int i = 0; i < saved.size(); i++) {
+                saved.get(i).setId(i + 1);
+            }
+            return saved;
+        });
+
+        mockMvc.perform(post("/posts/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(posts)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].text").value("second"));
+    }
+
+    @Test
+    void createPostsInBulkRejectsExistingPostsTest() throws Exception {
+        List<Post> posts = new ArrayList<>();
+        posts.add(new Post(4, "already saved", null, new ArrayList<>(), null, Top, 0));
+
+        mockMvc.perform(post("/posts/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(posts)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/posts/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        verify(postService, never()).createAll(anyList());
+    }
+
+    @Test
+    void createCommentsInBulkTest() throws Exception {
+        Post parent = new Post(1, "parent", null, new ArrayList<>(), null, Top, 0);
+        List<Post> comments = new ArrayList<>();
+        comments.add(new Post("one", null, new ArrayList<>(), null, PostType.Comment));
+        comments.add(new Post("two", null, new ArrayList<>(), null, PostType.Comment));
+
+        given(postService.findById(1)).willReturn(Optional.of(parent));
+        given(postService.addComments(eq(parent), anyList())).willAnswer(invocation -> {
+            parent.getComments().addAll(invocation.getArgument(1));
+            return parent;
+        });
+
+        mockMvc.perform(post("/posts/1/comments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(comments)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments.length()").value(2));
+
+        given(postService.findById(2)).willReturn(Optional.empty());
+        mockMvc.perform(post("/posts/2/comments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(comments)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createCommentInsertsOnlyNewCommentsTest() throws Exception {
+        Post parent = new Post(1, "parent", null, new ArrayList<>(), null, Top, 0);
+        Post comment = new Post("reply", null, new ArrayList<>(), null, PostType.Comment);
+
+        given(postService.findById(1)).willReturn(Optional.of(parent));
+        given(postService.addComment(eq(parent), any(Post.class))).willAnswer(invocation -> {
+            parent.getComments().add(invocation.getArgument(1));
+            return parent;
+        });
+
+        mockMvc.perform(post("/posts/1/comment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(comment)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments.length()").value(1));
+        verify(postService, never()).upsert(any());
+
+        //an existing post cannot be moved under another one
+        Post existing = new Post(5, "moved", null, new ArrayList<>(), null, PostType.Comment, 0);
+        mockMvc.perform(post("/posts/1/comment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(existing)))
+                .andExpect(status().isBadRequest());
+        verify(postService).addComment(any(), any());
+    }
+
+    @Test
+    void repliesBelowTheDeepestLevelAreRejectedTest() throws Exception {
+        Post parent = new Post(1, "deepest", null, new ArrayList<>(), null, PostType.Reply, 0);
+        parent.setDepth(Post.MAX_DEPTH);
+        Post reply = new Post("too deep", null, new ArrayList<>(), null, PostType.Reply);
+        given(postService.findById(1)).willReturn(Optional.of(parent));
+
+        mockMvc.perform(post("/posts/1/comment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(reply)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/posts/1/comments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Collections.singletonList(reply))))
+                .andExpect(status().isBadRequest());
+        verify(postService, never()).addComment(any(), any());
+        verify(postService, never()).addComments(any(), anyList());
+    }
+}
@@ -1,25 +1,46 @@
 package com.revature.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.datasource.ReplicaRouter;
+import com.revature.dtos.UsernameSuggestion;
 import com.revature.models.Post;
 import com.revature.models.PostType;
 import com.revature.models.User;
+import com.revature.services.FeedService;
+import com.revature.services.FeedVersionService;
+import com.revature.services.LiveFeedService;
+import com.revature.services.SummaryService;
+import com.revature.services.TokenService;
 import com.revature.services.UserService;
+import com.revature.services.VersionStampService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.hasItems;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,6 +53,20 @@ public class UserControllerTest {
     private MockMvc mockMvc;
     @MockBean
     private UserService userService;
+    @MockBean
+    private SummaryService summaryService;
+    @MockBean
+    private FeedService feedService;
+    @MockBean
+    private LiveFeedService liveFeedService;
+    @MockBean
+    private VersionStampService versionStampService;
+    @MockBean
+    private FeedVersionService feedVersionService;
+    @MockBean
+    private ReplicaRouter replicaRouter;
+    @MockBean
+    private TokenService tokenService;
     //what we use in order to map our objects to JSon strings. For converting our objects to compare to expected
     //response from the servlet
     @Autowired
@@ -112,7 +147,7 @@ public class UserControllerTest {
     void getUserByIdTestSuccess() throws Exception {
         User testUser2 = new User(2,"test2.com","password2","Bob","Smith","BSmi",null,null,"image2.com");
 
-        given(userService.findById(2)).willReturn(Optional.of(testUser2));
+        given(userService.getProfile(2)).willReturn(Optional.of(testUser2));
         this.mockMvc.perform(get("/users/2"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id", is(testUser2.getId())));
@@ -121,7 +156,7 @@ public class UserControllerTest {
     void getUserByIdTestFail() throws Exception {
         User testUser2 = new User(2,"test2.com","password2","Bob","Smith","BSmi",null,null,"image2.com");
 
-        given(userService.findById(3)).willReturn(Optional.empty());
+        given(userService.getProfile(3)).willReturn(Optional.empty());
         this.mockMvc.perform(get("/users/3"))
                 .andExpect(status().isBadRequest());
     }
@@ -132,6 +167,8 @@ public class UserControllerTest {
         User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
 
         given(userService.findByUsername("BSmi")).willReturn(Optional.of(testUser2));
+        //rendered from a load of its own, with the follow lists
+        given(userService.getProfile(2)).willReturn(Optional.of(testUser2));
         this.mockMvc.perform(get("/users/user/BSmi"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.username", is(testUser2.getUsername())));
@@ -156,11 +193,13 @@ public class UserControllerTest {
         //Using object mapper to write editPassword as a JSON string
         String requestBody = objectMapper.writeValueAsString(editPassword);
         //running the userService find by Id (2 in our test user) and returning Optional of test user
-        given(userService.findById(2)).willReturn(Optional.of(testUser2));
-        //setting the test user's password as the new edited password
-        testUser2.setPassword(editPassword);
-        //when running save method in user service, will return our test user
-        given(userService.save(testUser2)).willReturn((testUser2));
+        given(userService.findByIdForUpdate(2)).willReturn(Optional.of(testUser2));
+        //when changing the password in user service, will return our test user with the new password
+        //the raw request body is handed to the service, quotes included
+        given(userService.changePassword(testUser2, requestBody)).willAnswer(invocation -> {
+            testUser2.setPassword(editPassword);
+            return testUser2;
+        });
         this.mockMvc.perform(put("/users/2/password")
                         //we're sending JSon data
                         .contentType(MediaType.APPLICATION_JSON)
@@ -179,7 +218,7 @@ public class UserControllerTest {
         User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
         String editPassword = "password3";
         String requestBody = objectMapper.writeValueAsString(editPassword);
-        given(userService.findById(2)).willReturn(Optional.empty());
+        given(userService.findByIdForUpdate(2)).willReturn(Optional.empty());
 
         this.mockMvc.perform(put("/users/3/password")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -193,7 +232,7 @@ public class UserControllerTest {
         User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
         String editEmail = "com.test2";
         String requestBody = objectMapper.writeValueAsString(editEmail);
-        given(userService.findById(2)).willReturn(Optional.of(testUser2));
+        given(userService.findByIdForUpdate(2)).willReturn(Optional.of(testUser2));
         testUser2.setEmail(editEmail);
         given(userService.save(testUser2)).willReturn((testUser2));
         this.mockMvc.perform(put("/users/2/email")
@@ -209,7 +248,7 @@ public class UserControllerTest {
         User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
         String editEmail = "com.test2";
         String requestBody = objectMapper.writeValueAsString(editEmail);
-        given(userService.findById(3)).willReturn(Optional.empty());
+        given(userService.findByIdForUpdate(3)).willReturn(Optional.empty());
 
         this.mockMvc.perform(put("/users/3/email")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -222,7 +261,7 @@ public class UserControllerTest {
         String editUsername = "IMsb";
         User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
         String requestBody = objectMapper.writeValueAsString(editUsername);
-        given(userService.findById(2)).willReturn(Optional.of(testUser2));
+        given(userService.findByIdForUpdate(2)).willReturn(Optional.of(testUser2));
         testUser2.setUsername(editUsername);
         given(userService.save(testUser2)).willReturn((testUser2));
         this.mockMvc.perform(put("/users/2/username")
@@ -238,19 +277,67 @@ public class UserControllerTest {
         String editUsername = "IMsb";
         User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
         String requestBody = objectMapper.writeValueAsString(editUsername);
-        given(userService.findById(3)).willReturn(Optional.empty());
+        given(userService.findByIdForUpdate(3)).willReturn(Optional.empty());
         this.mockMvc.perform(put("/users/3/email")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(requestBody))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void editUsernameTakenTestFail() throws Exception {
+        String requestBody = objectMapper.writeValueAsString("IMsb");
+        given(userService.isUsernameTaken(requestBody)).willReturn(true);
+        this.mockMvc.perform(put("/users/2/username")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void editUsernameTakenOnAnotherNodeTestFail() throws Exception {
+        User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
+        String requestBody = objectMapper.writeValueAsString("IMsb");
+        given(userService.findByIdForUpdate(2)).willReturn(Optional.of(testUser2));
+        //the local index misses the name, the unique constraint rejects it
+        given(userService.save(testUser2)).willThrow(new DataIntegrityViolationException("users_username_key"));
+        this.mockMvc.perform(put("/users/2/username")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void editEmailTakenOnAnotherNodeTestFail() throws Exception {
+        User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
+        String requestBody = objectMapper.writeValueAsString("test3.com");
+        given(userService.findByIdForUpdate(2)).willReturn(Optional.of(testUser2));
+        given(userService.save(testUser2)).willThrow(new DataIntegrityViolationException("users_email_key"));
+        this.mockMvc.perform(put("/users/2/email")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchUsernamesTestSuccess() throws Exception {
+        List<UsernameSuggestion> suggestions = new ArrayList<>();
+        suggestions.add(new UsernameSuggestion(2, "BSmi"));
+        //the limit falls back to the default page size
+        given(userService.searchUsernames("bs", 20)).willReturn(suggestions);
+        this.mockMvc.perform(get("/users/search").param("prefix", "bs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].id", is(2)))
+                .andExpect(jsonPath("$[0].username", is("BSmi")));
+    }
+
     @Test
     void updateImageUrlTestSuccess() throws Exception {
         User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
         String editImageUrl = "com.image";
         String requestBody = objectMapper.writeValueAsString(editImageUrl);
-        given(userService.findById(2)).willReturn(Optional.of(testUser2));
+        given(userService.findByIdForUpdate(2)).willReturn(Optional.of(testUser2));
         testUser2.setImageUrl(editImageUrl);
         given(userService.save(testUser2)).willReturn((testUser2));
         this.mockMvc.perform(put("/users/2/profileImage")
@@ -266,7 +353,7 @@ public class UserControllerTest {
         String editImageUrl = "com.image";
         User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
         String requestBody = objectMapper.writeValueAsString(editImageUrl);
-        given(userService.findById(3)).willReturn(Optional.empty());
+        given(userService.findByIdForUpdate(3)).willReturn(Optional.empty());
         this.mockMvc.perform(put("/users/3/profileImage")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(requestBody))
@@ -345,6 +432,19 @@ public class UserControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void countFollowersTestSuccess() throws Exception {
+        given(userService.countFollowers(1)).willReturn(12);
+        given(userService.isFollowing(2, 1)).willReturn(true);
+
+        mockMvc.perform(get("/users/1/followers/count"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("12"));
+        mockMvc.perform(get("/users/2/follows/1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("true"));
+    }
+
     @Test
     void getFeedForUserTestSuccess() throws Exception {
         User testUser1 = new User("test.com", "password", "John", "Doe", "JDoe");
@@ -364,6 +464,88 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$[1].id", is(2)));
     }
     @Test
+    void getFeedPageForUserTestSuccess() throws Exception {
+        User testUser1 = new User("test.com", "password", "John", "Doe", "JDoe");
+        User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
+        testUser1.setId(1);
+        when(userService.findById(1)).thenReturn(Optional.of(testUser1));
+        List<Post> page = new ArrayList<>();
+        page.add(new Post(5,"This is a test post","image.com",new ArrayList<>(), testUser2, PostType.Top, 1));
+        when(userService.getFeedPageForUser(testUser1, Integer.MAX_VALUE, 2)).thenReturn(page);
+
+        //a short page is the last one, so there is no next cursor
+        mockMvc.perform(get("/users/1/feed").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].id", is(5)))
+                .andExpect(header().doesNotExist(PageCursor.NEXT_CURSOR_HEADER));
+    }
+    @Test
+    void getFeedForUserAsyncTestSuccess() throws Exception {
+        User testUser2 = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
+        when(userService.findById(1)).thenReturn(Optional.of(new User(1, "test.com", "password", "John", "Doe", "JDoe", null, null, "image.com")));
+        List<Post> page = new ArrayList<>();
+        page.add(new Post(9,"Newest","image.com",new ArrayList<>(), testUser2, PostType.Top, 0));
+        page.add(new Post(4,"Older","image.com",new ArrayList<>(), testUser2, PostType.Top, 0));
+        when(feedService.getFeedPage(1, Integer.MAX_VALUE, 2)).thenReturn(CompletableFuture.completedFuture(page));
+
+        //the page is only written after the async dispatch
+        MvcResult result = mockMvc.perform(get("/users/1/feed/async").param("limit", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(9)))
+                .andExpect(jsonPath("$[1].id", is(4)))
+                .andExpect(header().string(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode(4)));
+    }
+    @Test
+    void getFeedForUserAsyncTestBusy() throws Exception {
+        when(userService.findById(1)).thenReturn(Optional.of(new User(1, "test.com", "password", "John", "Doe", "JDoe", null, null, "image.com")));
+        when(feedService.getFeedPage(1, Integer.MAX_VALUE, 20)).thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(get("/users/1/feed/async"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+    @Test
+    void getLiveFeedForUserTestSuccess() throws Exception {
+        when(userService.findById(1)).thenReturn(Optional.of(new User(1, "test.com", "password", "John", "Doe", "JDoe", null, null, "image.com")));
+        when(liveFeedService.subscribe(1, Arrays.asList(4, 9))).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/users/1/feed/live").param("posts", "4,9"))
+                .andExpect(request().asyncStarted());
+        verify(liveFeedService).subscribe(1, Arrays.asList(4, 9));
+    }
+    @Test
+    void getLiveFeedForUserTestFail() throws Exception {
+        when(userService.findById(1)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/users/1/feed/live"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(liveFeedService);
+    }
+    @Test
+    void getFeedForUserNotModifiedTest() throws Exception {
+        when(versionStampService.getVersion("feed:1")).thenReturn(OptionalLong.of(1000000L));
+
+        mockMvc.perform(get("/users/1/feed").header("If-None-Match", "\"" + Long.toString(1000000L, 36) + "\""))
+                .andExpect(status().isNotModified());
+        verifyNoInteractions(userService);
+    }
+    @Test
+    void getFeedForUserChangedTest() throws Exception {
+        User testUser = new User(1, "test.com", "password", "John", "Doe", "JDoe", null, new ArrayList<>(), "image.com");
+        when(versionStampService.getVersion("feed:1")).thenReturn(OptionalLong.of(2000000L));
+        when(userService.findById(1)).thenReturn(Optional.of(testUser));
+        when(userService.getFeedForUser(testUser)).thenReturn(new ArrayList<>());
+        when(versionStampService.record(eq("feed:1"), anyLong(), any())).thenReturn(OptionalLong.of(2000000L));
+
+        mockMvc.perform(get("/users/1/feed").header("If-None-Match", "\"" + Long.toString(1000000L, 36) + "\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + Long.toString(2000000L, 36) + "\""));
+    }
+    @Test
     void getFeedForUserTestFail() throws Exception {
         given(userService.findById(1)).willReturn(Optional.empty());
         mockMvc.perform(get("/users/1/feed"))
@@ -398,4 +580,39 @@ public class UserControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
-}
\ No newline at end of file
+    @Test
+    void getPostSummariesByAUserTest() throws Exception {
+        User testUser = new User(1, "test.com", "password", "John", "Doe", "JDoe", null, null, "image.com");
+        given(userService.findById(1)).willReturn(Optional.of(testUser));
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("[{\"id\":1},{\"id\":2}]".getBytes());
+            return null;
+        }).when(summaryService).writePostsByUser(eq(1), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/users/1/posts/summary"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(2)));
+    }
+
+    @Test
+    void getPostSummariesByAUserTestFail() throws Exception {
+        given(userService.findById(1)).willReturn(Optional.empty());
+
+        mockMvc.perform(get("/users/1/posts/summary"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(summaryService);
+    }
+
+    @Test
+    void getFeedSummariesForUserTestFail() throws Exception {
+        given(userService.findById(1)).willReturn(Optional.empty());
+
+        mockMvc.perform(get("/users/1/feed/summary"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(summaryService);
+    }
+}
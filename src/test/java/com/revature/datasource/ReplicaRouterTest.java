@@ -0,0 +1,134 @@
+package com.revature.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRouterTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private ReplicaRouter replicaRouter;
+    private JdbcTemplate routed;
+    private TransactionTemplate readOnly;
+
+    // Two in-memory H2 databases stand in for the primary and its replica, each knows its own name
+    @BeforeEach
+    void setup() {
+        DataSource primaryDataSource = database("primary");
+        DataSource replicaDataSource = database("replica");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("create table replica_lag (ms int)");
+        replica.update("insert into replica_lag values (0)");
+
+        replicaRouter = new ReplicaRouter(Collections.singletonList(replicaDataSource), "select ms from replica_lag",
+                500, 500, 100, 1000);
+        DataSource routedDataSource = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primaryDataSource, replicaRouter));
+        routed = new JdbcTemplate(routedDataSource);
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(routedDataSource));
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void teardown() {
+        ReplicaRouter.clear();
+        primary.execute("drop all objects");
+        replica.execute("drop all objects");
+    }
+
+    @Test
+    void readOnlyTransactionInReadRequestGoesToReplicaTest() {
+        replicaRouter.checkLag();
+        ReplicaRouter.allowReplicaReads(true);
+
+        assertEquals("replica", readOnly.execute(status -> node()));
+        // Outside of a read-only transaction
+        assertEquals("primary", node());
+    }
+
+    @Test
+    void writeRequestStaysOnPrimaryTest() {
+        replicaRouter.checkLag();
+        ReplicaRouter.allowReplicaReads(false);
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void replicaIsOnlyUsedOnceCheckedTest() {
+        ReplicaRouter.allowReplicaReads(true);
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void laggingReplicaIsSkippedUntilItCatchesUpTest() {
+        ReplicaRouter.allowReplicaReads(true);
+        replica.update("update replica_lag set ms = 5000");
+        replicaRouter.checkLag();
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        replica.update("update replica_lag set ms = 100");
+        replicaRouter.checkLag();
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void replicaFailingTheLagQueryIsSkippedTest() {
+        ReplicaRouter.allowReplicaReads(true);
+        replica.execute("drop table replica_lag");
+        replicaRouter.checkLag();
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void onPrimaryOverridesReadRequestTest() {
+        replicaRouter.checkLag();
+        ReplicaRouter.allowReplicaReads(true);
+
+        assertEquals("primary", ReplicaRouter.onPrimary(() -> readOnly.execute(status -> node())));
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void writerStaysStickyTest() {
+        replicaRouter.recordWrite("user:1");
+
+        assertTrue(replicaRouter.isSticky("user:1"));
+        assertFalse(replicaRouter.isSticky("user:2"));
+    }
+
+    @Test
+    void lagBeyondSettleTimeIsRejectedTest() {
+        assertThrows(IllegalStateException.class, () -> new ReplicaRouter(
+                Collections.singletonList(replica.getDataSource()), "select 0", 1000, 500, 100, 1000));
+    }
+
+    private String node() {
+        return routed.queryForObject("select name from node", String.class);
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table node (name varchar(16))");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+}
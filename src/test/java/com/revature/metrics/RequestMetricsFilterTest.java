@@ -0,0 +1,85 @@
+package com.revature.metrics;
+
+import com.revature.dtos.EndpointStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestMetricsFilterTest {
+
+    private RequestMetricsFilter requestMetricsFilter;
+    private SqlStatementCounter sqlStatementCounter;
+
+    @BeforeEach
+    void setup() {
+        //more than 3 statements in one request raises the alarm
+        requestMetricsFilter = new RequestMetricsFilter(3);
+        sqlStatementCounter = new SqlStatementCounter();
+    }
+
+    //a chain that routes to the given pattern and runs the given number of statements
+    private FilterChain controller(String pattern, int statements) throws NoSuchMethodException {
+        HandlerMethod handler = new HandlerMethod(this, RequestMetricsFilterTest.class.getDeclaredMethod("setup"));
+        return (request, response) -> {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+            request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler);
+            for (int i = 0; i < statements; i++) {
+                sqlStatementCounter.inspect("select * from users");
+            }
+        };
+    }
+
+    private void perform(String method, String uri, FilterChain chain) throws Exception {
+        requestMetricsFilter.doFilter(new MockHttpServletRequest(method, uri), new MockHttpServletResponse(), chain);
+    }
+
+    @Test
+    void recordsPerEndpointPatternTest() throws Exception {
+        perform("GET", "/users/1/feed", controller("/users/{id}/feed", 2));
+        perform("GET", "/users/2/feed", controller("/users/{id}/feed", 2));
+        perform("GET", "/posts", controller("/posts", 1));
+
+        List<EndpointStatistics> statistics = requestMetricsFilter.getStatistics();
+        assertEquals(2, statistics.size());
+        assertEquals("GET /posts", statistics.get(0).getEndpoint());
+        EndpointStatistics feed = statistics.get(1);
+        assertEquals("GET /users/{id}/feed", feed.getEndpoint());
+        assertEquals(2, feed.getRequests());
+        assertEquals(2, feed.getStatementsP50());
+        assertEquals(0, feed.getStatementAlarms());
+        assertTrue(feed.getP999Millis() >= feed.getP50Millis());
+    }
+
+    @Test
+    void statementAlarmTest() throws Exception {
+        perform("GET", "/users/1/feed", controller("/users/{id}/feed", 25));
+
+        EndpointStatistics feed = requestMetricsFilter.getStatistics().get(0);
+        assertEquals(25, feed.getStatementsMax());
+        assertEquals(1, feed.getStatementAlarms());
+    }
+
+    @Test
+    void statementsOutsideRequestsAreNotCountedTest() throws Exception {
+        sqlStatementCounter.inspect("select * from posts");
+        perform("GET", "/posts", controller("/posts", 0));
+
+        assertEquals(0, requestMetricsFilter.getStatistics().get(0).getStatementsMax());
+    }
+
+    @Test
+    void unroutedRequestsAreNotRecordedTest() throws Exception {
+        //the resource handler matches /** but is not a controller method
+        perform("GET", "/missing", (request, response) ->
+                request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/**"));
+        assertTrue(requestMetricsFilter.getStatistics().isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package com.revature.repositories;
+
+import com.revature.models.Post;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentThreadMigrationTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private JdbcTemplate jdbcTemplate;
+    private CommentThreadMigration migration;
+
+    // Just the thread columns of the posts table, in an in-memory H2 database
+    @BeforeEach
+    void setup() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:threads" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table posts (id int primary key, parent_id int, root_id int, "
+                + "depth int default 0 not null, path varchar(1000) default '' not null)");
+        migration = new CommentThreadMigration(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), "");
+    }
+
+    @AfterEach
+    void teardown() {
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void joinTableIsCopiedAndDroppedTest() {
+        jdbcTemplate.update("insert into posts (id) values (1), (2), (3), (4)");
+        jdbcTemplate.execute("create table posts_comments (post_id int, comments_id int)");
+        jdbcTemplate.update("insert into posts_comments values (1, 2), (2, 3), (1, 4)");
+
+        migration.migrate();
+
+        assertEquals(Integer.valueOf(2), parentOf(3));
+        assertEquals(Integer.valueOf(1), parentOf(4));
+        assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject("select root_id from posts where id = 3", Integer.class));
+        assertEquals(2, (int) jdbcTemplate.queryForObject("select depth from posts where id = 3", Integer.class));
+        assertEquals(Post.pathSegment(1) + Post.pathSegment(2),
+                jdbcTemplate.queryForObject("select path from posts where id = 3", String.class));
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from information_schema.tables "
+                + "where lower(table_name) = 'posts_comments'", Integer.class));
+    }
+
+    @Test
+    void importedParentsAreThreadedLevelByLevelTest() {
+        // Replies listed before their parents, as an import may leave them
+        jdbcTemplate.update("insert into posts (id, parent_id) values (1, null), (5, 7), (6, 5), (7, 1), (8, 99)");
+
+        migration.migrate();
+
+        assertEquals(Post.pathSegment(1) + Post.pathSegment(7) + Post.pathSegment(5),
+                jdbcTemplate.queryForObject("select path from posts where id = 6", String.class));
+        assertEquals(3, (int) jdbcTemplate.queryForObject("select depth from posts where id = 6", Integer.class));
+        // The reply to a missing post stays out of every thread
+        assertNull(jdbcTemplate.queryForObject("select root_id from posts where id = 8", Integer.class));
+
+        // Nothing left to do on the next start
+        migration.migrate();
+        assertEquals(3, (int) jdbcTemplate.queryForObject("select depth from posts where id = 6", Integer.class));
+    }
+
+    private Integer parentOf(int id) {
+        return jdbcTemplate.queryForObject("select parent_id from posts where id = ?", Integer.class, id);
+    }
+}
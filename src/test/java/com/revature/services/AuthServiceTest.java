@@ -19,6 +19,10 @@ class AuthServiceTest {
 
     @Mock
     private UserService userService;
+    @Mock
+    private TokenService tokenService;
+    @Mock
+    private PasswordHashingService passwordHashingService;
     @InjectMocks
     private AuthService authService;
 
@@ -59,6 +63,7 @@ class AuthServiceTest {
 
         User rUser = authService.register(mockUser);
 
+        verify(passwordHashingService).hash("blorp");
         verify(userService).save(mockUser);
         assertEquals(mockUser,rUser);
     }
@@ -72,4 +77,12 @@ class AuthServiceTest {
         assertThrows(IllegalArgumentException.class, () -> authService.register(mockUser));
         verify(userService).save(mockUser);
     }
-}
\ No newline at end of file
+
+    @Test
+    void issueTokenForUserIdTest() {
+        User mockUser = new User(3, "blorp@email.com", "blorp", "david", "mata", "norping", null, null, null);
+        when(tokenService.issue(3)).thenReturn("token");
+
+        assertEquals("token", authService.issueToken(mockUser));
+    }
+}
@@ -0,0 +1,135 @@
+package com.revature.services;
+
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import com.revature.models.User;
+import com.revature.repositories.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentTreeServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private EntityManager entityManager;
+
+    private CommentTreeService commentTreeService;
+
+    private User author;
+
+    @BeforeEach
+    void setup() {
+        //two levels deep, at most two comments per parent
+        commentTreeService = new CommentTreeService(postRepository, entityManager, 2, 2);
+        author = new User(1, "test.com", "password", "John", "Doe", "JDoe", null, null, "image.com");
+    }
+
+    private Post post(int id, PostType postType) {
+        return new Post(id, "post " + id, null, null, author, postType, 0);
+    }
+
+    private Post reply(int id, Post parent) {
+        Post reply = post(id, parent.getParentId() == null ? PostType.Comment : PostType.Reply);
+        reply.setParentId(parent.getId());
+        reply.setRootId(parent.childRootId());
+        reply.setDepth(parent.getDepth() + 1);
+        reply.setPath(parent.childPath());
+        return reply;
+    }
+
+    @Test
+    void loadsThreadsInOneQueryTest() {
+        Post root1 = post(1, PostType.Top);
+        Post root2 = post(2, PostType.Top);
+        Post comment3 = reply(3, root1);
+        Post comment4 = reply(4, root2);
+        Post reply5 = reply(5, comment3);
+        when(postRepository.findThreads(Arrays.asList(1, 2), 2))
+                .thenReturn(Arrays.asList(comment3, reply5, comment4));
+
+        commentTreeService.loadCommentTrees(Arrays.asList(root1, root2));
+
+        assertEquals(Collections.singletonList(comment3), root1.getComments());
+        assertEquals(Collections.singletonList(comment4), root2.getComments());
+        assertEquals(Collections.singletonList(reply5), comment3.getComments());
+        //the last level is cut off with an empty list instead of a lazy collection
+        assertEquals(Collections.emptyList(), reply5.getComments());
+        verify(postRepository).findThreads(anyCollection(), anyInt());
+        verify(entityManager).detach(reply5);
+        //authors are replaced with copies, their follow lists are never loaded
+        assertNotSame(author, reply5.getAuthor());
+        assertEquals(author.getId(), reply5.getAuthor().getId());
+        assertNull(reply5.getAuthor().getFollowers());
+    }
+
+    @Test
+    void commentLoadsItsReplyTreeByPathTest() {
+        Post root = post(1, PostType.Top);
+        Post comment = reply(2, root);
+        Post reply = reply(3, comment);
+        when(postRepository.findReplyTree(1, "00000000010000000002", "00000000010000000003", 3))
+                .thenReturn(Collections.singletonList(reply));
+
+        commentTreeService.loadCommentTrees(Collections.singletonList(comment));
+
+        assertEquals(Collections.singletonList(reply), comment.getComments());
+        verify(postRepository, never()).findThreads(anyCollection(), anyInt());
+    }
+
+    @Test
+    void fanOutLimitsCommentsPerParentTest() {
+        Post root = post(1, PostType.Top);
+        List<Post> replies = new ArrayList<>();
+        for (int id = 2; id <= 5; id++) {
+            replies.add(reply(id, root));
+        }
+        //a reply under a comment that was cut off is left out with it
+        replies.add(reply(6, replies.get(3)));
+        when(postRepository.findThreads(Collections.singletonList(1), 2)).thenReturn(replies);
+
+        commentTreeService.loadCommentTrees(Collections.singletonList(root));
+
+        assertEquals(2, root.getComments().size());
+        assertEquals(2, root.getComments().get(0).getId());
+        assertEquals(3, root.getComments().get(1).getId());
+        assertTrue(root.isCommentsTruncated());
+        verify(entityManager, never()).detach(replies.get(4));
+    }
+
+    @Test
+    void repliesBelowMaxDepthAreMarkedTruncatedTest() {
+        Post root = post(1, PostType.Top);
+        Post comment = reply(2, root);
+        Post reply = reply(3, comment);
+        reply.setCommentCount(1);
+        when(postRepository.findThreads(Collections.singletonList(1), 2)).thenReturn(Arrays.asList(comment, reply));
+
+        commentTreeService.loadCommentTrees(Collections.singletonList(root));
+
+        assertFalse(root.isCommentsTruncated());
+        assertFalse(comment.isCommentsTruncated());
+        assertTrue(reply.isCommentsTruncated());
+    }
+
+    @Test
+    void noRootsNoQueriesTest() {
+        commentTreeService.loadCommentTrees(Collections.emptyList());
+        verifyNoInteractions(postRepository);
+    }
+}
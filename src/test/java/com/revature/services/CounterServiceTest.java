@@ -0,0 +1,107 @@
+package com.revature.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CounterServiceTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @Mock
+    private EntityCacheService entityCacheService;
+    @Mock
+    private VersionStampService versionStampService;
+
+    private JdbcTemplate jdbcTemplate;
+    private CounterService counterService;
+
+    // Just the counted columns of the three tables, in an in-memory H2 database
+    @BeforeEach
+    void setup() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:counters" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("create table users (id int primary key, follower_count int default 0 not null, "
+                + "following_count int default 0 not null, post_count int default 0 not null)");
+        jdbcTemplate.execute("create table posts (id int primary key, author_id int, post_type int, parent_id int, "
+                + "comment_count int default 0 not null)");
+        jdbcTemplate.execute("create table follower_following (user_id int, follower_id int)");
+        counterService = new CounterService(jdbcTemplate, entityCacheService, versionStampService, 2, "");
+    }
+
+    @AfterEach
+    void teardown() {
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void countsChangeInPlaceTest() {
+        jdbcTemplate.update("insert into users (id) values (1), (5)");
+        jdbcTemplate.update("insert into posts (id, author_id, post_type) values (1, 1, 0)");
+
+        counterService.addComments(1, 2);
+        counterService.addComments(1, -1);
+        counterService.addFollow(5, 1, 1);
+        counterService.addPosts(1, 1);
+
+        assertEquals(1, count("select comment_count from posts where id = 1"));
+        assertEquals(1, count("select follower_count from users where id = 1"));
+        assertEquals(1, count("select following_count from users where id = 5"));
+        assertEquals(0, count("select follower_count from users where id = 5"));
+        assertEquals(1, count("select post_count from users where id = 1"));
+    }
+
+    @Test
+    void reconcileRepairsDriftedRowsOnlyTest() {
+        jdbcTemplate.update("insert into users (id, follower_count) values (1, 7), (2, 0)");
+        jdbcTemplate.update("insert into follower_following values (1, 2)");
+        jdbcTemplate.update("update users set following_count = 1 where id = 2");
+        jdbcTemplate.update("insert into posts (id, author_id, post_type, parent_id, comment_count) "
+                + "values (1, 2, 0, null, 0), (2, 2, 1, 1, 0)");
+
+        counterService.reconcile();
+
+        assertEquals(1, count("select comment_count from posts where id = 1"));
+        assertEquals(0, count("select comment_count from posts where id = 2"));
+        assertEquals(1, count("select follower_count from users where id = 1"));
+        // Only the top level post counts
+        assertEquals(1, count("select post_count from users where id = 2"));
+        verify(entityCacheService).evictPost(1);
+        verify(entityCacheService, never()).evictPost(2);
+        verify(entityCacheService).evictUser(1);
+        verify(entityCacheService).evictUser(2);
+        verify(versionStampService).touchPost(1);
+    }
+
+    @Test
+    void reconcileWalksTablesInBatchesTest() {
+        jdbcTemplate.update("insert into posts (id, comment_count) values (1, 0), (2, 0), (3, 4)");
+
+        // Posts 1 and 2, then 3, then the end of the table, then 1 and 2 again
+        counterService.reconcile();
+        assertEquals(4, count("select comment_count from posts where id = 3"));
+        counterService.reconcile();
+        assertEquals(0, count("select comment_count from posts where id = 3"));
+
+        jdbcTemplate.update("update posts set comment_count = 9 where id in (1, 3)");
+        counterService.reconcile();
+        counterService.reconcile();
+        assertEquals(0, count("select comment_count from posts where id = 1"));
+        assertEquals(9, count("select comment_count from posts where id = 3"));
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
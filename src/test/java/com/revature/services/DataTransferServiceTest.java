@@ -0,0 +1,120 @@
+package com.revature.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.models.PostType;
+import com.revature.repositories.IdSequenceInitializer;
+import com.revature.repositories.PostRepository;
+import com.revature.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DataTransferServiceTest {
+
+    private static final String USER_SQL = "insert into flutter.users (id, email, password, first_name, last_name, "
+            + "username, image_url) values (?, ?, ?, ?, ?, ?, ?)";
+    private static final String POST_SQL = "insert into flutter.posts (id, text, image_url, post_type, likes, author_id) "
+            + "values (?, ?, ?, ?, ?, ?)";
+    private static final String COMMENT_SQL = "update flutter.posts set parent_id = ? where id = ?";
+    private static final String FOLLOW_SQL = "insert into flutter.follower_following (user_id, follower_id) values (?, ?)";
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private IdSequenceInitializer idSequenceInitializer;
+
+    private DataTransferService dataTransferService;
+
+    @BeforeEach
+    void setup() {
+        dataTransferService = new DataTransferService(userRepository, postRepository, jdbcTemplate, new ObjectMapper(),
+                idSequenceInitializer, 2, 2, "flutter");
+    }
+
+    @Test
+    void exportWritesOneRecordPerLineTest() throws IOException {
+        when(userRepository.streamAllForExport()).thenReturn(Stream.<Object[]>of(
+                new Object[]{1, "a@x", "hash", "A", "B", "alice", null}));
+        when(postRepository.streamAllForExport()).thenReturn(Stream.<Object[]>of(
+                new Object[]{2, "hello \"there\"", null, PostType.Top, 4, 1}));
+        when(postRepository.streamAllCommentLinks()).thenReturn(Stream.empty());
+        when(userRepository.streamAllFollows()).thenReturn(Stream.<Object[]>of(new Object[]{1, 3}));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(3, dataTransferService.export(Channels.newChannel(out)));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(4, lines.length);
+        assertEquals("{\"type\":\"user\",\"id\":1,\"email\":\"a@x\",\"password\":\"hash\",\"firstName\":\"A\","
+                + "\"lastName\":\"B\",\"username\":\"alice\",\"imageUrl\":null}", lines[0]);
+        assertEquals("{\"type\":\"post\",\"id\":2,\"text\":\"hello \\\"there\\\"\",\"imageUrl\":null,"
+                + "\"postType\":\"Top\",\"likes\":4,\"authorId\":1}", lines[1]);
+        assertEquals("{\"type\":\"follow\",\"userId\":1,\"followerId\":3}", lines[2]);
+        assertEquals("", lines[3]);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importInsertsInChunksTypeByTypeTest() throws IOException {
+        String input = "{\"type\":\"user\",\"id\":1,\"email\":\"a@x\",\"username\":\"alice\"}\n"
+                + "{\"type\":\"user\",\"id\":2,\"email\":\"b@x\",\"username\":\"bob\"}\n"
+                + "{\"type\":\"user\",\"id\":3,\"email\":\"c@x\",\"username\":\"carol\"}\n"
+                + "\n"
+                + "{\"type\":\"post\",\"id\":7,\"text\":\"hi\",\"postType\":\"Comment\",\"likes\":0,\"authorId\":1}\n"
+                + "{\"type\":\"comment\",\"postId\":2,\"commentId\":7}\n"
+                + "{\"type\":\"follow\",\"userId\":1,\"followerId\":2}\n";
+
+        long records = dataTransferService.importFrom(Channels.newChannel(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))));
+
+        assertEquals(6, records);
+        ArgumentCaptor<List<Object[]>> users = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(USER_SQL), users.capture());
+        assertEquals(3, users.getAllValues().stream().mapToInt(List::size).sum());
+
+        ArgumentCaptor<List<Object[]>> posts = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Object[]>> comments = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(jdbcTemplate, idSequenceInitializer);
+        inOrder.verify(jdbcTemplate).batchUpdate(eq(POST_SQL), posts.capture());
+        inOrder.verify(jdbcTemplate).batchUpdate(eq(COMMENT_SQL), comments.capture());
+        inOrder.verify(jdbcTemplate).batchUpdate(eq(FOLLOW_SQL), anyList());
+        inOrder.verify(idSequenceInitializer).initialize();
+        assertArrayEquals(new Object[]{7, "hi", null, PostType.Comment.ordinal(), 0, 1}, posts.getValue().get(0));
+        // A comment sets the parent of a post imported before it
+        assertArrayEquals(new Object[]{2, 7}, comments.getValue().get(0));
+    }
+
+    @Test
+    void importRejectsUnknownRecordsTest() {
+        String input = "{\"type\":\"user\",\"id\":1}\n{\"type\":\"like\",\"postId\":1}\n";
+
+        assertThrows(IOException.class, () -> dataTransferService.importFrom(Channels.newChannel(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)))));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(idSequenceInitializer, never()).initialize();
+    }
+}
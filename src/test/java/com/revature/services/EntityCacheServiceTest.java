@@ -0,0 +1,121 @@
+package com.revature.services;
+
+import com.revature.datasource.ReplicaRouter;
+import com.revature.dtos.CacheStatistics;
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import com.revature.models.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+class EntityCacheServiceTest {
+
+    private EntityCacheService entityCacheService;
+
+    private User user;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setup() {
+        entityCacheService = new EntityCacheService(mock(EntityManager.class, RETURNS_DEEP_STUBS), mock(ReplicaRouter.class), 100, 60, 100, 60);
+        user = new User(1, "test.com", "password", "John", "Doe", "JDoe", new ArrayList<>(), new ArrayList<>(), "image.com");
+        loads = new AtomicInteger();
+    }
+
+    private <T> Supplier<Optional<T>> counting(T value) {
+        return () -> {
+            loads.incrementAndGet();
+            return Optional.ofNullable(value);
+        };
+    }
+
+    @Test
+    void userIsLoadedOnceTest() {
+        assertEquals(1, entityCacheService.getUser(1, counting(user)).get().getId());
+        assertEquals(1, entityCacheService.getUser(1, counting(user)).get().getId());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void everyLookupGetsItsOwnCopyTest() {
+        User first = entityCacheService.getUser(1, counting(user)).get();
+        first.setUsername("JDoe2");
+        User second = entityCacheService.getUser(1, counting(user)).get();
+
+        assertNotSame(user, first);
+        assertNotSame(first, second);
+        assertEquals("JDoe", second.getUsername());
+        //the follow lists are not loaded for the cache
+        assertNull(second.getFollowers());
+        assertNull(second.getFollowing());
+    }
+
+    @Test
+    void evictedUserIsLoadedAgainTest() {
+        entityCacheService.getUser(1, counting(user));
+        entityCacheService.evictUser(1);
+        entityCacheService.getUser(1, counting(user));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void missesAreNotCachedTest() {
+        assertFalse(entityCacheService.getUserByEmail("test.com", counting(null)).isPresent());
+        //the user registers, the next lookup has to see them
+        assertTrue(entityCacheService.getUserByEmail("test.com", counting(user)).isPresent());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void usernameLookupSharesTheIdCacheTest() {
+        entityCacheService.getUserByUsername("JDoe", counting(user));
+        assertEquals("JDoe", entityCacheService.getUser(1, counting(user)).get().getUsername());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void renamedUserIsNotFoundByOldUsernameTest() {
+        entityCacheService.getUserByUsername("JDoe", counting(user));
+        //the user is renamed and saved, and loaded again by id
+        user.setUsername("JDoe2");
+        entityCacheService.evictUser(1);
+        entityCacheService.getUser(1, counting(user));
+
+        assertFalse(entityCacheService.getUserByUsername("JDoe", counting(null)).isPresent());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void postIsLoadedOnceUntilEvictedTest() {
+        Post post = new Post(2, "First post", "FirstPic", new ArrayList<>(), user, PostType.Top, 0);
+        entityCacheService.getPost(2, counting(post));
+        entityCacheService.getPost(2, counting(post));
+        entityCacheService.evictPost(2);
+        entityCacheService.getPost(2, counting(post));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void statisticsCountHitsAndMissesTest() {
+        entityCacheService.getUser(1, counting(user));
+        entityCacheService.getUser(1, counting(user));
+
+        List<CacheStatistics> statistics = entityCacheService.getStatistics();
+        CacheStatistics users = statistics.get(0);
+        assertEquals("users", users.getName());
+        assertEquals(1, users.getHits());
+        assertEquals(1, users.getMisses());
+        assertEquals(1, users.getSize());
+    }
+}
@@ -0,0 +1,121 @@
+package com.revature.services;
+
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import com.revature.repositories.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeedServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private PostService postService;
+    @Mock
+    private TimelineService timelineService;
+    @Mock
+    private FollowGraphService followGraphService;
+
+    private FeedService feedService;
+
+    @BeforeEach
+    void setup() {
+        feedService = new FeedService(postRepository, postService, timelineService, followGraphService, 2, 2, 16);
+    }
+
+    @AfterEach
+    void shutdown() {
+        feedService.shutdown();
+    }
+
+    private static List<Post> posts(int... ids) {
+        List<Post> posts = new ArrayList<>();
+        for (int id : ids) {
+            posts.add(new Post(id, "post " + id, null, new ArrayList<>(), null, PostType.Top, 0));
+        }
+        return posts;
+    }
+
+    @Test
+    void mergeTakesNewestAcrossListsTest() {
+        List<List<Integer>> lists = Arrays.asList(
+                Arrays.asList(20, 11, 3),
+                Collections.emptyList(),
+                Arrays.asList(15, 14, 2),
+                Collections.singletonList(12));
+
+        assertEquals(Arrays.asList(20, 15, 14, 12), FeedService.merge(lists, 4));
+        assertEquals(Arrays.asList(20, 15, 14, 12, 11, 3, 2), FeedService.merge(lists, 10));
+        assertTrue(FeedService.merge(Collections.emptyList(), 5).isEmpty());
+    }
+
+    @Test
+    void feedPageQueriesEveryChunkTest() {
+        when(timelineService.getPostIds(1)).thenReturn(Optional.empty());
+        when(followGraphService.getFollowingIds(1)).thenReturn(new int[]{2, 3, 4, 5, 6});
+        when(postRepository.findIdsByAuthorIdInAndPostTypeAndIdLessThan(Arrays.asList(2, 3), PostType.Top, 100, PageRequest.of(0, 3)))
+                .thenReturn(Arrays.asList(90, 40));
+        when(postRepository.findIdsByAuthorIdInAndPostTypeAndIdLessThan(Arrays.asList(4, 5), PostType.Top, 100, PageRequest.of(0, 3)))
+                .thenReturn(Arrays.asList(70, 60, 50));
+        when(postRepository.findIdsByAuthorIdInAndPostTypeAndIdLessThan(Collections.singletonList(6), PostType.Top, 100, PageRequest.of(0, 3)))
+                .thenReturn(Collections.emptyList());
+        List<Post> page = posts(90, 70, 60);
+        when(postService.getPostsNewestFirst(Arrays.asList(90, 70, 60))).thenReturn(page);
+
+        assertSame(page, feedService.getFeedPage(1, 100, 3).join());
+    }
+
+    @Test
+    void fullTimelineSkipsTheQueriesTest() {
+        when(timelineService.getPostIds(1)).thenReturn(Optional.of(Arrays.asList(120, 99, 98, 97)));
+        List<Post> page = posts(99, 98);
+        when(postService.getPostsNewestFirst(Arrays.asList(99, 98))).thenReturn(page);
+
+        assertSame(page, feedService.getFeedPage(1, 100, 2).join());
+        verifyNoInteractions(postRepository, followGraphService);
+    }
+
+    @Test
+    void timelineContinuesWithQueriesTest() {
+        when(timelineService.getPostIds(1)).thenReturn(Optional.of(Collections.singletonList(99)));
+        when(followGraphService.getFollowingIds(1)).thenReturn(new int[]{2});
+        when(postRepository.findIdsByAuthorIdInAndPostTypeAndIdLessThan(Collections.singletonList(2), PostType.Top, 99, PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(50, 10));
+        List<Post> page = posts(99, 50, 10);
+        when(postService.getPostsNewestFirst(Arrays.asList(99, 50, 10))).thenReturn(page);
+
+        assertSame(page, feedService.getFeedPage(1, 100, 3).join());
+    }
+
+    @Test
+    void deletedTimelinePostsAreRefilledTest() {
+        when(timelineService.getPostIds(1)).thenReturn(Optional.of(Arrays.asList(99, 98, 97)));
+        //98 was deleted after it was pushed
+        when(postService.getPostsNewestFirst(Arrays.asList(99, 98))).thenReturn(posts(99));
+        when(followGraphService.getFollowingIds(1)).thenReturn(new int[]{2});
+        when(postRepository.findIdsByAuthorIdInAndPostTypeAndIdLessThan(Collections.singletonList(2), PostType.Top, 98, PageRequest.of(0, 1)))
+                .thenReturn(Collections.singletonList(97));
+        when(postService.getPostsNewestFirst(Collections.singletonList(97))).thenReturn(posts(97));
+
+        List<Post> page = feedService.getFeedPage(1, 100, 2).join();
+
+        assertEquals(2, page.size());
+        assertEquals(97, page.get(1).getId());
+    }
+}
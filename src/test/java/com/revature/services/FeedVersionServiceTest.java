@@ -0,0 +1,80 @@
+package com.revature.services;
+
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import com.revature.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeedVersionServiceTest {
+
+    @Mock
+    private FollowGraphService followGraphService;
+    @Mock
+    private VersionStampService versionStampService;
+    @Mock
+    private UserRepository userRepository;
+
+    private FeedVersionService feedVersionService;
+
+    @BeforeEach
+    void setup() {
+        //authors with up to 4 followers raise their followers' stamps, feeds watch authors with more than 2
+        feedVersionService = new FeedVersionService(followGraphService, versionStampService, userRepository, 4, 60);
+    }
+
+    @Test
+    void postsRaiseTheStampsOfFewFollowersTest() {
+        when(followGraphService.getFollowerIds(1)).thenReturn(new int[]{2, 3});
+        when(followGraphService.getFollowerIds(9)).thenReturn(new int[]{1, 2, 3, 4, 5});
+
+        feedVersionService.touchFeeds(1);
+        feedVersionService.touchFeeds(9);
+
+        verify(versionStampService).touchFeed(2);
+        verify(versionStampService).touchFeed(3);
+        verify(versionStampService, never()).touchFeed(5);
+    }
+
+    @Test
+    void feedWatchesTheFollowedAuthorsWithManyFollowersTest() {
+        List<Post> feed = Collections.singletonList(new Post(4, "post", null, new ArrayList<>(), null, PostType.Top, 0));
+        when(userRepository.findIdsWithMoreFollowersThan(2)).thenReturn(Arrays.asList(9, 5));
+        when(followGraphService.getFollowingIds(1)).thenReturn(new int[]{5, 6});
+
+        VersionStampService.Dependencies dependencies = feedVersionService.dependencies(1, feed);
+
+        assertEquals(new VersionStampService.Dependencies().posts(feed).feed(1).user(1).postsBy(1).postsBy(5),
+                dependencies);
+        //the watched authors are read once per refresh
+        feedVersionService.dependencies(1, feed);
+        verify(userRepository, times(1)).findIdsWithMoreFollowersThan(anyInt());
+    }
+
+    @Test
+    void becomingWatchedRaisesTheFollowersStampsOnceTest() {
+        when(followGraphService.countFollowers(9)).thenReturn(3);
+        when(followGraphService.getFollowerIds(9)).thenReturn(new int[]{1, 2, 3});
+        when(userRepository.findIdsWithMoreFollowersThan(2))
+                .thenReturn(Collections.emptyList(), Collections.singletonList(9));
+
+        feedVersionService.followed(9);
+        feedVersionService.followed(9);
+
+        verify(versionStampService, times(1)).touchFeed(1);
+        verify(versionStampService, times(1)).touchFeed(3);
+    }
+}
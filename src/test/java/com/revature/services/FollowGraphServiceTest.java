@@ -0,0 +1,145 @@
+package com.revature.services;
+
+import com.revature.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FollowGraphServiceTest {
+
+    private static final String INSERT = "insert into flutter.follower_following (user_id, follower_id) "
+            + "select ?, ? where not exists (select 1 from flutter.follower_following where user_id = ? and follower_id = ?)";
+    private static final String DELETE = "delete from flutter.follower_following where user_id = ? and follower_id = ?";
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private CounterService counterService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private FollowGraphService followGraphService;
+
+    @BeforeEach
+    void setup() {
+        followGraphService = new FollowGraphService(userRepository, jdbcTemplate, counterService,
+                new TransactionTemplate(transactionManager), 100, 300, "flutter");
+    }
+
+    @Test
+    void followersAreLoadedOnceAndSortedTest() {
+        when(userRepository.findFollowerIds(1)).thenReturn(Arrays.asList(9, 2, 5));
+
+        assertArrayEquals(new int[]{2, 5, 9}, followGraphService.getFollowerIds(1));
+        assertEquals(3, followGraphService.countFollowers(1));
+        assertTrue(followGraphService.isFollowing(5, 1));
+        assertFalse(followGraphService.isFollowing(4, 1));
+
+        verify(userRepository, times(1)).findFollowerIds(1);
+    }
+
+    @Test
+    void followInsertsOneRowTest() {
+        when(userRepository.findFollowerIds(1)).thenReturn(Arrays.asList(3, 7));
+        when(userRepository.findFollowingIds(5)).thenReturn(Collections.emptyList());
+        followGraphService.getFollowingIds(5);
+        when(jdbcTemplate.update(INSERT, 1, 5, 1, 5)).thenReturn(1);
+
+        assertTrue(followGraphService.follow(5, 1));
+
+        verify(jdbcTemplate).update(INSERT, 1, 5, 1, 5);
+        verify(counterService).addFollow(5, 1, 1);
+        verify(transactionManager).commit(any());
+        assertArrayEquals(new int[]{3, 5, 7}, followGraphService.getFollowerIds(1));
+        assertArrayEquals(new int[]{1}, followGraphService.getFollowingIds(5));
+    }
+
+    @Test
+    void followTwiceTest() {
+        when(userRepository.findFollowerIds(1)).thenReturn(Collections.singletonList(5));
+
+        assertFalse(followGraphService.follow(5, 1));
+        verifyNoInteractions(jdbcTemplate, counterService);
+    }
+
+    @Test
+    void followMadeOnAnotherNodeIsNotCountedTest() {
+        when(userRepository.findFollowerIds(1)).thenReturn(Collections.emptyList());
+        //the row is already there, the insert adds nothing
+        when(jdbcTemplate.update(INSERT, 1, 5, 1, 5)).thenReturn(0);
+
+        assertFalse(followGraphService.follow(5, 1));
+
+        verifyNoInteractions(counterService);
+        assertTrue(followGraphService.isFollowing(5, 1));
+    }
+
+    @Test
+    void concurrentFollowIsNotCountedTest() {
+        when(userRepository.findFollowerIds(1)).thenReturn(Collections.emptyList());
+        //another node inserted the row between the check and the insert
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(jdbcTemplate.update(INSERT, 1, 5, 1, 5)).thenThrow(new DuplicateKeyException("follower_following"));
+
+        assertFalse(followGraphService.follow(5, 1));
+
+        verifyNoInteractions(counterService);
+        //TransactionTemplate commits a rollback-only status through the manager, which rolls it back
+        verify(transactionManager).commit(argThat(TransactionStatus::isRollbackOnly));
+        assertTrue(followGraphService.isFollowing(5, 1));
+    }
+
+    @Test
+    void unfollowMadeOnAnotherNodeIsNotCountedTest() {
+        when(userRepository.findFollowerIds(1)).thenReturn(Collections.singletonList(5));
+        when(jdbcTemplate.update(DELETE, 1, 5)).thenReturn(0);
+
+        assertFalse(followGraphService.unfollow(5, 1));
+
+        verifyNoInteractions(counterService);
+        assertFalse(followGraphService.isFollowing(5, 1));
+    }
+
+    @Test
+    void unfollowDeletesOneRowTest() {
+        when(userRepository.findFollowerIds(1)).thenReturn(Arrays.asList(3, 5, 7));
+        when(jdbcTemplate.update(DELETE, 1, 5)).thenReturn(1);
+
+        assertTrue(followGraphService.unfollow(5, 1));
+        assertFalse(followGraphService.unfollow(5, 1));
+
+        verify(jdbcTemplate, times(1)).update(DELETE, 1, 5);
+        verify(counterService, times(1)).addFollow(5, 1, -1);
+        assertArrayEquals(new int[]{3, 7}, followGraphService.getFollowerIds(1));
+    }
+
+    @Test
+    void failedInsertLeavesIndexUnchangedTest() {
+        when(userRepository.findFollowerIds(1)).thenReturn(Collections.emptyList());
+        when(jdbcTemplate.update(anyString(), anyInt(), anyInt(), anyInt(), anyInt()))
+                .thenThrow(new RuntimeException("down"));
+
+        assertThrows(RuntimeException.class, () -> followGraphService.follow(5, 1));
+        assertEquals(0, followGraphService.countFollowers(1));
+        verifyNoInteractions(counterService);
+        verify(transactionManager).rollback(any());
+    }
+}
@@ -0,0 +1,146 @@
+package com.revature.services;
+
+import com.revature.dtos.FeedEvent;
+import com.revature.dtos.PostLikes;
+import com.revature.repositories.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LikeCounterServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private TrendingService trendingService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private VersionStampService versionStampService;
+    @Mock
+    private EntityCacheService entityCacheService;
+
+    private LikeCounterService likeCounterService;
+
+    @BeforeEach
+    void setup() {
+        likeCounterService = new LikeCounterService(postRepository, jdbcTemplate, trendingService, eventPublisher, versionStampService, entityCacheService, "flutter");
+    }
+
+    private static PostLikes stored(int likes, int threadId) {
+        return new PostLikes() {
+            @Override
+            public int getLikes() {
+                return likes;
+            }
+
+            @Override
+            public int getThreadId() {
+                return threadId;
+            }
+        };
+    }
+
+    @Test
+    void likeOnCommentCountsTowardsItsThreadTest() {
+        when(postRepository.findLikesById(5)).thenReturn(Optional.of(stored(0, 1)));
+
+        assertEquals(Optional.of(1), likeCounterService.like(5));
+
+        verify(trendingService).recordLike(1);
+    }
+
+    @Test
+    void likeReadsStoredCountOnceTest() {
+        when(postRepository.findLikesById(1)).thenReturn(Optional.of(stored(10, 1)));
+
+        assertEquals(Optional.of(11), likeCounterService.like(1));
+        assertEquals(Optional.of(12), likeCounterService.like(1));
+        assertEquals(Optional.of(11), likeCounterService.unlike(1));
+
+        verify(postRepository, times(1)).findLikesById(1);
+        verify(trendingService, times(2)).recordLike(1);
+        ArgumentCaptor<FeedEvent> events = ArgumentCaptor.forClass(FeedEvent.class);
+        verify(eventPublisher, times(3)).publishEvent(events.capture());
+        assertEquals(FeedEvent.LIKES, events.getValue().getType());
+        assertEquals(11, events.getValue().getLikes());
+    }
+
+    @Test
+    void likeMissingPostTest() {
+        when(postRepository.findLikesById(1)).thenReturn(Optional.empty());
+        assertFalse(likeCounterService.like(1).isPresent());
+        verify(trendingService, never()).recordLike(1);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushAppliesDeltasInOneBatchTest() {
+        when(postRepository.findLikesById(1)).thenReturn(Optional.of(stored(0, 1)));
+        when(postRepository.findLikesById(2)).thenReturn(Optional.of(stored(5, 2)));
+        likeCounterService.like(1);
+        likeCounterService.like(1);
+        likeCounterService.unlike(2);
+
+        likeCounterService.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(eq("update flutter.posts set likes = likes + ? where id = ?"), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        verify(entityCacheService).evictPost(1);
+        verify(entityCacheService).evictPost(2);
+
+        //flushed deltas are now part of the stored count, nothing is pending
+        assertEquals(Optional.of(3), likeCounterService.like(1));
+        likeCounterService.unlike(1);
+        clearInvocations(jdbcTemplate);
+        likeCounterService.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void failedFlushIsRetriedTest() {
+        when(postRepository.findLikesById(1)).thenReturn(Optional.of(stored(0, 1)));
+        likeCounterService.like(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        likeCounterService.flush();
+        assertEquals(Optional.of(2), likeCounterService.like(1));
+
+        likeCounterService.flush();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void idleCountersAreEvictedTest() {
+        when(postRepository.findLikesById(1)).thenReturn(Optional.of(stored(0, 1)));
+        likeCounterService.like(1);
+
+        //flushed, then idle for two intervals
+        likeCounterService.flush();
+        likeCounterService.flush();
+        likeCounterService.flush();
+
+        likeCounterService.like(1);
+        verify(postRepository, times(2)).findLikesById(1);
+    }
+}
@@ -0,0 +1,151 @@
+package com.revature.services;
+
+import com.revature.dtos.FeedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LiveFeedServiceTest {
+
+    @Mock
+    private FollowGraphService followGraphService;
+
+    private LiveFeedService liveFeedService;
+
+    @BeforeEach
+    void setup() {
+        liveFeedService = new LiveFeedService(followGraphService, 2, 60000, 3, 10, 2);
+    }
+
+    @AfterEach
+    void shutdown() {
+        liveFeedService.shutdown();
+    }
+
+    @Test
+    void newPostsGoToFollowersAndEveryPostTest() throws InterruptedException {
+        RecordingEmitter follower = new RecordingEmitter();
+        RecordingEmitter stranger = new RecordingEmitter();
+        RecordingEmitter everyone = new RecordingEmitter();
+        liveFeedService.subscribe(follower, 2, null);
+        liveFeedService.subscribe(stranger, 3, null);
+        liveFeedService.subscribe(everyone, null, null);
+        when(followGraphService.getFollowerIds(1)).thenReturn(new int[]{2, 4});
+
+        liveFeedService.publish(new FeedEvent(FeedEvent.POST, 10, 1, null, "hello", null, null));
+
+        await(() -> follower.events.size() == 1 && everyone.events.size() == 1);
+        assertEquals(10, follower.events.get(0).getPostId());
+        assertEquals("hello", everyone.events.get(0).getText());
+        assertTrue(stranger.events.isEmpty());
+    }
+
+    @Test
+    void commentsAndLikesGoToWatchersTest() throws InterruptedException {
+        RecordingEmitter watcher = new RecordingEmitter();
+        RecordingEmitter other = new RecordingEmitter();
+        liveFeedService.subscribe(watcher, 2, Collections.singletonList(5));
+        liveFeedService.subscribe(other, null, null);
+
+        liveFeedService.publish(new FeedEvent(FeedEvent.COMMENT, 5, 3, 6, "nice", null, null));
+        liveFeedService.publish(new FeedEvent(FeedEvent.LIKES, 5, null, null, null, null, 7));
+        liveFeedService.publish(new FeedEvent(FeedEvent.LIKES, 8, null, null, null, null, 1));
+
+        await(() -> watcher.events.size() == 2);
+        assertEquals(Arrays.asList(FeedEvent.COMMENT, FeedEvent.LIKES),
+                watcher.events.stream().map(FeedEvent::getType).collect(Collectors.toList()));
+        assertEquals(7, watcher.events.get(1).getLikes());
+        assertTrue(other.events.isEmpty());
+    }
+
+    @Test
+    void pushedPostsAreWatchedTest() throws InterruptedException {
+        RecordingEmitter everyone = new RecordingEmitter();
+        liveFeedService.subscribe(everyone, null, null);
+
+        liveFeedService.publish(new FeedEvent(FeedEvent.POST, 10, null, null, "hello", null, null));
+        liveFeedService.publish(new FeedEvent(FeedEvent.LIKES, 10, null, null, null, null, 1));
+
+        await(() -> everyone.events.size() == 2);
+        assertEquals(1, everyone.events.get(1).getLikes());
+    }
+
+    @Test
+    void slowConnectionIsClosedTest() throws InterruptedException {
+        RecordingEmitter slow = new RecordingEmitter();
+        slow.blocked = new CountDownLatch(1);
+        liveFeedService.subscribe(slow, null, Collections.singletonList(5));
+
+        // The first event is taken by the blocked sender, two more fill the buffer
+        for (int likes = 1; likes <= 3; likes++) {
+            liveFeedService.publish(new FeedEvent(FeedEvent.LIKES, 5, null, null, null, null, likes));
+            if (likes == 1) {
+                await(() -> slow.sending);
+            }
+        }
+        assertEquals(1, liveFeedService.getConnectionCount());
+
+        liveFeedService.publish(new FeedEvent(FeedEvent.LIKES, 5, null, null, null, null, 4));
+
+        assertEquals(0, liveFeedService.getConnectionCount());
+        slow.blocked.countDown();
+    }
+
+    @Test
+    void connectionLimitTest() {
+        liveFeedService.subscribe(new RecordingEmitter(), 1, null);
+        liveFeedService.subscribe(new RecordingEmitter(), 2, null);
+        liveFeedService.subscribe(new RecordingEmitter(), null, null);
+
+        assertThrows(RejectedExecutionException.class,
+                () -> liveFeedService.subscribe(new RecordingEmitter(), 3, null));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for events");
+            Thread.sleep(10);
+        }
+    }
+
+    // Keeps the feed events instead of writing them to a response
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<FeedEvent> events = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch blocked;
+        private volatile boolean sending;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sending = true;
+            if (blocked != null) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            builder.build().stream()
+                    .filter(part -> part.getData() instanceof FeedEvent)
+                    .forEach(part -> events.add((FeedEvent) part.getData()));
+        }
+    }
+}
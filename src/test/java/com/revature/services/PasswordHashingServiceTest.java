@@ -0,0 +1,94 @@
+package com.revature.services;
+
+import com.revature.exceptions.HashingUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    //the smallest work factor, so the tests stay fast
+    private final PasswordHashingService passwordHashingService = new PasswordHashingService(2, 8, 1);
+
+    @AfterEach
+    void shutdown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    void hashedPasswordMatchesTest() {
+        String hash = passwordHashingService.hash("password");
+        assertTrue(hash.startsWith("pbkdf2$" + passwordHashingService.getIterations() + "$"));
+        assertTrue(passwordHashingService.matches("password", hash));
+        assertFalse(passwordHashingService.matches("drowssap", hash));
+        assertFalse(passwordHashingService.needsRehash(hash));
+    }
+
+    @Test
+    void samePasswordGetsDifferentSaltsTest() {
+        assertNotEquals(passwordHashingService.hash("password"), passwordHashingService.hash("password"));
+    }
+
+    @Test
+    void plainTextPasswordMatchesAndNeedsRehashTest() {
+        assertTrue(passwordHashingService.matches("password", "password"));
+        assertFalse(passwordHashingService.matches("password", "password2"));
+        assertTrue(passwordHashingService.needsRehash("password"));
+    }
+
+    @Test
+    void weakerHashNeedsRehashTest() {
+        PasswordHashingService slower = new PasswordHashingService(1, 1, 1000);
+        try {
+            String weak = passwordHashingService.hash("password");
+            //hashes from a node with a weaker work factor still verify, and are upgraded on login
+            assertTrue(slower.matches("password", weak));
+            assertTrue(slower.needsRehash(weak));
+        } finally {
+            slower.shutdown();
+        }
+    }
+
+    @Test
+    void malformedHashesDoNotMatchTest() {
+        assertFalse(passwordHashingService.matches("password", null));
+        assertFalse(passwordHashingService.matches(null, "password"));
+        assertFalse(passwordHashingService.matches("password", "pbkdf2$abc"));
+        assertFalse(passwordHashingService.matches("password", "pbkdf2$x$y$z"));
+        assertTrue(passwordHashingService.needsRehash("pbkdf2$x$y$z"));
+    }
+
+    @Test
+    void fullQueueFailsFastTest() throws Exception {
+        PasswordHashingService saturated = new PasswordHashingService(1, 1, 1000);
+        ExecutorService logins = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(logins.submit(() -> saturated.hash("password")));
+            }
+            int rejected = 0;
+            for (Future<String> result : results) {
+                try {
+                    result.get(30, TimeUnit.SECONDS);
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertTrue(e.getCause() instanceof HashingUnavailableException);
+                    rejected++;
+                }
+            }
+            //one hash runs and one waits in the queue, the rest are turned away
+            assertTrue(rejected >= 1);
+        } finally {
+            logins.shutdownNow();
+            saturated.shutdown();
+        }
+    }
+}
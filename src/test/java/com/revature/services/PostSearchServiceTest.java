@@ -0,0 +1,131 @@
+package com.revature.services;
+
+import com.revature.repositories.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostSearchServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    private PostSearchService postSearchService;
+
+    @BeforeEach
+    void setup() {
+        postSearchService = new PostSearchService(postRepository);
+    }
+
+    @Test
+    void tokenizerTest() {
+        Map<String, Integer> terms = PostSearchService.termFrequencies("Hello, hello WORLD! it's 2022");
+        assertEquals(2, terms.get("hello"));
+        assertEquals(1, terms.get("world"));
+        assertEquals(1, terms.get("it"));
+        assertEquals(1, terms.get("s"));
+        assertEquals(1, terms.get("2022"));
+        assertTrue(PostSearchService.termFrequencies(null).isEmpty());
+    }
+
+    @Test
+    void buildIndexesEveryPostTest() {
+        when(postRepository.streamAllTexts()).thenReturn(Stream.of(
+                new Object[]{1, "first post about cats"},
+                new Object[]{2, "dogs are great"},
+                new Object[]{3, null}));
+        postSearchService.build();
+
+        assertEquals(Collections.singletonList(1), postSearchService.search("cats", 0, 10));
+        assertEquals(Collections.singletonList(2), postSearchService.search("DOGS", 0, 10));
+        assertTrue(postSearchService.search("birds", 0, 10).isEmpty());
+        assertTrue(postSearchService.search("", 0, 10).isEmpty());
+    }
+
+    @Test
+    void rankedByBm25Test() {
+        postSearchService.index(1, "cats cats cats");
+        postSearchService.index(2, "a long post that mentions cats once among many other words");
+        postSearchService.index(3, "cats and dogs");
+        postSearchService.index(4, "nothing to see here");
+
+        assertEquals(Arrays.asList(1, 3, 2), postSearchService.search("cats", 0, 10));
+        //a post matching both terms beats one that repeats a single term
+        assertEquals(3, postSearchService.search("cats dogs", 0, 10).get(0));
+    }
+
+    @Test
+    void equalScoresRankNewerFirstTest() {
+        postSearchService.index(1, "hello world");
+        postSearchService.index(2, "hello world");
+        assertEquals(Arrays.asList(2, 1), postSearchService.search("hello", 0, 10));
+    }
+
+    @Test
+    void pagesThroughResultsTest() {
+        for (int i = 1; i <= 25; i++) {
+            postSearchService.index(i, "post number " + i);
+        }
+        assertEquals(10, postSearchService.search("post", 0, 10).size());
+        assertEquals(5, postSearchService.search("post", 20, 10).size());
+        //newest first, as every post scores the same
+        assertEquals(Arrays.asList(15, 14, 13, 12, 11), postSearchService.search("post", 10, 5));
+        assertTrue(postSearchService.search("post", 30, 10).isEmpty());
+    }
+
+    @Test
+    void editReplacesIndexedTextTest() {
+        postSearchService.index(1, "old words");
+        postSearchService.index(1, "new words");
+
+        assertTrue(postSearchService.search("old", 0, 10).isEmpty());
+        assertEquals(Collections.singletonList(1), postSearchService.search("new", 0, 10));
+        assertEquals(Collections.singletonList(1), postSearchService.search("words", 0, 10));
+    }
+
+    @Test
+    void removedPostIsNotFoundTest() {
+        postSearchService.index(1, "goodbye");
+        postSearchService.remove(1);
+        assertTrue(postSearchService.search("goodbye", 0, 10).isEmpty());
+    }
+
+    @Test
+    void compactionKeepsLivePostsTest() {
+        //enough edits to trigger a compaction of the postings
+        for (int round = 0; round < 5; round++) {
+            for (int i = 1; i <= 500; i++) {
+                postSearchService.index(i, "shared term round" + round + " post" + i);
+            }
+        }
+        assertEquals(10, postSearchService.search("shared", 0, 10).size());
+        assertTrue(postSearchService.search("round0", 0, 10).isEmpty());
+        assertEquals(Collections.singletonList(42), postSearchService.search("post42", 0, 10));
+        assertEquals(500, postSearchService.search("round4", 0, 1000).size());
+        //retired document numbers are dropped, not just skipped
+        assertTrue(postSearchService.documentCount() < 2500);
+        assertEquals(Collections.singletonList(42), postSearchService.search("round4 post42", 0, 1));
+    }
+
+    @Test
+    void writeDuringBuildIsNotOverwrittenTest() {
+        Stream<Object[]> rows = Stream.<Object[]>of(new Object[]{1, "stale text"})
+                .peek(row -> postSearchService.index(1, "fresh text"));
+        when(postRepository.streamAllTexts()).thenReturn(rows);
+        postSearchService.build();
+
+        assertTrue(postSearchService.search("stale", 0, 10).isEmpty());
+        assertEquals(Collections.singletonList(1), postSearchService.search("fresh", 0, 10));
+    }
+}
@@ -1,21 +1,33 @@
 package com.revature.services;
 
+import com.revature.datasource.ReplicaRouter;
+import com.revature.dtos.FeedEvent;
 import com.revature.models.Post;
 import com.revature.models.PostType;
 import com.revature.models.User;
 import com.revature.repositories.PostRepository;
 import com.revature.repositories.UserRepository;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import javax.persistence.EntityManager;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +37,28 @@ public class PostServiceTest {
     private PostRepository postRepository;
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private TimelineService timelineService;
+    @Mock
+    private CommentTreeService commentTreeService;
+    @Mock
+    private FollowGraphService followGraphService;
+    @Spy
+    private EntityCacheService entityCacheService = new EntityCacheService(mock(EntityManager.class, RETURNS_DEEP_STUBS), mock(ReplicaRouter.class), 100, 60, 100, 60);
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer(0);
+    @Mock
+    private PostSearchService postSearchService;
+    @Mock
+    private TrendingService trendingService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private VersionStampService versionStampService;
+    @Mock
+    private FeedVersionService feedVersionService;
+    @Mock
+    private CounterService counterService;
 
     @InjectMocks
     private PostService postService;
@@ -207,6 +241,108 @@ public class PostServiceTest {
 
     }
 
+    @Test
+    void postListingsLoadCommentTreesTest() {
+        List<Post> all = Collections.singletonList(mockedPostObject);
+        List<Post> byUser = Collections.singletonList(new Post(3, "By user", "image.com", new ArrayList<>(), testFollowedUser, PostType.Top, 0));
+        when(postRepository.findByIdLessThanOrderByIdDesc(10, PageRequest.of(0, 5))).thenReturn(all);
+        when(postRepository.findByAuthorAndPostTypeAndIdLessThanOrderByIdDesc(testFollowedUser, PostType.Top, 10, PageRequest.of(0, 5)))
+                .thenReturn(byUser);
+        when(postRepository.findAllByAuthorAndPostType(testFollowedUser, PostType.Top)).thenReturn(Optional.of(byUser));
+
+        postService.getPage(10, 5);
+        postService.getPostsByUserPage(testFollowedUser, 10, 5);
+        postService.getAllPostsByUser(testFollowedUser);
+
+        verify(commentTreeService).loadCommentTrees(all);
+        verify(commentTreeService, times(2)).loadCommentTrees(byUser);
+    }
+
+    @Test
+    void getPostWithCommentsTest() {
+        Post mockPost = new Post(2,"First post", "FirstPic", new ArrayList<>(), mockedUserObject, PostType.Top,1);
+        when(postRepository.findById(2)).thenReturn(Optional.of(mockPost));
+        Optional<Post> resultPost = postService.getPostWithComments(2);
+        assertEquals(mockPost, resultPost.get());
+        verify(commentTreeService).loadCommentTrees(Collections.singletonList(mockPost));
+    }
+
+    @Test
+    void coldAndWarmFeedsHaveTheSameOrderTest() {
+        User followed = new User(1, "test.com", "password", "John", "Doe", "JDoe", null, null, "image.com");
+        Post older = new Post(1, "Older post", "image.com", new ArrayList<>(), followed, PostType.Top, 0);
+        Post newer = new Post(2, "Newer post", "image.com", new ArrayList<>(), followed, PostType.Top, 0);
+        List<User> following = Collections.singletonList(followed);
+        when(postRepository.findByAuthorInAndPostType(following, PostType.Top))
+                .thenReturn(Optional.of(new ArrayList<>(Arrays.asList(older, newer))));
+        when(timelineService.getPostIds(3)).thenReturn(Optional.of(Arrays.asList(2, 1)));
+        when(postRepository.findAllById(Arrays.asList(2, 1))).thenReturn(new ArrayList<>(Arrays.asList(older, newer)));
+
+        List<Post> cold = postService.getFeedForUser(following).get();
+        List<Post> warm = postService.getTimelineFeed(3).get();
+
+        assertEquals(Arrays.asList(newer, older), cold);
+        assertEquals(cold, warm);
+    }
+
+    @Test
+    void getFeedPageFromTimelineTest() {
+        User follower = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, new ArrayList<>(), "image2.com");
+        Post newer = new Post(9, "Newer post", "image.com", new ArrayList<>(), mockedUserObject, PostType.Top, 0);
+        Post older = new Post(4, "Older post", "image.com", new ArrayList<>(), mockedUserObject, PostType.Top, 0);
+        when(timelineService.getPostIds(2)).thenReturn(Optional.of(Arrays.asList(12, 9, 4)));
+        when(postRepository.findAllById(Arrays.asList(9, 4))).thenReturn(Arrays.asList(older, newer));
+
+        List<Post> page = postService.getFeedPage(follower, 10, 2);
+
+        assertEquals(Arrays.asList(newer, older), page);
+        //the page was filled from the timeline, so no keyset query was needed
+        verify(postRepository, never()).findByAuthorIdInAndPostTypeAndIdLessThanOrderByIdDesc(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void getFeedPageRefillsDeletedPostsTest() {
+        User follower = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
+        Post newer = new Post(9, "Newer post", "image.com", new ArrayList<>(), mockedUserObject, PostType.Top, 0);
+        Post oldest = new Post(2, "Oldest post", "image.com", new ArrayList<>(), mockedUserObject, PostType.Top, 0);
+        //post 4 was deleted after it was pushed to the timeline
+        when(timelineService.getPostIds(2)).thenReturn(Optional.of(Arrays.asList(9, 4, 2)));
+        when(postRepository.findAllById(Arrays.asList(9, 4))).thenReturn(Collections.singletonList(newer));
+        when(followGraphService.getFollowingIds(2)).thenReturn(new int[]{1});
+        when(postRepository.findByAuthorIdInAndPostTypeAndIdLessThanOrderByIdDesc(Collections.singletonList(1), PostType.Top, 4, PageRequest.of(0, 1)))
+                .thenReturn(Collections.singletonList(oldest));
+
+        List<Post> page = postService.getFeedPage(follower, 10, 2);
+
+        //a full page, so the client gets a cursor to continue from
+        assertEquals(Arrays.asList(newer, oldest), page);
+    }
+
+    @Test
+    void deletePostLeavesTheTimelinesTest() {
+        Post post = new Post(5, "Deleted post", "image.com", new ArrayList<>(), mockedUserObject, PostType.Top, 0);
+        when(postRepository.findById(5)).thenReturn(Optional.of(post));
+
+        postService.deletePost(5);
+
+        verify(timelineService).remove(post);
+    }
+
+    @Test
+    void getFeedPageContinuesPastTimelineTest() {
+        User followed = new User(1, "test.com", "password", "John", "Doe", "JDoe", null, null, "image.com");
+        User follower = new User(2, "test2.com", "password2", "Bob", "Smith", "BSmi", null, null, "image2.com");
+        Post older = new Post(3, "Older post", "image.com", new ArrayList<>(), followed, PostType.Top, 0);
+        when(timelineService.getPostIds(2)).thenReturn(Optional.empty());
+        when(followGraphService.getFollowingIds(2)).thenReturn(new int[]{1});
+        when(postRepository.findByAuthorIdInAndPostTypeAndIdLessThanOrderByIdDesc(eq(Collections.singletonList(1)), eq(PostType.Top), eq(10), any()))
+                .thenReturn(Collections.singletonList(older));
+
+        List<Post> page = postService.getFeedPage(follower, 10, 2);
+
+        assertEquals(Collections.singletonList(older), page);
+    }
+
     public void addCommentTestSuccess() {
         //create an empty array to beging with for our comments
         List<Post> commentList = new ArrayList<>();
@@ -242,4 +378,112 @@ public class PostServiceTest {
         assertEquals(mockedPostObject, expectedPost);
         assertEquals(0,expectedPost.getComments().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void searchKeepsRankingOrderTest() {
+        Post first = new Post(5, "cats", "", new ArrayList<>(), mockedUserObject, PostType.Top, 0);
+        Post second = new Post(2, "cats and dogs", "", new ArrayList<>(), mockedUserObject, PostType.Top, 0);
+        when(postSearchService.search("cats", 0, 10)).thenReturn(Arrays.asList(5, 9, 2));
+        //post 9 was deleted since it was indexed
+        when(postRepository.findAllById(Arrays.asList(5, 9, 2))).thenReturn(Arrays.asList(second, first));
+
+        List<Post> results = postService.search("cats", 0, 10);
+
+        assertEquals(Arrays.asList(first, second), results);
+        verify(commentTreeService).loadCommentTrees(results);
+    }
+
+    @Test
+    void upsertAndDeleteUpdateSearchIndexTest() {
+        Post post = new Post(3, "searchable text", "", new ArrayList<>(), mockedUserObject, PostType.Comment, 0);
+        when(postRepository.save(post)).thenReturn(post);
+        when(postRepository.findById(3)).thenReturn(Optional.of(post));
+
+        postService.upsert(post);
+        postService.deletePost(3);
+
+        verify(postSearchService).index(3, "searchable text");
+        verify(postSearchService).remove(3);
+    }
+
+    @Test
+    void createAllIndexesPostsAndNestedCommentsTest() {
+        Post comment = new Post(2, "nested comment", "", new ArrayList<>(), mockedUserObject, PostType.Comment, 0);
+        Post first = new Post(1, "first", "", new ArrayList<>(Collections.singletonList(comment)), mockedUserObject, PostType.Top, 0);
+        Post second = new Post(3, "second", "", new ArrayList<>(), mockedUserObject, PostType.Top, 0);
+        List<Post> posts = Arrays.asList(first, second);
+        when(postRepository.saveAll(posts)).thenReturn(posts);
+
+        assertEquals(posts, postService.createAll(posts));
+
+        verify(postRepository, times(1)).saveAll(posts);
+        verify(postSearchService).index(1, "first");
+        verify(postSearchService).index(2, "nested comment");
+        verify(postSearchService).index(3, "second");
+        verify(timelineService).fanOut(first);
+        verify(timelineService).fanOut(second);
+        verify(trendingService).recordComment(1);
+        ArgumentCaptor<FeedEvent> events = ArgumentCaptor.forClass(FeedEvent.class);
+        verify(eventPublisher, times(3)).publishEvent(events.capture());
+        assertEquals(Arrays.asList(FeedEvent.POST, FeedEvent.COMMENT, FeedEvent.POST),
+                events.getAllValues().stream().map(FeedEvent::getType).collect(Collectors.toList()));
+        assertEquals(2, events.getAllValues().get(1).getCommentId());
+        // Both top level posts count towards their author's posts, the nested comment does not
+        verify(counterService, times(2)).addPosts(0, 1);
+    }
+
+    @Test
+    void replyCountsTowardsItsThreadTest() {
+        Post comment = new Post(5, "comment", "", new ArrayList<>(), mockedUserObject, PostType.Comment, 0);
+        comment.setParentId(1);
+        comment.setRootId(1);
+        comment.setDepth(1);
+        Post reply = new Post(6, "reply", "", new ArrayList<>(), mockedUserObject, PostType.Reply, 0);
+        when(postRepository.findById(5)).thenReturn(Optional.of(comment));
+
+        postService.addComment(comment, reply);
+
+        verify(trendingService).recordComment(1);
+    }
+
+    @Test
+    void addCommentsSavesThemTogetherTest() {
+        Post parent = new Post(1, "parent", "", new ArrayList<>(), mockedUserObject, PostType.Top, 0);
+        List<Post> comments = Arrays.asList(
+                new Post(2, "one", "", new ArrayList<>(), mockedUserObject, PostType.Comment, 0),
+                new Post(3, "two", "", new ArrayList<>(), mockedUserObject, PostType.Comment, 0));
+        when(postRepository.findById(1)).thenReturn(Optional.of(parent));
+        when(postRepository.saveAll(comments)).thenReturn(comments);
+
+        Post result = postService.addComments(parent, comments);
+
+        assertEquals(comments, result.getComments());
+        assertEquals(2, result.getCommentCount());
+        verify(counterService).addComments(1, 2);
+        verify(postSearchService).index(2, "one");
+        verify(postSearchService).index(3, "two");
+        verify(trendingService, times(2)).recordComment(1);
+    }
+
+    @Test
+    void deletedCommentIsUncountedFromItsParentTest() {
+        Post comment = new Post(3, "reply", "", new ArrayList<>(), mockedUserObject, PostType.Comment, 0);
+        comment.setParentId(1);
+        comment.setRootId(1);
+        comment.setDepth(1);
+        comment.setPath(Post.pathSegment(1));
+        when(postRepository.findById(3)).thenReturn(Optional.of(comment));
+        String repliesFrom = Post.pathSegment(1) + Post.pathSegment(3);
+        String repliesTo = Post.pathSegment(1) + Post.pathSegment(4);
+        when(postRepository.findReplyTreeIds(1, repliesFrom, repliesTo)).thenReturn(Collections.singletonList(4));
+
+        postService.deletePost(3);
+
+        verify(counterService).addComments(1, -1);
+        verify(counterService, never()).addPosts(anyInt(), anyInt());
+        //the comment and its replies go in one statement
+        verify(postRepository).deleteWithReplyTree(3, 1, repliesFrom, repliesTo);
+        verify(postSearchService).remove(3);
+        verify(postSearchService).remove(4);
+    }
+}
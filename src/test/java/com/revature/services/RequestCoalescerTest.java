@@ -0,0 +1,97 @@
+package com.revature.services;
+
+import com.revature.dtos.CoalescingStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentLoadsAreCollapsedTest() throws Exception {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(0);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> requestCoalescer.execute("posts", 1, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "post 1";
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        //the load of post 1 is now in flight, these two wait for it instead of loading again
+        Future<String> follower1 = executor.submit(() -> requestCoalescer.execute("posts", 1, () -> "second load"));
+        Future<String> follower2 = executor.submit(() -> requestCoalescer.execute("posts", 1, () -> "third load"));
+        waitForCollapsed(requestCoalescer, 2);
+        release.countDown();
+
+        assertEquals("post 1", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("post 1", follower1.get(5, TimeUnit.SECONDS));
+        assertEquals("post 1", follower2.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(1, requestCoalescer.getStatistics().get(0).getExecutions());
+    }
+
+    @Test
+    void finishedLoadIsNotSharedWithoutWindowTest() {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(0);
+        assertEquals("first", requestCoalescer.execute("posts", 1, () -> "first"));
+        assertEquals("second", requestCoalescer.execute("posts", 1, () -> "second"));
+    }
+
+    @Test
+    void finishedLoadIsSharedInsideWindowTest() {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(60000);
+        assertEquals("first", requestCoalescer.execute("posts", 1, () -> "first"));
+        assertEquals("first", requestCoalescer.execute("posts", 1, () -> "second"));
+        //other keys and other names are loaded separately
+        assertEquals("other key", requestCoalescer.execute("posts", 2, () -> "other key"));
+        assertEquals("other name", requestCoalescer.execute("users", 1, () -> "other name"));
+    }
+
+    @Test
+    void failedLoadIsNotSharedTest() {
+        RequestCoalescer requestCoalescer = new RequestCoalescer(60000);
+        assertThrows(IllegalStateException.class, () -> requestCoalescer.execute("posts", 1, () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertEquals("retried", requestCoalescer.execute("posts", 1, () -> "retried"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitForCollapsed(RequestCoalescer requestCoalescer, long collapsed) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            List<CoalescingStatistics> statistics = requestCoalescer.getStatistics();
+            if (!statistics.isEmpty() && statistics.get(0).getCollapsed() == collapsed) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("requests were not collapsed");
+    }
+}
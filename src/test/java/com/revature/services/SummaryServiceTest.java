@@ -0,0 +1,133 @@
+package com.revature.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.dtos.AuthorSummary;
+import com.revature.dtos.PostSummary;
+import com.revature.models.PostType;
+import com.revature.repositories.PostRepository;
+import com.revature.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SummaryServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private FollowGraphService followGraphService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SpelAwareProxyProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+
+    private SummaryService summaryService;
+
+    @BeforeEach
+    void setup() {
+        summaryService = new SummaryService(postRepository, userRepository, followGraphService, objectMapper);
+    }
+
+    private PostSummary postSummary(int id, Integer authorId) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("text", "post " + id);
+        row.put("postType", PostType.Top);
+        row.put("likes", 3);
+        row.put("commentCount", 2);
+        row.put("authorId", authorId);
+        row.put("authorUsername", "JDoe");
+        return projections.createProjection(PostSummary.class, row);
+    }
+
+    @Test
+    void writeTopPostsTest() throws Exception {
+        when(postRepository.streamSummariesByPostType(PostType.Top))
+                .thenReturn(Stream.of(postSummary(2, 1), postSummary(1, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        summaryService.writeTopPosts(out);
+
+        JsonNode json = objectMapper.readTree(out.toByteArray());
+        assertEquals(2, json.size());
+        assertEquals(2, json.get(0).get("id").asInt());
+        assertEquals("Top", json.get(0).get("postType").asText());
+        assertEquals(2, json.get(0).get("commentCount").asInt());
+        assertEquals("JDoe", json.get(0).get("author").get("username").asText());
+        assertFalse(json.get(0).has("comments"));
+        assertTrue(json.get(1).get("author").isNull());
+    }
+
+    @Test
+    void writeFeedWithoutFollowingTest() throws Exception {
+        when(followGraphService.getFollowingIds(1)).thenReturn(new int[0]);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        summaryService.writeFeed(1, out);
+
+        assertEquals("[]", out.toString());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void writeFeedTest() throws Exception {
+        when(followGraphService.getFollowingIds(1)).thenReturn(new int[]{2, 3});
+        when(postRepository.streamSummariesByAuthorIds(Arrays.asList(2, 3), PostType.Top))
+                .thenReturn(Stream.of(postSummary(7, 2)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        summaryService.writeFeed(1, out);
+
+        assertEquals(7, objectMapper.readTree(out.toByteArray()).get(0).get("id").asInt());
+    }
+
+    @Test
+    void commentPageIsOneRangeOfTheParentIndexTest() {
+        when(postRepository.findCommentSummaries(1, 5, PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(postSummary(6, 2), postSummary(8, 2)));
+
+        List<PostSummary> page = summaryService.getCommentPage(1, 5, 2);
+
+        assertEquals(2, page.size());
+        assertEquals(2, page.get(0).getCommentCount());
+    }
+
+    @Test
+    void writeAllUsersHasNoPasswordTest() throws Exception {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 4);
+        row.put("followerCount", 12);
+        row.put("followingCount", 3);
+        row.put("postCount", 5);
+        AuthorSummary user = projections.createProjection(AuthorSummary.class, row);
+        when(userRepository.streamAllSummaries()).thenReturn(Stream.of(user));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        summaryService.writeAllUsers(out);
+
+        JsonNode json = objectMapper.readTree(out.toByteArray());
+        assertEquals(4, json.get(0).get("id").asInt());
+        assertFalse(json.get(0).has("password"));
+        assertFalse(json.get(0).has("followers"));
+        assertEquals(12, json.get(0).get("followerCount").asInt());
+        assertEquals(5, json.get(0).get("postCount").asInt());
+    }
+}
@@ -0,0 +1,138 @@
+package com.revature.services;
+
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import com.revature.models.User;
+import com.revature.repositories.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TimelineServiceTest {
+
+    @Mock
+    private FollowGraphService followGraphService;
+    @Mock
+    private PostRepository postRepository;
+
+    private TimelineService timelineService;
+
+    private User author;
+
+    @BeforeEach
+    void setup() {
+        //capacity of 3 post ids per timeline, authors above 2 followers are celebrities
+        timelineService = new TimelineService(followGraphService, postRepository, 3, 2, 100, 60);
+        author = new User(1, "test.com", "password", "John", "Doe", "JDoe", null, null, "image.com");
+    }
+
+    private Post topPost(int id) {
+        return new Post(id, "post " + id, "image.com", new ArrayList<>(), author, PostType.Top, 0);
+    }
+
+    @Test
+    void coldTimelineIsEmptyTest() {
+        assertFalse(timelineService.getPostIds(2).isPresent());
+    }
+
+    @Test
+    void readingAColdTimelineRegistersNothingTest() {
+        when(followGraphService.getFollowerIds(1)).thenReturn(new int[]{2});
+        assertFalse(timelineService.getPostIds(2).isPresent());
+        timelineService.fanOut(topPost(9));
+
+        //only a rebuild creates the timeline, so the push before it was not kept
+        timelineService.warm(2, Collections.singletonList(topPost(4)));
+
+        assertEquals(Collections.singletonList(4), timelineService.getPostIds(2).get());
+    }
+
+    @Test
+    void fanOutPushesToWarmFollowersTest() {
+        timelineService.warm(2, Collections.singletonList(topPost(1)));
+        when(followGraphService.getFollowerIds(1)).thenReturn(new int[]{2, 3});
+
+        timelineService.fanOut(topPost(5));
+
+        assertEquals(Arrays.asList(5, 1), timelineService.getPostIds(2).get());
+        //user 3 never read their feed, so their timeline stays cold
+        assertFalse(timelineService.getPostIds(3).isPresent());
+    }
+
+    @Test
+    void timelineIsBoundedTest() {
+        timelineService.warm(2, Arrays.asList(topPost(4), topPost(3), topPost(2), topPost(1)));
+        when(followGraphService.getFollowerIds(1)).thenReturn(new int[]{2});
+
+        timelineService.fanOut(topPost(7));
+
+        assertEquals(Arrays.asList(7, 4, 3), timelineService.getPostIds(2).get());
+    }
+
+    @Test
+    void fanOutIgnoresCommentsTest() {
+        Post comment = new Post(6, "comment", null, new ArrayList<>(), author, PostType.Comment, 0);
+        timelineService.fanOut(comment);
+        verifyNoInteractions(followGraphService);
+    }
+
+    @Test
+    void celebrityPostsAreMergedOnReadTest() {
+        timelineService.warm(2, Collections.singletonList(topPost(3)));
+        when(followGraphService.getFollowerIds(1)).thenReturn(new int[]{2, 3, 4});
+
+        timelineService.fanOut(topPost(8));
+
+        //the celebrity post was not pushed, it is found through the following list on read
+        when(followGraphService.getFollowingIds(2)).thenReturn(new int[]{1});
+        when(postRepository.findByAuthorIdInAndPostTypeOrderByIdDesc(eq(Collections.singletonList(1)), eq(PostType.Top), any()))
+                .thenReturn(Arrays.asList(topPost(8), topPost(3)));
+
+        Optional<List<Integer>> postIds = timelineService.getPostIds(2);
+        assertEquals(Arrays.asList(8, 3), postIds.get());
+    }
+
+    @Test
+    void postsPushedWhileWarmingAreKeptTest() {
+        when(followGraphService.getFollowerIds(1)).thenReturn(new int[]{2});
+        //the rebuild registers the timeline before the feed is read from the database
+        timelineService.startWarming(2);
+        assertFalse(timelineService.getPostIds(2).isPresent());
+        timelineService.fanOut(topPost(9));
+
+        //the feed was read before post 9 was created
+        timelineService.warm(2, Arrays.asList(topPost(4), topPost(1)));
+
+        assertEquals(Arrays.asList(9, 4, 1), timelineService.getPostIds(2).get());
+    }
+
+    @Test
+    void deletedPostLeavesFollowerTimelinesTest() {
+        timelineService.warm(2, Arrays.asList(topPost(5), topPost(4), topPost(1)));
+        when(followGraphService.getFollowerIds(1)).thenReturn(new int[]{2});
+
+        timelineService.remove(topPost(4));
+
+        assertEquals(Arrays.asList(5, 1), timelineService.getPostIds(2).get());
+    }
+
+    @Test
+    void invalidateMakesTimelineColdTest() {
+        timelineService.warm(2, Collections.singletonList(topPost(1)));
+        timelineService.invalidate(2);
+        assertFalse(timelineService.getPostIds(2).isPresent());
+    }
+}
@@ -0,0 +1,69 @@
+package com.revature.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenServiceTest {
+
+    private TokenService tokenService;
+
+    @BeforeEach
+    void setup() {
+        tokenService = new TokenService("a-shared-secret-of-at-least-32-bytes", 3600, false);
+    }
+
+    @Test
+    void issuedTokenVerifiesTest() {
+        String token = tokenService.issue(42);
+        assertEquals(42, tokenService.verify(token));
+        //the same token sent as an Authorization header
+        assertEquals(42, tokenService.verify("Bearer " + token));
+    }
+
+    @Test
+    void otherNodeWithSameSecretVerifiesTest() {
+        TokenService otherNode = new TokenService("a-shared-secret-of-at-least-32-bytes", 3600, false);
+        assertEquals(7, otherNode.verify(tokenService.issue(7)));
+    }
+
+    @Test
+    void otherSecretDoesNotVerifyTest() {
+        TokenService otherSecret = new TokenService("some-other-secret-of-at-least-32-bytes", 3600, false);
+        assertEquals(-1, otherSecret.verify(tokenService.issue(7)));
+    }
+
+    @Test
+    void tamperedTokenDoesNotVerifyTest() {
+        char[] token = tokenService.issue(42).toCharArray();
+        //flip a character inside the user id
+        token[2] = token[2] == 'A' ? 'B' : 'A';
+        assertEquals(-1, tokenService.verify(new String(token)));
+    }
+
+    @Test
+    void expiredTokenDoesNotVerifyTest() {
+        TokenService expired = new TokenService("a-shared-secret-of-at-least-32-bytes", -1, false);
+        assertEquals(-1, expired.verify(expired.issue(42)));
+    }
+
+    @Test
+    void malformedTokensDoNotVerifyTest() {
+        assertEquals(-1, tokenService.verify(null));
+        assertEquals(-1, tokenService.verify(""));
+        assertEquals(-1, tokenService.verify("Bearer "));
+        assertEquals(-1, tokenService.verify("not a token"));
+        String token = tokenService.issue(42);
+        assertEquals(-1, tokenService.verify(token.substring(1)));
+        assertEquals(-1, tokenService.verify("!" + token.substring(1)));
+        assertEquals(-1, tokenService.verify("é" + token.substring(1)));
+    }
+
+    @Test
+    void missingSecretStillIssuesTokensTest() {
+        TokenService random = new TokenService("", 3600, true);
+        assertEquals(42, random.verify(random.issue(42)));
+        assertTrue(random.isSessionLoginEnabled());
+    }
+}
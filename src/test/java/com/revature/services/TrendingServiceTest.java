@@ -0,0 +1,176 @@
+package com.revature.services;
+
+import com.revature.dtos.TrendingPost;
+import com.revature.dtos.TrendingTerm;
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingServiceTest {
+
+    private static final long HOUR = 3600000L;
+
+    private TestClock clock;
+    private TrendingService trendingService;
+
+    @BeforeEach
+    void setup() {
+        clock = new TestClock();
+        trendingService = new TrendingService(clock, 60, 3, 4, 1024);
+    }
+
+    @Test
+    void commentsOutweighLikesTest() {
+        trendingService.recordLike(1);
+        trendingService.recordLike(1);
+        trendingService.recordComment(2);
+
+        List<TrendingPost> trending = trendingService.getTrendingPosts(10);
+        assertEquals(2, trending.size());
+        assertEquals(2, trending.get(0).getId());
+        assertEquals(3.0, trending.get(0).getScore(), 1e-9);
+        assertEquals(1, trending.get(1).getId());
+        assertEquals(2.0, trending.get(1).getScore(), 1e-9);
+        assertEquals(1, trendingService.getTrendingPosts(1).size());
+    }
+
+    @Test
+    void scoresHalveEveryHalfLifeTest() {
+        trendingService.recordComment(1);
+        clock.advance(HOUR);
+        trendingService.recordLike(2);
+        trendingService.recordLike(2);
+
+        List<TrendingPost> trending = trendingService.getTrendingPosts(10);
+        assertEquals(2, trending.get(0).getId());
+        assertEquals(2.0, trending.get(0).getScore(), 1e-9);
+        assertEquals(1.5, trending.get(1).getScore(), 1e-9);
+    }
+
+    @Test
+    void rescalesAfterManyHalfLivesTest() {
+        trendingService.recordLike(1);
+        clock.advance(40 * HOUR);
+        trendingService.recordLike(2);
+        clock.advance(HOUR);
+
+        List<TrendingPost> trending = trendingService.getTrendingPosts(10);
+        assertEquals(2, trending.get(0).getId());
+        assertEquals(0.5, trending.get(0).getScore(), 1e-9);
+        assertEquals(Math.pow(2, -41), trending.get(1).getScore(), 1e-15);
+    }
+
+    @Test
+    void weakestPostIsEvictedTest() {
+        trendingService.recordLike(1);
+        trendingService.recordComment(2);
+        trendingService.recordComment(3);
+        trendingService.recordComment(4);
+
+        List<Integer> ids = ids(trendingService.getTrendingPosts(10));
+        assertEquals(3, ids.size());
+        assertFalse(ids.contains(1));
+
+        // A post too weak to enter stays out
+        trendingService.recordLike(5);
+        assertFalse(ids(trendingService.getTrendingPosts(10)).contains(5));
+    }
+
+    @Test
+    void removedPostIsDroppedTest() {
+        trendingService.recordComment(1);
+        trendingService.recordLike(2);
+        trendingService.remove(1);
+
+        List<Integer> ids = ids(trendingService.getTrendingPosts(10));
+        assertEquals(List.of(2), ids);
+    }
+
+    @Test
+    void termsSkipStopWordsAndNumbersTest() {
+        trendingService.recordCreated(post(1, PostType.Top, "The flutter release is out, flutter 2022 rocks"));
+        trendingService.recordCreated(post(2, PostType.Comment, "Flutter it is"));
+        trendingService.recordCreated(post(3, PostType.Comment, "Release notes, release notes"));
+
+        List<TrendingTerm> terms = trendingService.getTrendingTerms(10);
+        // Counted once per post, however often it appears in it
+        assertEquals(Set.of("flutter", "release"), Set.of(terms.get(0).getTerm(), terms.get(1).getTerm()));
+        assertEquals(2.0, terms.get(0).getScore(), 1e-9);
+        assertEquals(2.0, terms.get(1).getScore(), 1e-9);
+        assertEquals(1.0, terms.get(2).getScore(), 1e-9);
+        for (TrendingTerm term : terms) {
+            assertNotEquals("the", term.getTerm());
+            assertNotEquals("2022", term.getTerm());
+            assertNotEquals("is", term.getTerm());
+        }
+
+        // Only the top level post trends, comments count for their parent
+        assertEquals(List.of(1), ids(trendingService.getTrendingPosts(10)));
+    }
+
+    @Test
+    void sketchNeverUndercountsTest() {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        for (long key = 0; key < 500; key++) {
+            sketch.add(key, 1.0);
+        }
+        sketch.add(7, 10.0);
+        for (long key = 0; key < 500; key++) {
+            assertTrue(sketch.estimate(key) >= (key == 7 ? 11.0 : 1.0));
+        }
+        assertEquals(0.0, new CountMinSketch(4, 64).estimate(7));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(9, 64));
+    }
+
+    private static List<Integer> ids(List<TrendingPost> trending) {
+        List<Integer> ids = new ArrayList<>();
+        for (TrendingPost post : trending) {
+            ids.add(post.getId());
+        }
+        return ids;
+    }
+
+    private static Post post(int id, PostType type, String text) {
+        return new Post(id, text, null, new ArrayList<>(), null, type, 0);
+    }
+
+    private static final class TestClock extends Clock {
+
+        private long millis = 1000000L;
+
+        private void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.revature.services;
+
+import com.revature.dtos.UsernameSuggestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserIndexServiceTest {
+
+    private static final String SELECT = "select id, username, email from flutter.users";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private UserIndexService userIndexService;
+
+    @BeforeEach
+    void setup() {
+        userIndexService = new UserIndexService(jdbcTemplate, "flutter");
+    }
+
+    private void givenUsers(Object[]... rows) {
+        when(jdbcTemplate.query(eq(SELECT), any(RowMapper.class))).thenReturn(new ArrayList<>(Arrays.asList(rows)));
+    }
+
+    private List<String> search(String prefix, int limit) {
+        return userIndexService.search(prefix, limit).stream()
+                .map(UsernameSuggestion::getUsername)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void prefixSearchIgnoresCaseTest() {
+        givenUsers(new Object[]{1, "JDoe", "j@x"}, new Object[]{2, "jane", "jane@x"}, new Object[]{3, "BSmi", "b@x"},
+                new Object[]{4, "jdoe2", "j2@x"});
+
+        assertEquals(Arrays.asList("jane", "JDoe", "jdoe2"), search("j", 10));
+        assertEquals(Arrays.asList("JDoe", "jdoe2"), search("JD", 10));
+        assertEquals(Arrays.asList("jane"), search("j", 1));
+        assertTrue(search("x", 10).isEmpty());
+        assertEquals(3, userIndexService.search("b", 10).get(0).getId());
+        //the table is read once
+        verify(jdbcTemplate, times(1)).query(eq(SELECT), any(RowMapper.class));
+    }
+
+    @Test
+    void usernamesDifferingInCaseAreAllFoundTest() {
+        givenUsers(new Object[]{1, "bob", "a@x"}, new Object[]{2, "Bob", "b@x"}, new Object[]{3, "BOB", "c@x"});
+
+        assertEquals(Arrays.asList("BOB", "Bob", "bob"), search("bob", 10));
+    }
+
+    @Test
+    void filtersHaveNoFalseNegativesTest() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(new Object[]{i, "user" + i, "user" + i + "@x"});
+        }
+        givenUsers(rows.toArray(new Object[0][]));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(userIndexService.mightHaveUsername("user" + i));
+            assertTrue(userIndexService.mightHaveEmail("user" + i + "@x"));
+            if (userIndexService.mightHaveUsername("other" + i)) {
+                falsePositives++;
+            }
+        }
+        //sized for 1%
+        assertTrue(falsePositives < 150, "false positives: " + falsePositives);
+        assertFalse(userIndexService.mightHaveUsername(null));
+    }
+
+    @Test
+    void saveRenamesInIndexTest() {
+        givenUsers(new Object[]{1, "JDoe", "j@x"}, new Object[]{2, "BSmi", "b@x"});
+        assertFalse(userIndexService.mightHaveUsername("alice"));
+
+        userIndexService.put(3, "alice", "alice@x");
+        userIndexService.put(1, "Zed", "j@x");
+
+        assertTrue(userIndexService.mightHaveUsername("alice"));
+        assertTrue(userIndexService.mightHaveEmail("alice@x"));
+        assertEquals(Arrays.asList("alice"), search("a", 10));
+        assertEquals(Arrays.asList("Zed"), search("z", 10));
+        //the old name is no longer suggested
+        assertTrue(search("jd", 10).isEmpty());
+        assertEquals(Arrays.asList("alice", "BSmi", "Zed"), search("", 10));
+    }
+
+    @Test
+    void putBeforeFirstUseIsLoadedFromTableTest() {
+        //nothing is indexed before the first lookup, the load reads the row
+        userIndexService.put(1, "JDoe", "j@x");
+        verifyNoInteractions(jdbcTemplate);
+
+        givenUsers(new Object[]{1, "JDoe", "j@x"});
+        assertEquals(Arrays.asList("JDoe"), search("j", 10));
+    }
+
+    @Test
+    void rebuildPicksUpOtherWritesTest() {
+        givenUsers(new Object[]{1, "JDoe", "j@x"});
+        assertFalse(userIndexService.mightHaveUsername("remote"));
+
+        //written by another node
+        givenUsers(new Object[]{1, "JDoe", "j@x"}, new Object[]{2, "remote", "r@x"});
+        userIndexService.rebuild();
+
+        assertTrue(userIndexService.mightHaveUsername("remote"));
+        assertEquals(Arrays.asList("remote"), search("r", 10));
+    }
+
+    @Test
+    void rebuildBeforeFirstUseDoesNothingTest() {
+        userIndexService.rebuild();
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -1,5 +1,6 @@
 package com.revature.services;
 
+import com.revature.datasource.ReplicaRouter;
 import com.revature.models.Post;
 import com.revature.models.PostType;
 import com.revature.models.User;
@@ -9,10 +10,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import javax.persistence.EntityManager;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -29,6 +32,23 @@ class UserServiceTest {
     @Mock
     private PostService postService;
     @Mock
+    private TimelineService timelineService;
+    @Mock
+    private FollowGraphService followGraphService;
+    private final EntityManager entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+    @Spy
+    private EntityCacheService entityCacheService = new EntityCacheService(entityManager, mock(ReplicaRouter.class), 100, 60, 100, 60);
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer(0);
+    @Spy
+    private PasswordHashingService passwordHashingService = new PasswordHashingService(1, 4, 1);
+    @Mock
+    private UserIndexService userIndexService;
+    @Mock
+    private VersionStampService versionStampService;
+    @Mock
+    private FeedVersionService feedVersionService;
+    @Mock
     private User testFollowedUser;
     @Mock
     private User testFollowerUser;
@@ -39,25 +59,56 @@ class UserServiceTest {
     @InjectMocks
     private UserService userService;
 
+    @BeforeEach
+    void setup() {
+        // Cold feeds are assembled from the followed ids
+        lenient().when(followGraphService.getFollowingIds(anyInt())).thenReturn(new int[0]);
+        // Follow changes also evict Hibernate's cached follow lists, which the mocked entity manager has none of
+        lenient().doNothing().when(entityCacheService).evictUserAfterJdbcWrite(anyInt());
+    }
+
     @Test
     void findByCredentialsSuccessTest() {
-        User mockUser = new User("test.com","password","John","Doe", "JDoe");
-        when(userRepository.findByEmailAndPassword("test.com", "password")).thenReturn(Optional.of(mockUser));
+        User mockUser = new User("test.com",passwordHashingService.hash("password"),"John","Doe", "JDoe");
+        String hash = mockUser.getPassword();
+        when(userRepository.findByEmail("test.com")).thenReturn(Optional.of(mockUser));
         Optional<User> resultUser = userService.findByCredentials("test.com","password");
         assertEquals(resultUser.get().getEmail(),mockUser.getEmail());
-        assertEquals(resultUser.get().getPassword(),mockUser.getPassword());
+        //a current hash is left alone
+        assertEquals(hash,resultUser.get().getPassword());
+        verify(userRepository, never()).save(any());
 
     }
     @Test
     void findByCredentialsSuccessFail() {
+        User mockUser = new User("test.com",passwordHashingService.hash("password"),"John","Doe", "JDoe");
+        when(userRepository.findByEmail("test.com")).thenReturn(Optional.of(mockUser));
+        Optional<User> resultUser = userService.findByCredentials("test.com","drowssap");
+        assertFalse(resultUser.isPresent());
+        verify(userRepository, never()).save(any());
+
+    }
+    @Test
+    void findByCredentialsRehashesPlainTextTest() {
         User mockUser = new User("test.com","password","John","Doe", "JDoe");
-        when(userRepository.findByEmailAndPassword("test.com", "password")).thenReturn(Optional.of(mockUser));
+        mockUser.setId(1);
+        when(userRepository.findByEmail("test.com")).thenReturn(Optional.of(mockUser));
+        //the rehash is saved on an instance of its own, not on the cached copy
+        when(userRepository.findById(1)).thenReturn(Optional.of(mockUser));
+        when(userRepository.save(mockUser)).thenReturn(mockUser);
         Optional<User> resultUser = userService.findByCredentials("test.com","password");
-        assertNotEquals("com.test",mockUser.getEmail());
-        assertNotEquals("drowssap",mockUser.getPassword());
-        assertNotEquals(resultUser.get().getEmail(),"com.test");
-        assertNotEquals(resultUser.get().getPassword(),"drowssap");
-
+        assertTrue(resultUser.isPresent());
+        verify(userRepository, times(1)).save(mockUser);
+        assertTrue(mockUser.getPassword().startsWith("pbkdf2$"));
+        assertTrue(passwordHashingService.matches("password", mockUser.getPassword()));
+    }
+    @Test
+    void changePasswordHashesTest() {
+        User mockUser = new User("test.com","password","John","Doe", "JDoe");
+        when(userRepository.save(mockUser)).thenReturn(mockUser);
+        userService.changePassword(mockUser, "password3");
+        assertTrue(passwordHashingService.matches("password3", mockUser.getPassword()));
+        assertFalse(passwordHashingService.needsRehash(mockUser.getPassword()));
     }
 
 
@@ -175,9 +226,9 @@ class UserServiceTest {
 
     @Test
     void addUserToFollowingListTestSuccess() {
-        //creating arrayLists when get methods are mocked on our mock user objects
-        when(testFollowedUser.getFollowers()).thenReturn(new ArrayList<>());
-        when(testFollowerUser.getFollowing()).thenReturn(new ArrayList<>());
+        when(testFollowedUser.getId()).thenReturn(1);
+        when(testFollowerUser.getId()).thenReturn(2);
+        when(followGraphService.follow(2, 1)).thenReturn(true);
         //creating our followsuccessList when service method addFollower is called with our mock
         //user objects passed in as arguments
         List<User> mockFollowSuccessList = userService.addFollower(testFollowedUser, testFollowerUser);
@@ -186,60 +237,69 @@ class UserServiceTest {
         //testing that each of the mock user objects were added to our mockFollowSuccessList
         assertEquals(mockFollowSuccessList.get(0),testFollowedUser);
         assertEquals(mockFollowSuccessList.get(1),testFollowerUser);
-        //creating an expected followers list and adding our testFollowerUser to that list
-        List<User> expectedFollowers = new ArrayList<>();
-        expectedFollowers.add(testFollowerUser);
-        //verifying that our mockFollowedUser had it's followers list updated with the expectedFollowers list
-        verify(testFollowedUser).setFollowers(expectedFollowers);
-        //creating an expectedFollowing list and adding our testFollowedUser to that list
-        List<User> expectedFollowing = new ArrayList<>();
-        expectedFollowing.add(testFollowedUser);
-        //verifying that our mockFollowerUser had it's following list updated with the expectedFollowing list
-        verify(testFollowerUser).setFollowing(expectedFollowing);
+        //the follow is a single join table row, the follower lists of either user are never loaded
+        verify(followGraphService).follow(2, 1);
+        verify(timelineService).invalidate(2);
+        verify(testFollowedUser, never()).getFollowers();
+        verify(testFollowerUser, never()).getFollowing();
+    }
+    @Test
+    void followedUserIsReadBackWithTheFollowTest() {
+        User followed = new User(1, "test.com", "password", "John", "Doe", "JDoe", null, null, "image.com");
+        User follower = new User(2, "test2.com", "password", "Jane", "Doe", "JaDoe", null, null, "image.com");
+        when(userRepository.findById(1)).thenReturn(Optional.of(followed));
+        when(userRepository.findById(2)).thenReturn(Optional.of(follower));
+        doCallRealMethod().when(entityCacheService).evictUserAfterJdbcWrite(anyInt());
+        when(entityManager.getEntityManagerFactory().getCache().unwrap(org.hibernate.Cache.class))
+                .thenReturn(mock(org.hibernate.Cache.class));
+        //both users were read earlier in the same request, before the join table row was written
+        User cachedFollowed = userService.findById(1).get();
+        User cachedFollower = userService.findById(2).get();
+        followed.setFollowerCount(1);
+        follower.setFollowingCount(1);
+
+        List<User> followSuccess = userService.addFollower(cachedFollowed, cachedFollower);
 
+        assertEquals(1, followSuccess.get(0).getFollowerCount());
+        assertEquals(1, followSuccess.get(1).getFollowingCount());
+        verify(userRepository, times(2)).findById(1);
+        verify(userRepository, times(2)).findById(2);
+        //and the stale managed instances are dropped from the request's persistence context
+        verify(entityManager, times(2)).detach(any());
     }
     @Test
     void addUserToFollowingListTestFail() {
-        //when takes in testFollowedUser mock object, tries to get followers and is expected to throw a runtime
-        // exception when trying to add followers.
-        when(testFollowedUser.getFollowers()).thenThrow(new RuntimeException("Error adding followed user"));
+        when(testFollowedUser.getId()).thenReturn(1);
+        when(testFollowerUser.getId()).thenReturn(2);
+        //the join table insert fails and is expected to throw a runtime exception
+        when(followGraphService.follow(2, 1)).thenThrow(new RuntimeException("Error adding followed user"));
         /*assertThrows takes in 2 arguments(exceptions) and compares the first exception to the second
         using a lambda function that contains the code that should throw the exception*/
         assertThrows(RuntimeException.class, () -> userService.addFollower(testFollowedUser,testFollowerUser));
-        //finally the verify methods in this case are expected to never actually run if the exception was
-        //correctly thrown.
-        verify(testFollowedUser, never()).setFollowers(any());
-        verify(testFollowerUser, never()).setFollowing(any());
+        //finally the timeline is expected to be left alone if the exception was correctly thrown.
+        verify(timelineService, never()).invalidate(anyInt());
     }
 
     @Test
     void removeFollowerTestSuccess() {
-        List<User> testFollowers = new ArrayList<>();
-        testFollowers.add(testFollowerUser);
-        when(testFollowedUser.getFollowers()).thenReturn(testFollowers);
-
-        List<User> testFollowing = new ArrayList<>();
-        testFollowing.add(testFollowedUser);
-        when(testFollowerUser.getFollowing()).thenReturn(testFollowing);
+        when(testFollowedUser.getId()).thenReturn(1);
+        when(testFollowerUser.getId()).thenReturn(2);
+        when(followGraphService.unfollow(2, 1)).thenReturn(true);
 
         List<User> unFollowSuccessList = userService.removeFollower(testFollowedUser, testFollowerUser);
         assertEquals(unFollowSuccessList.size(), 2);
         assertEquals(unFollowSuccessList.get(0),testFollowedUser);
         assertEquals(unFollowSuccessList.get(1),testFollowerUser);
 
-        List<User> expectedFollowers = new ArrayList<>();
-        verify(testFollowedUser).setFollowers(expectedFollowers);
-        List<User> expectedFollowing = new ArrayList<>();
-        verify(testFollowerUser).setFollowing(expectedFollowing);
+        verify(followGraphService).unfollow(2, 1);
+        verify(timelineService).invalidate(2);
     }
-    //something is off about this one. setFollowers and setFollowing are both running.
     @Test
     void removeFollowerTestFailure() {
-        List<User> testFollowers = new ArrayList<>();
-        when(testFollowedUser.getFollowers()).thenReturn(testFollowers);
-
-        List<User> testFollowing = new ArrayList<>();
-        when(testFollowerUser.getFollowing()).thenReturn(testFollowing);
+        when(testFollowedUser.getId()).thenReturn(1);
+        when(testFollowerUser.getId()).thenReturn(2);
+        //the follower was not following the user, nothing is removed
+        when(followGraphService.unfollow(2, 1)).thenReturn(false);
 
         List<User> unFollowFailureList = userService.removeFollower(testFollowedUser, testFollowerUser);
         assertEquals(unFollowFailureList.size(), 2);
@@ -248,24 +308,37 @@ class UserServiceTest {
         verify(testFollowerUser, never()).setFollowing(anyList());
     }
 
+    @Test
+    void countFollowersTest() {
+        when(followGraphService.countFollowers(1)).thenReturn(3);
+        when(followGraphService.isFollowing(2, 1)).thenReturn(true);
+        assertEquals(3, userService.countFollowers(1));
+        assertTrue(userService.isFollowing(2, 1));
+    }
+
     @Test
     void getFeedForUserTestSuccess() {
         List<User> following = new ArrayList<>();
         following.add(testFollowedUser);
-        when(mockedUserObject.getFollowing()).thenReturn(following);
+        when(followGraphService.getFollowingIds(0)).thenReturn(new int[]{1});
+        when(userRepository.findAllById(List.of(1))).thenReturn(following);
         List<Post> expectedFeed = new ArrayList<>();
         expectedFeed.add(mockedPostObject);
         when(postService.getFeedForUser(following)).thenReturn(Optional.of(expectedFeed));
         List<Post> actualFeed = userService.getFeedForUser(mockedUserObject);
         assertEquals(expectedFeed, actualFeed);
-
-
+        //registered before the feed is read, so posts created meanwhile reach the timeline
+        InOrder inOrder = inOrder(timelineService, postService);
+        inOrder.verify(timelineService).startWarming(0);
+        inOrder.verify(postService).getFeedForUser(following);
+        inOrder.verify(postService).warmTimeline(0, expectedFeed);
     }
     @Test
     void getFeedForUserTestFail(){
         List<User> following = new ArrayList<>();
         following.add(testFollowedUser);
-        when(mockedUserObject.getFollowing()).thenReturn(following);
+        when(followGraphService.getFollowingIds(0)).thenReturn(new int[]{1});
+        when(userRepository.findAllById(List.of(1))).thenReturn(following);
         List<Post> expectedFeed = new ArrayList<>();
         expectedFeed.add(mockedPostObject);
         when(postService.getFeedForUser(following)).thenReturn(Optional.empty());
@@ -274,6 +347,18 @@ class UserServiceTest {
 
     }
     @Test
+    void getFeedForUserFromTimelineTest() {
+        List<Post> expectedFeed = new ArrayList<>();
+        expectedFeed.add(mockedPostObject);
+        when(mockedUserObject.getId()).thenReturn(1);
+        when(postService.getTimelineFeed(1)).thenReturn(Optional.of(expectedFeed));
+        List<Post> actualFeed = userService.getFeedForUser(mockedUserObject);
+        assertEquals(expectedFeed, actualFeed);
+        //a warm timeline never falls back to the following list
+        verify(mockedUserObject, never()).getFollowing();
+        verify(postService, never()).getFeedForUser(anyList());
+    }
+    @Test
     void getAllPostsByAUserTestSuccess() {
         User mockedUser = new User("test.com", "somepassword", "First", "Last", "username");
         mockedUser.setId(1);
@@ -297,4 +382,35 @@ class UserServiceTest {
         Optional<List<Post>> allUserPostsOptional = postService.getAllPostsByUser(mockedUser);
         assertFalse(allUserPostsOptional.isPresent());
     }
-}
\ No newline at end of file
+
+    @Test
+    void untakenUsernameSkipsLookupTest() {
+        when(userIndexService.mightHaveUsername("JDoe")).thenReturn(false);
+        assertFalse(userService.isUsernameTaken("JDoe"));
+        verify(userRepository, never()).findByUsername(any());
+    }
+
+    @Test
+    void possiblyTakenUsernameIsConfirmedTest() {
+        User mockUser = new User("test.com","password","John","Doe", "JDoe");
+        when(userIndexService.mightHaveUsername("JDoe")).thenReturn(true);
+        when(userIndexService.mightHaveEmail("other.com")).thenReturn(true);
+        when(userRepository.findByUsername("JDoe")).thenReturn(Optional.of(mockUser));
+        when(userRepository.findByEmail("other.com")).thenReturn(Optional.empty());
+        assertTrue(userService.isUsernameTaken("JDoe"));
+        //a false positive of the filter
+        assertFalse(userService.isEmailTaken("other.com"));
+    }
+
+    @Test
+    void saveUpdatesIndexTest() {
+        User mockUser = new User(4, "test.com","password","John","Doe", "JDoe", null, null, null);
+        when(userRepository.save(mockUser)).thenReturn(mockUser);
+        userService.save(mockUser);
+        verify(userIndexService).put(4, "JDoe", "test.com");
+        //profiles that list the user depend on its version, the follows are not touched one by one
+        verify(versionStampService).touchUser(4);
+        verifyNoMoreInteractions(versionStampService);
+        verifyNoInteractions(followGraphService);
+    }
+}
@@ -0,0 +1,147 @@
+package com.revature.services;
+
+import com.revature.models.Post;
+import com.revature.models.PostType;
+import com.revature.models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionStampServiceTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private VersionStampService versionStampService;
+
+    // The slots live in an in-memory H2 database, every service created on it is another node
+    @BeforeEach
+    void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:versions" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        versionStampService = node(0);
+    }
+
+    @AfterEach
+    void teardown() {
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    private VersionStampService node(long settleMillis) {
+        VersionStampService node = new VersionStampService(jdbcTemplate, transactionManager, 4096, 100, settleMillis, "");
+        node.createSlots();
+        return node;
+    }
+
+    @Test
+    void versionChangesWithAnyDependencyTest() {
+        User author = new User(7, "a@x", "p", "A", "B", "alice", null, null, null);
+        Post comment = new Post(2, "reply", null, new ArrayList<>(), author, PostType.Comment, 0);
+        Post post = new Post(1, "hello", null, new ArrayList<>(Collections.singletonList(comment)), author, PostType.Top, 0);
+
+        OptionalLong rendered = versionStampService.record("post:1", versionStampService.now() + 1,
+                new VersionStampService.Dependencies().post(post));
+        assertTrue(rendered.isPresent());
+        assertEquals(rendered, versionStampService.getVersion("post:1"));
+
+        versionStampService.touchPost(3);
+        versionStampService.touchPostsBy(7);
+        assertEquals(rendered, versionStampService.getVersion("post:1"));
+
+        versionStampService.touchPost(2);
+        OptionalLong afterComment = versionStampService.getVersion("post:1");
+        assertTrue(afterComment.getAsLong() > rendered.getAsLong());
+
+        versionStampService.touchUser(7);
+        assertTrue(versionStampService.getVersion("post:1").getAsLong() > afterComment.getAsLong());
+    }
+
+    @Test
+    void feedDependsOnItsStampTest() {
+        OptionalLong rendered = versionStampService.record("feed:1", versionStampService.now() + 1,
+                new VersionStampService.Dependencies().feed(1));
+
+        versionStampService.touchFeed(2);
+        assertEquals(rendered, versionStampService.getVersion("feed:1"));
+        versionStampService.touchFeed(1);
+        assertTrue(versionStampService.getVersion("feed:1").getAsLong() > rendered.getAsLong());
+    }
+
+    @Test
+    void recordReusesTheVersionReadBeforeTheLoadTest() {
+        VersionStampService.Dependencies dependencies = new VersionStampService.Dependencies().user(1);
+        versionStampService.record("user:1", versionStampService.now() + 1, dependencies);
+        versionStampService.touchUser(1);
+        OptionalLong checked = versionStampService.getVersion("user:1");
+
+        //a touch during the load is not read back, the next conditional request sees it and reloads
+        node(0).touchUser(1);
+        assertEquals(checked, versionStampService.record("user:1", versionStampService.now() + 1, dependencies));
+        assertTrue(versionStampService.getVersion("user:1").getAsLong() > checked.getAsLong());
+    }
+
+    @Test
+    void unrenderedResourceHasNoVersionTest() {
+        assertFalse(versionStampService.getVersion("user:1").isPresent());
+    }
+
+    @Test
+    void recentlyTouchedResourceGetsNoVersionTest() {
+        VersionStampService settling = node(60000);
+        long loadedAt = settling.now();
+        settling.touchUser(1);
+
+        assertFalse(settling.record("user:1", loadedAt, new VersionStampService.Dependencies().user(1)).isPresent());
+        // The dependencies are still remembered
+        assertTrue(settling.getVersion("user:1").isPresent());
+    }
+
+    @Test
+    void touchInTransactionAppliesOnCompletionTest() {
+        OptionalLong rendered = versionStampService.record("user:1", versionStampService.now() + 1,
+                new VersionStampService.Dependencies().user(1));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            versionStampService.touchUser(1);
+            assertEquals(rendered, versionStampService.getVersion("user:1"));
+        });
+        assertTrue(versionStampService.getVersion("user:1").getAsLong() > rendered.getAsLong());
+    }
+
+    @Test
+    void touchIsSeenByEveryNodeTest() {
+        VersionStampService otherNode = node(0);
+        OptionalLong rendered = versionStampService.record("user:1", versionStampService.now() + 1,
+                new VersionStampService.Dependencies().user(1));
+
+        otherNode.touchUser(1);
+        assertTrue(versionStampService.getVersion("user:1").getAsLong() > rendered.getAsLong());
+        //the second node found every slot in place
+        assertEquals(4096, jdbcTemplate.queryForObject("select count(*) from version_slots", Integer.class));
+    }
+
+    @Test
+    void profileDependsOnTheUsersItListsTest() {
+        User follower = new User(8, "b@x", "p", "B", "C", "bob", null, null, null);
+        User user = new User(7, "a@x", "p", "A", "B", "alice", Collections.singletonList(follower), new ArrayList<>(), null);
+        OptionalLong rendered = versionStampService.record("user:7", versionStampService.now() + 1,
+                new VersionStampService.Dependencies().profile(user));
+
+        versionStampService.touchUser(8);
+        assertTrue(versionStampService.getVersion("user:7").getAsLong() > rendered.getAsLong());
+    }
+}